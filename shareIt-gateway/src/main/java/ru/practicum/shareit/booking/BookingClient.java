@@ -3,14 +3,17 @@ package ru.practicum.shareit.booking;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -36,11 +39,25 @@ public class BookingClient extends BaseClient {
         return get("?state={state}&from={from}&size={size}", userId, parameters);
     }
 
+    public ResponseEntity<Object> getBookingsAfterCursor(long userId, BookingState state, String cursor,
+                                                         Integer size) {
+        Map<String, Object> parameters = Map.of(
+                "state", state.name(),
+                "cursor", cursor,
+                "size", size
+        );
+        return get("?state={state}&cursor={cursor}&size={size}", userId, parameters);
+    }
+
 
     public ResponseEntity<Object> bookItem(long userId, BookItemRequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
+    public ResponseEntity<Object> bookItems(long userId, List<BookItemRequestDto> requestDtos) {
+        return post("/batch", userId, requestDtos);
+    }
+
     public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
@@ -53,6 +70,14 @@ public class BookingClient extends BaseClient {
         return patch("/" + bookingId + "?approved={approved}", itemOwnerId, parameters);
     }
 
+    public ResponseEntity<Object> updateApproveAll(Long itemOwnerId, List<Long> bookingIds, Boolean approved) {
+        Map<String, Object> parameters = Map.of(
+                "approved", approved
+        );
+
+        return patch("/batch?approved={approved}", itemOwnerId, parameters, bookingIds);
+    }
+
     public ResponseEntity<Object> getBookingsByOwnerId(Long ownerId, BookingState stateParam, Long from, Long size) {
         Map<String, Object> parameters = Map.of(
                 "state", stateParam.name(),
@@ -62,4 +87,23 @@ public class BookingClient extends BaseClient {
 
         return get("/owner?state={state}&from={from}&size={size}", ownerId, parameters);
     }
-}
\ No newline at end of file
+
+    public ResponseEntity<Object> getOwnerStats(Long ownerId) {
+        return get("/owner/stats", ownerId);
+    }
+
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(Long ownerId) {
+        return stream("/owner/export", ownerId, MediaType.APPLICATION_NDJSON);
+    }
+
+    public ResponseEntity<Object> getBookingsByOwnerIdAfterCursor(Long ownerId, BookingState stateParam,
+                                                                  String cursor, Long size) {
+        Map<String, Object> parameters = Map.of(
+                "state", stateParam.name(),
+                "cursor", cursor,
+                "size", size
+        );
+
+        return get("/owner?state={state}&cursor={cursor}&size={size}", ownerId, parameters);
+    }
+}
@@ -6,12 +6,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 @Controller
 @RequestMapping(path = "/bookings")
@@ -19,6 +24,9 @@ import javax.validation.constraints.PositiveOrZero;
 @Slf4j
 @Validated
 public class BookingController {
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_DECISION_SIZE = 500;
+
     private final BookingClient bookingClient;
 
     @PostMapping
@@ -26,14 +34,20 @@ public class BookingController {
                                          @RequestBody @Valid BookItemRequestDto bookItemRequestDto) {
         log.info("Creating booking {}, userId={}", bookItemRequestDto, userId);
 
-        if (bookItemRequestDto.getEnd().isBefore(bookItemRequestDto.getStart())
-                || bookItemRequestDto.getEnd().isEqual(bookItemRequestDto.getStart())) {
-            throw new IllegalArgumentException("дата окончания раньше начала или равны");
-        }
+        checkPeriod(bookItemRequestDto);
 
         return bookingClient.bookItem(userId, bookItemRequestDto);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<Object> createBatch(@Positive @RequestHeader("X-Sharer-User-Id") long userId,
+                                              @RequestBody @NotEmpty @Size(max = MAX_BATCH_SIZE)
+                                              List<@Valid BookItemRequestDto> bookItemRequestDtos) {
+        log.info("Creating {} bookings, userId={}", bookItemRequestDtos.size(), userId);
+        bookItemRequestDtos.forEach(this::checkPeriod);
+        return bookingClient.bookItems(userId, bookItemRequestDtos);
+    }
+
     @PatchMapping("/{bookingId}")
     public ResponseEntity<Object> update(@Positive @RequestHeader("X-Sharer-User-Id") Long itemOwnerId,
                                          @Positive @PathVariable Long bookingId,
@@ -44,6 +58,17 @@ public class BookingController {
         return responseEntity;
     }
 
+    @PatchMapping("/batch")
+    public ResponseEntity<Object> updateAll(@Positive @RequestHeader("X-Sharer-User-Id") Long itemOwnerId,
+                                            @RequestParam Boolean approved,
+                                            @RequestBody @NotEmpty @Size(max = MAX_DECISION_SIZE)
+                                            List<@NotNull @Positive Long> bookingIds) {
+        log.info("Запрос PATCH /bookings/batch?approved={} {}", approved, bookingIds);
+        ResponseEntity<Object> responseEntity = bookingClient.updateApproveAll(itemOwnerId, bookingIds, approved);
+        log.info("отправлен ответ PATCH /bookings/batch?approved={} {}", approved, responseEntity);
+        return responseEntity;
+    }
+
     @GetMapping("/{bookingId}")
     public ResponseEntity<Object> getBookingById(@RequestHeader("X-Sharer-User-Id") long userId,
                                                  @PathVariable Long bookingId) {
@@ -56,9 +81,14 @@ public class BookingController {
             @RequestHeader("X-Sharer-User-Id") long bookerId,
             @RequestParam(name = "state", defaultValue = "all") String stateParam,
             @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-            @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+            @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+            @RequestParam(required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+        if (cursor != null) {
+            log.info("Get booking with state {}, userId={}, cursor={}, size={}", stateParam, bookerId, cursor, size);
+            return bookingClient.getBookingsAfterCursor(bookerId, state, cursor, size);
+        }
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, bookerId, from, size);
         return bookingClient.getBookings(bookerId, state, from, size);
     }
@@ -67,12 +97,35 @@ public class BookingController {
     public ResponseEntity<Object> getBookingsByOwnerId(@Positive @RequestHeader("X-Sharer-User-Id") Long ownerId,
                                                        @RequestParam(defaultValue = "ALL") String state,
                                                        @PositiveOrZero @RequestParam(defaultValue = "0") Long from,
-                                                       @Positive @RequestParam(defaultValue = "20") Long size) {
+                                                       @Positive @RequestParam(defaultValue = "20") Long size,
+                                                       @RequestParam(required = false) String cursor) {
         log.info("Запрос GET /bookings/owner?state={}", state);
         BookingState stateParam = BookingState.from(state)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + state));
-        ResponseEntity<Object> responseEntity = bookingClient.getBookingsByOwnerId(ownerId, stateParam, from, size);
+        ResponseEntity<Object> responseEntity = cursor != null
+                ? bookingClient.getBookingsByOwnerIdAfterCursor(ownerId, stateParam, cursor, size)
+                : bookingClient.getBookingsByOwnerId(ownerId, stateParam, from, size);
         log.info("Запрос GET /bookings/owner?state={} {}", stateParam, responseEntity);
         return responseEntity;
     }
+
+    @GetMapping("/owner/stats")
+    public ResponseEntity<Object> getOwnerStats(@Positive @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Запрос GET /bookings/owner/stats от пользователя id = {}", ownerId);
+        return bookingClient.getOwnerStats(ownerId);
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(
+            @Positive @RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Запрос GET /bookings/owner/export от пользователя id = {}", ownerId);
+        return bookingClient.exportOwnerBookings(ownerId);
+    }
+
+    private void checkPeriod(BookItemRequestDto bookItemRequestDto) {
+        if (bookItemRequestDto.getEnd().isBefore(bookItemRequestDto.getStart())
+                || bookItemRequestDto.getEnd().isEqual(bookItemRequestDto.getStart())) {
+            throw new IllegalArgumentException("дата окончания раньше начала или равны");
+        }
+    }
 }
\ No newline at end of file
@@ -1,10 +1,16 @@
 package ru.practicum.shareit.client;
 
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +37,14 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
+    /**
+     * GET с дополнительными заголовками запроса клиента, например If-None-Match для условных запросов.
+     */
+    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters,
+                                         HttpHeaders headers) {
+        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null, headers);
+    }
+
     protected <T> ResponseEntity<Object> post(String path, T body) {
         return post(path, null, null, body);
     }
@@ -83,8 +97,71 @@ public class BaseClient {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
+    /**
+     * GET без буферизации: статус и заголовки сервера отдаются сразу, тело копируется клиенту по мере чтения.
+     */
+    protected ResponseEntity<StreamingResponseBody> stream(String path, long userId, MediaType mediaType) {
+        return stream(path, userId, mediaType, HttpHeaders.EMPTY);
+    }
+
+    /**
+     * Потоковый GET с дополнительными заголовками запроса клиента (If-None-Match, If-Modified-Since).
+     * Валидаторы ответа сервера передаются клиенту, чтобы он мог повторить запрос условно.
+     */
+    protected ResponseEntity<StreamingResponseBody> stream(String path, long userId, MediaType mediaType,
+                                                           HttpHeaders extraHeaders) {
+        ClientHttpResponse response;
+        HttpStatus status;
+
+        try {
+            ClientHttpRequest request = rest.getRequestFactory()
+                    .createRequest(rest.getUriTemplateHandler().expand(path), HttpMethod.GET);
+            request.getHeaders().setAccept(List.of(mediaType, MediaType.APPLICATION_JSON));
+            request.getHeaders().set("X-Sharer-User-Id", String.valueOf(userId));
+            request.getHeaders().addAll(extraHeaders);
+            response = request.execute();
+            status = response.getStatusCode();
+        } catch (IOException e) {
+            throw new ResourceAccessException("I/O error on GET request for \"" + path + "\": " + e.getMessage(), e);
+        }
+
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(status);
+        HttpHeaders responseHeaders = response.getHeaders();
+        MediaType contentType = responseHeaders.getContentType();
+
+        if (contentType != null) {
+            responseBuilder.contentType(contentType);
+        }
+        if (responseHeaders.getETag() != null) {
+            responseBuilder.eTag(responseHeaders.getETag());
+        }
+        if (responseHeaders.getLastModified() >= 0) {
+            responseBuilder.lastModified(responseHeaders.getLastModified());
+        }
+        if (responseHeaders.getCacheControl() != null) {
+            responseBuilder.header(HttpHeaders.CACHE_CONTROL, responseHeaders.getCacheControl());
+        }
+
+        if (status == HttpStatus.NOT_MODIFIED) {
+            response.close();
+            return responseBuilder.build();
+        }
+
+        return responseBuilder.body(outputStream -> {
+            try (response) {
+                StreamUtils.copy(response.getBody(), outputStream);
+            }
+        });
+    }
+
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+        return makeAndSendRequest(method, path, userId, parameters, body, HttpHeaders.EMPTY);
+    }
+
+    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body, HttpHeaders extraHeaders) {
+        HttpHeaders headers = defaultHeaders(userId);
+        headers.addAll(extraHeaders);
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
 
         ResponseEntity<Object> shareitServerResponse;
         try {
@@ -116,6 +193,13 @@ public class BaseClient {
 
         ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
 
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED) {
+            return responseBuilder
+                    .eTag(response.getHeaders().getETag())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+
         if (response.hasBody()) {
             return responseBuilder.body(response.getBody());
         }
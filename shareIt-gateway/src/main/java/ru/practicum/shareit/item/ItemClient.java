@@ -3,15 +3,21 @@ package ru.practicum.shareit.item;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.client.BaseClient;
 import ru.practicum.shareit.item.dto.CommentRequestDto;
 import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemSearchSort;
 import ru.practicum.shareit.item.dto.UpdateItemRequestDto;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @Service
@@ -49,14 +55,73 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", ownerId, parameters);
     }
 
-    public ResponseEntity<Object> searchByText(String textForSearch, Long from, Long size) {
+    public ResponseEntity<Object> getAvailability(Long itemId, LocalDateTime from, LocalDateTime to,
+                                                  boolean includeWaiting, @Nullable String ifNoneMatch) {
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "to", to,
+                "includeWaiting", includeWaiting
+        );
+        HttpHeaders headers = new HttpHeaders();
+
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+
+        return get("/" + itemId + "/availability?from={from}&to={to}&includeWaiting={includeWaiting}",
+                null, parameters, headers);
+    }
+
+    public ResponseEntity<StreamingResponseBody> getCalendar(long ownerId, Long itemId, @Nullable String ifNoneMatch,
+                                                             @Nullable String ifModifiedSince) {
+        HttpHeaders headers = new HttpHeaders();
+
+        if (ifNoneMatch != null) {
+            headers.set(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+        }
+        if (ifModifiedSince != null) {
+            headers.set(HttpHeaders.IF_MODIFIED_SINCE, ifModifiedSince);
+        }
+
+        return stream("/" + itemId + "/calendar.ics", ownerId, MediaType.parseMediaType("text/calendar"), headers);
+    }
+
+    public ResponseEntity<Object> searchByText(String textForSearch, @Nullable LocalDateTime start,
+                                               @Nullable LocalDateTime end, ItemSearchSort sort, boolean fuzzy,
+                                               Long from, Long size) {
+        if (start == null) {
+            Map<String, Object> parameters = Map.of(
+                    "text", textForSearch,
+                    "sort", sort.name(),
+                    "fuzzy", fuzzy,
+                    "from", from,
+                    "size", size
+            );
+
+            return get("/search?text={text}&sort={sort}&fuzzy={fuzzy}&from={from}&size={size}", parameters);
+        }
+
         Map<String, Object> parameters = Map.of(
                 "text", textForSearch,
+                "start", start,
+                "end", end,
+                "sort", sort.name(),
+                "fuzzy", fuzzy,
                 "from", from,
                 "size", size
         );
 
-        return get("/search?text={text}&from={from}&size={size}", parameters);
+        return get("/search?text={text}&start={start}&end={end}&sort={sort}&fuzzy={fuzzy}&from={from}&size={size}",
+                parameters);
+    }
+
+    public ResponseEntity<Object> suggest(String prefix, Integer limit) {
+        Map<String, Object> parameters = Map.of(
+                "prefix", prefix,
+                "limit", limit
+        );
+
+        return get("/suggest?prefix={prefix}&limit={limit}", parameters);
     }
 
     public ResponseEntity<Object> addComment(Long authorId, Long itemId, CommentRequestDto text) {
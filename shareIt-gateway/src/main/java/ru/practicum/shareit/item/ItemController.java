@@ -2,18 +2,24 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.shareit.item.dto.CommentRequestDto;
 import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemSearchSort;
 import ru.practicum.shareit.item.dto.UpdateItemRequestDto;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.time.LocalDateTime;
 
 @Controller
 @RequestMapping(path = "/items")
@@ -65,17 +71,78 @@ public class ItemController {
         return responseEntity;
     }
 
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<Object> getAvailability(
+            @Positive @PathVariable Long itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean includeWaiting,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.info("Запрос GET /items/{}/availability?from={}&to={}&includeWaiting={}", itemId, from, to,
+                includeWaiting);
+
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("начало диапазона не раньше окончания");
+        }
+
+        ResponseEntity<Object> responseEntity = itemClient.getAvailability(itemId, from, to, includeWaiting,
+                ifNoneMatch);
+        log.info("Отправлен ответ GET /items/{}/availability {}", itemId, responseEntity);
+        return responseEntity;
+    }
+
+    @GetMapping("/{itemId}/calendar.ics")
+    public ResponseEntity<StreamingResponseBody> getCalendar(
+            @Positive @RequestHeader("X-Sharer-User-Id") Long ownerId,
+            @Positive @PathVariable Long itemId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince) {
+        log.info("Запрос GET /items/{}/calendar.ics userId {}", itemId, ownerId);
+        return itemClient.getCalendar(ownerId, itemId, ifNoneMatch, ifModifiedSince);
+    }
+
     @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
     public ResponseEntity<Object> searchByText(@RequestParam(name = "text") String textForSearch,
+                                               @RequestParam(required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime start,
+                                               @RequestParam(required = false)
+                                               @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                               LocalDateTime end,
+                                               @RequestParam(name = "sort", defaultValue = "id") String sortParam,
+                                               @RequestParam(defaultValue = "false") boolean fuzzy,
                                                @PositiveOrZero @RequestParam(defaultValue = "0") Long from,
                                                @Positive @RequestParam(defaultValue = "20") Long size) {
-        log.info("gateway Запрос GET /search?text={}", textForSearch);
-        ResponseEntity<Object> responseEntity = itemClient.searchByText(textForSearch, from, size);
+        log.info("gateway Запрос GET /search?text={}&start={}&end={}&sort={}&fuzzy={}",
+                textForSearch, start, end, sortParam, fuzzy);
+        ItemSearchSort sort = ItemSearchSort.from(sortParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown sort: " + sortParam));
+
+        if ((start == null) != (end == null)) {
+            throw new IllegalArgumentException("период задается обеими датами start и end");
+        }
+
+        if (start != null && !start.isBefore(end)) {
+            throw new IllegalArgumentException("дата окончания раньше начала или равны");
+        }
+
+        ResponseEntity<Object> responseEntity = itemClient.searchByText(textForSearch, start, end, sort, fuzzy,
+                from, size);
         log.info("gateway Отправлен ответ GET /search?text={} {}", textForSearch, responseEntity);
         return responseEntity;
     }
 
+    @GetMapping("/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public ResponseEntity<Object> suggest(@RequestParam String prefix,
+                                          @Positive @Max(20) @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("gateway Запрос GET /suggest?prefix={}&limit={}", prefix, limit);
+        ResponseEntity<Object> responseEntity = itemClient.suggest(prefix, limit);
+        log.info("gateway Отправлен ответ GET /suggest?prefix={} {}", prefix, responseEntity);
+        return responseEntity;
+    }
+
     @PostMapping("/{itemId}/comment")
     @ResponseStatus(HttpStatus.OK)
     public ResponseEntity<Object> addComment(@RequestHeader("X-Sharer-User-Id") Long authorId,
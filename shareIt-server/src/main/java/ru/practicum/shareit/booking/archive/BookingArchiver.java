@@ -0,0 +1,100 @@
+package ru.practicum.shareit.booking.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.occupancy.BookingOccupancyIndex;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Переносит бронирования, завершившиеся больше archive-after-days дней назад, из booking в booking_archive.
+ * Каждая порция переносится в своей транзакции: строки порции блокируются, копируются в архив и удаляются,
+ * поэтому параллельное решение по бронированию не теряется между копированием и удалением.
+ * Счетчики владельцев не меняются - архивные бронирования в них по-прежнему учитываются.
+ */
+@Slf4j
+@Component
+public class BookingArchiver {
+    private static final int ARCHIVE_CHUNK = 500;
+
+    private final JpaBookingRepository bookingRepository;
+    private final JpaBookingArchiveRepository archiveRepository;
+    private final BookingOccupancyIndex occupancyIndex;
+    private final ItemBookingVersions itemBookingVersions;
+    private final TransactionTemplate transactionTemplate;
+    private final long archiveAfterDays;
+
+    public BookingArchiver(JpaBookingRepository bookingRepository,
+                           JpaBookingArchiveRepository archiveRepository,
+                           BookingOccupancyIndex occupancyIndex,
+                           ItemBookingVersions itemBookingVersions,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${shareit.booking.archive-after-days:90}") long archiveAfterDays) {
+        this.bookingRepository = bookingRepository;
+        this.archiveRepository = archiveRepository;
+        this.occupancyIndex = occupancyIndex;
+        this.itemBookingVersions = itemBookingVersions;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    @Scheduled(initialDelayString = "${shareit.booking.archive-millis:3600000}",
+            fixedDelayString = "${shareit.booking.archive-millis:3600000}")
+    public void archive() {
+        try {
+            log.info("Перенесено в архив бронирований: {}", archive(LocalDateTime.now().minusDays(archiveAfterDays)));
+        } catch (RuntimeException e) {
+            log.warn("Ошибка переноса бронирований в архив, повтор при следующем запуске", e);
+        }
+    }
+
+    public int archive(LocalDateTime endedBefore) {
+        int archived = 0;
+        int moved;
+
+        do {
+            moved = Objects.requireNonNull(transactionTemplate.execute(status -> archiveChunk(endedBefore)));
+            archived += moved;
+        } while (moved == ARCHIVE_CHUNK);
+
+        return archived;
+    }
+
+    private int archiveChunk(LocalDateTime endedBefore) {
+        List<ShortBooking> bookings = bookingRepository.lockEndedBefore(endedBefore, PageRequest.ofSize(ARCHIVE_CHUNK));
+
+        if (bookings.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = bookings.stream()
+                .map(ShortBooking::getId)
+                .collect(Collectors.toList());
+
+        // граница публикуется до фиксации: выборки, начатые после нее, уже учитывают архив
+        bookingRepository.publishArchiveBoundary(endedBefore);
+        archiveRepository.copyFromBooking(ids);
+        bookingRepository.deleteArchived(ids);
+        bookings.forEach(booking -> occupancyIndex.release(booking.getItemId(), booking.getId()));
+        // занятость вещи читает только booking - после фиксации ее ETag должен смениться,
+        // состав календаря, который читает и архив, перенос не меняет
+        bookings.stream()
+                .map(ShortBooking::getItemId)
+                .distinct()
+                .forEach(itemBookingVersions::changed);
+
+        return bookings.size();
+    }
+}
@@ -2,19 +2,28 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @Slf4j
 @AllArgsConstructor
 @RequestMapping(path = "/bookings")
 public class BookingController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final BookingService bookingService;
 
     @PostMapping
@@ -26,6 +35,15 @@ public class BookingController {
         return booking;
     }
 
+    @PostMapping("/batch")
+    public List<BookingBatchResultDto> createBatch(@RequestHeader("X-Sharer-User-Id") Long bookerId,
+                                                   @RequestBody List<BookingRequestDto> bookingRequestDtos) {
+        log.info("Запрос POST /bookings/batch от пользователя id = {} {}", bookerId, bookingRequestDtos);
+        List<BookingBatchResultDto> results = bookingService.createBatch(bookerId, bookingRequestDtos);
+        log.info("Отправлен ответ POST /bookings/batch {}", results);
+        return results;
+    }
+
     @PatchMapping("/{bookingId}")
     public BookingResponseDto update(@RequestHeader("X-Sharer-User-Id") Long itemOwnerId,
                                      @PathVariable Long bookingId,
@@ -36,6 +54,16 @@ public class BookingController {
         return booking;
     }
 
+    @PatchMapping("/batch")
+    public BookingDecisionResultDto updateAll(@RequestHeader("X-Sharer-User-Id") Long itemOwnerId,
+                                              @RequestParam Boolean approved,
+                                              @RequestBody List<Long> bookingIds) {
+        log.info("Запрос PATCH /bookings/batch?approved={} {}", approved, bookingIds);
+        BookingDecisionResultDto result = bookingService.updateApproveAll(itemOwnerId, bookingIds, approved);
+        log.info("отправлен ответ PATCH /bookings/batch?approved={} {}", approved, result);
+        return result;
+    }
+
     @GetMapping("/{bookingId}")
     public BookingResponseDto getBookingById(@RequestHeader("X-Sharer-User-Id") Long userId,
                                              @PathVariable Long bookingId) {
@@ -66,4 +94,57 @@ public class BookingController {
         log.info("Запрос GET /bookings/owner?state={} {}", state, bookingList);
         return bookingList;
     }
-}
\ No newline at end of file
+
+    @GetMapping("/owner/stats")
+    public Map<BookingState, Long> getOwnerStats(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Запрос GET /bookings/owner/stats от пользователя id = {}", ownerId);
+        Map<BookingState, Long> stats = bookingService.getOwnerStats(ownerId);
+        log.info("Отправлен ответ GET /bookings/owner/stats {}", stats);
+        return stats;
+    }
+
+    @GetMapping("/owner/export")
+    public ResponseEntity<StreamingResponseBody> exportOwnerBookings(@RequestHeader("X-Sharer-User-Id") Long ownerId) {
+        log.info("Запрос GET /bookings/owner/export от пользователя id = {}", ownerId);
+        StreamingResponseBody body = bookingService.exportOwnerBookings(ownerId);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping(params = "cursor")
+    public ResponseEntity<List<BookingResponseDto>> getBookingsByBookerIdAfterCursor(
+            @RequestHeader("X-Sharer-User-Id") Long bookerId,
+            @RequestParam(defaultValue = "ALL") BookingState state,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") Long size) {
+        log.info("Запрос GET /bookings?state={}&cursor={}&size={}", state, cursor, size);
+        BookingSliceResponseDto slice = bookingService.getBookingsByBookerIdAfterCursor(bookerId, state, cursor, size);
+        log.info("Отправлен ответ GET /bookings?state={}&cursor={}&size={} {}", state, cursor, size,
+                slice.getBookings());
+        return toResponseEntity(slice);
+    }
+
+    @GetMapping(path = "/owner", params = "cursor")
+    public ResponseEntity<List<BookingResponseDto>> getBookingsByOwnerIdAfterCursor(
+            @RequestHeader("X-Sharer-User-Id") Long ownerId,
+            @RequestParam(defaultValue = "ALL") BookingState state,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "20") Long size) {
+        log.info("Запрос GET /bookings/owner?state={}&cursor={}&size={}", state, cursor, size);
+        BookingSliceResponseDto slice = bookingService.getBookingsByOwnerIdAfterCursor(ownerId, state, cursor, size);
+        log.info("Отправлен ответ GET /bookings/owner?state={}&cursor={}&size={} {}", state, cursor, size,
+                slice.getBookings());
+        return toResponseEntity(slice);
+    }
+
+    private ResponseEntity<List<BookingResponseDto>> toResponseEntity(BookingSliceResponseDto slice) {
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.ok();
+
+        if (slice.getNextCursor() != null) {
+            responseBuilder.header(NEXT_CURSOR_HEADER, slice.getNextCursor());
+        }
+
+        return responseBuilder.body(slice.getBookings());
+    }
+}
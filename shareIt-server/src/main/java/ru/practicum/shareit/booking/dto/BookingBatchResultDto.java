@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Результат создания одного бронирования из пакета: код ответа и бронирование либо текст ошибки.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingBatchResultDto {
+    private int status;
+    private BookingResponseDto booking;
+    private String error;
+
+    public static BookingBatchResultDto created(BookingResponseDto booking) {
+        return new BookingBatchResultDto(HttpStatus.OK.value(), booking, null);
+    }
+
+    public static BookingBatchResultDto failed(HttpStatus status, String error) {
+        return new BookingBatchResultDto(status.value(), null, error);
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Состояние бронирования после изменения, записанное в журнал версий вещи.
+ * Статус null - бронирование удалено.
+ */
+@AllArgsConstructor
+@Data
+public class BookingChange {
+    private Long id;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private BookingStatus status;
+
+    public static BookingChange removed(Long bookingId) {
+        return new BookingChange(bookingId, null, null, null);
+    }
+}
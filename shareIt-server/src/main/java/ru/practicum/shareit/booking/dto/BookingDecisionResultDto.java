@@ -0,0 +1,21 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Итог пакетного решения владельца: updated - бронирования, сменившие статус,
+ * skipped - уже согласованные или отклоненные ранее.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingDecisionResultDto {
+    private List<Long> updated;
+    private List<Long> skipped;
+}
@@ -0,0 +1,36 @@
+package ru.practicum.shareit.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingOutboxEvent;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие бронирования в виде, в котором оно уходит в приемники.
+ * id - номер события в outbox: доставка "хотя бы раз", повтор распознается по нему.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+public class BookingEvent {
+    private Long id;
+    private Long bookingId;
+    private BookingEventType type;
+    private Long itemId;
+    private Long bookerId;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime start;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime end;
+    @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
+    private LocalDateTime created;
+
+    public static BookingEvent of(BookingOutboxEvent event) {
+        return new BookingEvent(event.getId(), event.getBookingId(), event.getType(), event.getItemId(),
+                event.getBookerId(), event.getStart(), event.getEnd(), event.getCreated());
+    }
+}
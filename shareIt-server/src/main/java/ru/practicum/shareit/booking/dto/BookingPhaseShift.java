@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import ru.practicum.shareit.booking.model.BookingPhase;
+
+/**
+ * Число бронирований вещей владельца, уходящих из фазы phase при очередном переключении фаз.
+ */
+@AllArgsConstructor
+@Data
+public class BookingPhaseShift {
+    private Long ownerId;
+    private BookingPhase phase;
+    private Long count;
+}
@@ -21,6 +21,11 @@ public class BookingResponseDto {
     private BookerId booker;
     private ItemIdName item;
 
+    public BookingResponseDto(Long id, LocalDateTime start, LocalDateTime end, BookingStatus status,
+                              Long bookerId, Long itemId, String itemName) {
+        this(id, start, end, status, new BookerId(bookerId), new ItemIdName(itemId, itemName));
+    }
+
     @AllArgsConstructor
     @Getter
     @Setter
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class BookingSliceResponseDto {
+    private final List<BookingResponseDto> bookings;
+    private final String nextCursor;
+}
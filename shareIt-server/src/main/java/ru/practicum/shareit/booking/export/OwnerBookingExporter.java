@@ -0,0 +1,52 @@
+package ru.practicum.shareit.booking.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Выгрузка истории бронирований вещей владельца в NDJSON, от новых к старым.
+ * Строки читаются курсором в транзакции только для чтения и сразу пишутся в поток,
+ * поэтому память не зависит от размера истории.
+ */
+@Slf4j
+@Component
+public class OwnerBookingExporter {
+    private final JpaBookingRepository bookingRepository;
+    private final ObjectWriter writer;
+
+    public OwnerBookingExporter(JpaBookingRepository bookingRepository, ObjectMapper objectMapper) {
+        this.bookingRepository = bookingRepository;
+        this.writer = objectMapper.writerFor(BookingResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Transactional(readOnly = true)
+    public void write(Long ownerId, OutputStream outputStream) throws IOException {
+        long written = 0;
+
+        try (Stream<BookingResponseDto> bookings = bookingRepository.streamOwnerBookings(ownerId);
+             JsonGenerator generator = writer.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+
+            for (Iterator<BookingResponseDto> iterator = bookings.iterator(); iterator.hasNext(); written++) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+        }
+
+        log.info("Выгружено {} бронирований владельца id = {}", written, ownerId);
+    }
+}
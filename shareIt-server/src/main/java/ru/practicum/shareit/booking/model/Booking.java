@@ -35,4 +35,16 @@ public class Booking {
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "booker_id")
     private User booker;
+    // после вставки фазу меняет только BookingPhaseScheduler
+    @Enumerated(EnumType.STRING)
+    @Column(updatable = false)
+    private BookingPhase phase;
+    // согласование и отклонение идут с оптимистической блокировкой, смена фазы версию не меняет
+    @Version
+    private Long version;
+
+    @PrePersist
+    private void initPhase() {
+        phase = BookingPhase.at(start, end, LocalDateTime.now());
+    }
 }
\ No newline at end of file
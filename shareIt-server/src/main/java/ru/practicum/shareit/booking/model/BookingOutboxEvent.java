@@ -0,0 +1,36 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Событие жизненного цикла бронирования, записанное в booking_outbox в транзакции самого изменения.
+ * Строка удаляется после доставки во все приемники. Внешних ключей нет: событие переживает удаление бронирования.
+ */
+@Entity
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "booking_outbox")
+public class BookingOutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    private Long bookingId;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type")
+    private BookingEventType type;
+    private Long itemId;
+    private Long bookerId;
+    @Column(name = "start_time")
+    private LocalDateTime start;
+    @Column(name = "end_time")
+    private LocalDateTime end;
+    private LocalDateTime created;
+}
@@ -0,0 +1,26 @@
+package ru.practicum.shareit.booking.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Положение бронирования относительно текущего момента, хранится в booking.phase
+ * и переключается {@link ru.practicum.shareit.booking.phase.BookingPhaseScheduler}.
+ */
+public enum BookingPhase {
+    // Будущие
+    FUTURE,
+    // Текущие
+    CURRENT,
+    // Завершенные
+    PAST;
+
+    public static BookingPhase at(LocalDateTime start, LocalDateTime end, LocalDateTime now) {
+        if (!now.isBefore(end)) {
+            return PAST;
+        }
+        if (!now.isBefore(start)) {
+            return CURRENT;
+        }
+        return FUTURE;
+    }
+}
@@ -0,0 +1,63 @@
+package ru.practicum.shareit.booking.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Счетчики бронирований вещей владельца по состояниям {@link BookingState}.
+ */
+@Entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "owner_booking_stats")
+public class OwnerBookingStats {
+    @Id
+    @Column(name = "owner_id")
+    private Long ownerId;
+    @Column(name = "all_count")
+    private Long allCount;
+    @Column(name = "waiting_count")
+    private Long waitingCount;
+    @Column(name = "rejected_count")
+    private Long rejectedCount;
+    @Column(name = "current_count")
+    private Long currentCount;
+    @Column(name = "future_count")
+    private Long futureCount;
+    @Column(name = "past_count")
+    private Long pastCount;
+
+    public static OwnerBookingStats empty(Long ownerId) {
+        return new OwnerBookingStats(ownerId, 0L, 0L, 0L, 0L, 0L, 0L);
+    }
+
+    public OwnerBookingStats plus(OwnerBookingStats other) {
+        return new OwnerBookingStats(ownerId,
+                allCount + other.allCount,
+                waitingCount + other.waitingCount,
+                rejectedCount + other.rejectedCount,
+                currentCount + other.currentCount,
+                futureCount + other.futureCount,
+                pastCount + other.pastCount);
+    }
+
+    public Map<BookingState, Long> toCounts() {
+        Map<BookingState, Long> counts = new EnumMap<>(BookingState.class);
+        counts.put(BookingState.ALL, allCount);
+        counts.put(BookingState.WAITING, waitingCount);
+        counts.put(BookingState.REJECTED, rejectedCount);
+        counts.put(BookingState.CURRENT, currentCount);
+        counts.put(BookingState.FUTURE, futureCount);
+        counts.put(BookingState.PAST, pastCount);
+        return counts;
+    }
+}
@@ -0,0 +1,186 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Интервальное дерево бронирований одной вещи: AVL по (start, id), в узлах - максимальный end поддерева.
+ * Интервалы полуоткрытые [start, end): бронирование, начинающееся в момент окончания другого, не пересекается с ним.
+ * Не потокобезопасно, синхронизация - на стороне {@link BookingOccupancyIndex}.
+ */
+class BookingIntervalTree {
+    private final Map<Long, LocalDateTime> starts = new HashMap<>();
+    private Node root;
+
+    Optional<Long> findOverlapping(LocalDateTime start, LocalDateTime end) {
+        Node node = root;
+
+        while (node != null) {
+            if (node.start.isBefore(end) && node.end.isAfter(start)) {
+                return Optional.of(node.id);
+            }
+
+            if (node.left != null && node.left.maxEnd.isAfter(start)) {
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    void insert(Long id, LocalDateTime start, LocalDateTime end) {
+        remove(id);
+        starts.put(id, start);
+        root = insert(root, new Node(id, start, end));
+    }
+
+    void remove(Long id) {
+        LocalDateTime start = starts.remove(id);
+
+        if (start != null) {
+            root = remove(root, id, start);
+        }
+    }
+
+    int size() {
+        return starts.size();
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+
+        int compare = compare(added.start, added.id, node);
+
+        if (compare < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+
+        return balance(node);
+    }
+
+    private Node remove(Node node, Long id, LocalDateTime start) {
+        if (node == null) {
+            return null;
+        }
+
+        int compare = compare(start, id, node);
+
+        if (compare < 0) {
+            node.left = remove(node.left, id, start);
+        } else if (compare > 0) {
+            node.right = remove(node.right, id, start);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+
+            Node successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+
+            successor.right = removeMin(node.right);
+            successor.left = node.left;
+            node = successor;
+        }
+
+        return balance(node);
+    }
+
+    private Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private Node balance(Node node) {
+        update(node);
+        int factor = height(node.left) - height(node.right);
+
+        if (factor > 1) {
+            if (height(node.left.left) < height(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+
+        if (factor < -1) {
+            if (height(node.right.right) < height(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private void update(Node node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        node.maxEnd = node.end;
+
+        if (node.left != null && node.left.maxEnd.isAfter(node.maxEnd)) {
+            node.maxEnd = node.left.maxEnd;
+        }
+        if (node.right != null && node.right.maxEnd.isAfter(node.maxEnd)) {
+            node.maxEnd = node.right.maxEnd;
+        }
+    }
+
+    private int height(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private int compare(LocalDateTime start, Long id, Node node) {
+        int compare = start.compareTo(node.start);
+        return compare != 0 ? compare : id.compareTo(node.id);
+    }
+
+    private static class Node {
+        private final Long id;
+        private final LocalDateTime start;
+        private LocalDateTime end;
+        private LocalDateTime maxEnd;
+        private int height = 1;
+        private Node left;
+        private Node right;
+
+        Node(Long id, LocalDateTime start, LocalDateTime end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+}
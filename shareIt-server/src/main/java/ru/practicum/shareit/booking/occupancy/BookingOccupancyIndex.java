@@ -0,0 +1,223 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.exception.AvailabilityException;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Занятость вещей: интервальное дерево WAITING и APPROVED бронирований на каждую вещь.
+ * Деревья защищены полосатыми блокировками по id вещи, проверка пересечения и сохранение
+ * бронирования выполняются атомарно без блокировок в БД.
+ * Индекс живет в памяти экземпляра сервера и строится из таблицы booking при старте.
+ */
+@Slf4j
+@Component
+public class BookingOccupancyIndex {
+    private static final Set<BookingStatus> OCCUPYING_STATUSES =
+            EnumSet.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+    private static final int STRIPES = 64;
+
+    private final JpaBookingRepository bookingRepository;
+    private final Map<Long, BookingIntervalTree> trees = new ConcurrentHashMap<>();
+    private final Lock[] locks = new Lock[STRIPES];
+
+    public BookingOccupancyIndex(JpaBookingRepository bookingRepository) {
+        this.bookingRepository = bookingRepository;
+
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        trees.clear();
+
+        for (ShortBooking booking : bookingRepository.getShortBookingsByStatusIn(OCCUPYING_STATUSES)) {
+            trees.computeIfAbsent(booking.getItemId(), id -> new BookingIntervalTree())
+                    .insert(booking.getId(), booking.getStart(), booking.getEnd());
+        }
+
+        log.info("Индекс занятости вещей построен, вещей: {}", trees.size());
+    }
+
+    /**
+     * Занимает период бронирования за вещью, сохранение выполняется под блокировкой вещи.
+     * При пересечении с WAITING или APPROVED бронированием - {@link AvailabilityException}.
+     */
+    public Booking occupy(Booking booking, Supplier<Booking> save) {
+        Long itemId = booking.getItem().getId();
+        Lock lock = lockFor(itemId);
+
+        lock.lock();
+        try {
+            BookingIntervalTree tree = trees.computeIfAbsent(itemId, id -> new BookingIntervalTree());
+
+            tree.findOverlapping(booking.getStart(), booking.getEnd())
+                    .ifPresent(id -> {
+                        throw new AvailabilityException(conflictMessage(id));
+                    });
+
+            Booking saved = save.get();
+            tree.insert(saved.getId(), saved.getStart(), saved.getEnd());
+            releaseOnRollback(itemId, saved.getId());
+
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Пакетный вариант {@link #occupy}: под блокировками всех вещей пакета отбрасывает бронирования,
+     * пересекающиеся с занятыми периодами или друг с другом, и сохраняет остальные одним вызовом.
+     * Возвращает для каждого бронирования id пересекающегося с ним бронирования или null, если оно сохранено.
+     */
+    public List<Long> occupyAll(List<Booking> bookings, Consumer<List<Booking>> saveAll) {
+        int[] stripes = bookings.stream()
+                .mapToInt(booking -> stripeFor(booking.getItem().getId()))
+                .distinct()
+                .sorted()
+                .toArray();
+
+        for (int stripe : stripes) {
+            locks[stripe].lock();
+        }
+        try {
+            List<Long> conflicts = new ArrayList<>();
+            List<Booking> accepted = new ArrayList<>();
+
+            for (Booking booking : bookings) {
+                BookingIntervalTree tree = trees.computeIfAbsent(booking.getItem().getId(),
+                        id -> new BookingIntervalTree());
+                Optional<Long> overlapping = tree.findOverlapping(booking.getStart(), booking.getEnd());
+
+                conflicts.add(overlapping.orElse(null));
+
+                if (overlapping.isEmpty()) {
+                    accepted.add(booking);
+                    tree.insert(pendingId(accepted.size() - 1), booking.getStart(), booking.getEnd());
+                }
+            }
+
+            try {
+                saveAll.accept(accepted);
+            } finally {
+                for (int i = 0; i < accepted.size(); i++) {
+                    trees.get(accepted.get(i).getItem().getId()).remove(pendingId(i));
+                }
+            }
+
+            for (Booking saved : accepted) {
+                trees.get(saved.getItem().getId()).insert(saved.getId(), saved.getStart(), saved.getEnd());
+                releaseOnRollback(saved.getItem().getId(), saved.getId());
+            }
+
+            for (int i = 0; i < conflicts.size(); i++) {
+                Long conflict = conflicts.get(i);
+
+                if (conflict != null && conflict < 0) {
+                    conflicts.set(i, accepted.get(pendingIndex(conflict)).getId());
+                }
+            }
+
+            return conflicts;
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                locks[stripes[i]].unlock();
+            }
+        }
+    }
+
+    public static String conflictMessage(Long bookingId) {
+        return "период пересекается с бронированием " + bookingId;
+    }
+
+    public void release(Booking booking) {
+        release(booking.getItem().getId(), booking.getId());
+    }
+
+    /**
+     * Освобождает период бронирования. Внутри транзакции - только после ее фиксации,
+     * чтобы откат не оставил занятый в БД период свободным в индексе.
+     */
+    public void release(Long itemId, Long bookingId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remove(itemId, bookingId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                remove(itemId, bookingId);
+            }
+        });
+    }
+
+    private void remove(Long itemId, Long bookingId) {
+        Lock lock = lockFor(itemId);
+
+        lock.lock();
+        try {
+            BookingIntervalTree tree = trees.get(itemId);
+
+            if (tree != null) {
+                tree.remove(bookingId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void releaseOnRollback(Long itemId, Long bookingId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    remove(itemId, bookingId);
+                }
+            }
+        });
+    }
+
+    private Lock lockFor(Long itemId) {
+        return locks[stripeFor(itemId)];
+    }
+
+    private int stripeFor(Long itemId) {
+        return Math.floorMod(itemId.hashCode(), STRIPES);
+    }
+
+    // пока пакет не сохранен, его бронирования лежат в дереве под отрицательными id
+    private long pendingId(int index) {
+        return -index - 1L;
+    }
+
+    private int pendingIndex(long pendingId) {
+        return (int) (-pendingId - 1);
+    }
+}
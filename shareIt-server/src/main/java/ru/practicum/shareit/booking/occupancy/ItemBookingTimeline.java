@@ -0,0 +1,53 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import ru.practicum.shareit.booking.dto.ShortBooking;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Подтвержденные бронирования одной вещи, упорядоченные по началу.
+ * Последнее и ближайшее бронирования находятся за O(log n) поиском соседей момента.
+ */
+public class ItemBookingTimeline {
+    private final NavigableMap<LocalDateTime, ShortBooking> bookingsByStart = new TreeMap<>();
+    private final String tag;
+
+    ItemBookingTimeline(String tag, Collection<ShortBooking> bookings) {
+        this.tag = tag;
+
+        for (ShortBooking booking : bookings) {
+            bookingsByStart.merge(booking.getStart(), booking,
+                    (current, other) -> current.getId() > other.getId() ? current : other);
+        }
+    }
+
+    /**
+     * Последнее бронирование, начавшееся до datePoint.
+     */
+    public ShortBooking last(LocalDateTime datePoint) {
+        return value(bookingsByStart.lowerEntry(datePoint));
+    }
+
+    /**
+     * Ближайшее бронирование, начинающееся после datePoint.
+     */
+    public ShortBooking next(LocalDateTime datePoint) {
+        return value(bookingsByStart.higherEntry(datePoint));
+    }
+
+    String tag() {
+        return tag;
+    }
+
+    int size() {
+        return bookingsByStart.size();
+    }
+
+    private ShortBooking value(Map.Entry<LocalDateTime, ShortBooking> entry) {
+        return entry == null ? null : entry.getValue();
+    }
+}
@@ -0,0 +1,103 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * LRU-кэш временных линий бронирований вещей для карточки вещи владельца.
+ * Линия загружается при первом обращении и помнит версию бронирований вещи из {@link ItemBookingVersions},
+ * на которой была прочитана: создание или решение по бронированию меняет версию после фиксации,
+ * и следующее обращение загружает линию заново. Объем ограничен суммарным числом бронирований
+ * во всех линиях, при превышении вытесняются давно не запрошенные вещи.
+ * Счетчики попаданий, промахов и вытеснений периодически пишутся в лог.
+ */
+@Slf4j
+@Component
+public class ItemBookingTimelineCache {
+    private final ItemBookingVersions itemBookingVersions;
+    private final WeightedLruMap<Long, ItemBookingTimeline> timelines;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long reportedRequests;
+
+    public ItemBookingTimelineCache(ItemBookingVersions itemBookingVersions,
+                                    @Value("${shareit.booking.timeline-cache.max-bookings:100000}") int maxBookings) {
+        this.itemBookingVersions = itemBookingVersions;
+        this.timelines = new WeightedLruMap<>(maxBookings, ItemBookingTimeline::size, evictions::increment);
+    }
+
+    public ItemBookingTimeline get(Long itemId, Function<Long, Collection<ShortBooking>> loader) {
+        // версия читается до загрузки: изменение, зафиксированное во время загрузки, не останется в кэше
+        String tag = itemBookingVersions.tag(itemId);
+
+        synchronized (this) {
+            ItemBookingTimeline cached = timelines.get(itemId);
+
+            if (cached != null && cached.tag().equals(tag)) {
+                hits.increment();
+                return cached;
+            }
+        }
+
+        misses.increment();
+        ItemBookingTimeline loaded = new ItemBookingTimeline(tag, loader.apply(itemId));
+        put(itemId, loaded);
+
+        return loaded;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public synchronized int cachedBookings() {
+        return timelines.weight();
+    }
+
+    /**
+     * Счетчики с запуска; если обращений с прошлой записи не было, запись пропускается.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking.timeline-cache.stats-log-millis:600000}",
+            fixedDelayString = "${shareit.booking.timeline-cache.stats-log-millis:600000}")
+    public void logStats() {
+        long hitCount = hits();
+        long requests = hitCount + misses();
+
+        if (requests == reportedRequests) {
+            return;
+        }
+        reportedRequests = requests;
+
+        int cachedItems;
+        int bookings;
+        synchronized (this) {
+            cachedItems = timelines.size();
+            bookings = timelines.weight();
+        }
+
+        log.info("Кэш линий бронирований: обращений {}, попаданий {} ({}%), вытеснений {}, вещей {}, бронирований {}",
+                requests, hitCount, hitCount * 100 / requests, evictions(), cachedItems, bookings);
+    }
+
+    private synchronized void put(Long itemId, ItemBookingTimeline timeline) {
+        if (!timelines.put(itemId, timeline)) {
+            log.debug("Линия бронирований вещи {} не помещается в кэш: {}", itemId, timeline.size());
+        }
+    }
+}
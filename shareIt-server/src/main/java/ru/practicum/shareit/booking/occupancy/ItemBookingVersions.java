@@ -0,0 +1,160 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.shareit.booking.dto.BookingChange;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Номер версии бронирований каждой вещи, из него строятся ETag ответов о занятости вещи.
+ * Версия увеличивается после фиксации изменения, поэтому ответ, прочитанный после чтения новой версии,
+ * уже содержит это изменение. Версии живут в памяти экземпляра, после перезапуска все ETag меняются.
+ * Вместе с версией запоминается время изменения с точностью до секунды (Last-Modified), до первого
+ * изменения - время запуска.
+ * По каждой вещи хранится журнал последних {@value #JOURNAL_SIZE} версий с измененными в них бронированиями,
+ * по нему закэшированное представление вещи догоняет текущую версию без чтения всех ее бронирований.
+ */
+@Component
+public class ItemBookingVersions {
+    private static final int JOURNAL_SIZE = 64;
+
+    private final String epoch = Long.toHexString(System.currentTimeMillis());
+    private final Instant started = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+    private final Map<Long, ItemVersion> versions = new ConcurrentHashMap<>();
+
+    public String tag(Long itemId) {
+        ItemVersion version = versions.get(itemId);
+        return tagOf(version == null ? 0 : version.current());
+    }
+
+    public Instant lastChanged(Long itemId) {
+        ItemVersion version = versions.get(itemId);
+        return version == null ? started : version.changedAt();
+    }
+
+    /**
+     * Изменение вещи без изменения состава ее бронирований, например перенос бронирований в архив.
+     */
+    public void changed(Long itemId) {
+        changed(itemId, List.of());
+    }
+
+    public void changed(Long itemId, BookingChange change) {
+        changed(itemId, List.of(change));
+    }
+
+    public void changed(Long itemId, Collection<BookingChange> changes) {
+        List<BookingChange> recorded = List.copyOf(changes);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment(itemId, recorded);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment(itemId, recorded);
+            }
+        });
+    }
+
+    /**
+     * Бронирования, измененные после версии fromTag по версию toTag включительно, в порядке изменений.
+     * Пусто, если версия из другого запуска или журнал вещи уже не помнит всех изменений после нее.
+     */
+    public Optional<List<BookingChange>> changesBetween(Long itemId, String fromTag, String toTag) {
+        Optional<Long> from = version(fromTag);
+        Optional<Long> to = version(toTag);
+        ItemVersion version = versions.get(itemId);
+
+        if (from.isEmpty() || to.isEmpty() || from.get() > to.get()) {
+            return Optional.empty();
+        }
+
+        if (from.get().equals(to.get())) {
+            return Optional.of(List.of());
+        }
+
+        return version == null ? Optional.empty() : version.changesBetween(from.get(), to.get());
+    }
+
+    private String tagOf(long version) {
+        return epoch + "-" + version;
+    }
+
+    private Optional<Long> version(String tag) {
+        String prefix = epoch + "-";
+
+        if (tag == null || !tag.startsWith(prefix)) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(Long.parseLong(tag.substring(prefix.length())));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void increment(Long itemId, List<BookingChange> changes) {
+        versions.computeIfAbsent(itemId, id -> new ItemVersion())
+                .increment(Instant.now().truncatedTo(ChronoUnit.SECONDS), changes);
+    }
+
+    private static class ItemVersion {
+        // journal.peekLast() - изменения текущей версии, версии в журнале идут подряд
+        private final Deque<List<BookingChange>> journal = new ArrayDeque<>();
+        private long current;
+        private Instant changedAt;
+
+        synchronized long current() {
+            return current;
+        }
+
+        synchronized Instant changedAt() {
+            return changedAt;
+        }
+
+        synchronized void increment(Instant now, List<BookingChange> changes) {
+            current++;
+            changedAt = now;
+            journal.addLast(changes);
+
+            if (journal.size() > JOURNAL_SIZE) {
+                journal.removeFirst();
+            }
+        }
+
+        synchronized Optional<List<BookingChange>> changesBetween(long from, long to) {
+            long oldest = current - journal.size() + 1;
+
+            if (from + 1 < oldest || to > current) {
+                return Optional.empty();
+            }
+
+            List<BookingChange> changes = new ArrayList<>();
+            long version = oldest;
+
+            for (List<BookingChange> changed : journal) {
+                if (version > from && version <= to) {
+                    changes.addAll(changed);
+                }
+                version++;
+            }
+
+            return Optional.of(changes);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * LRU-отображение, ограниченное суммарным весом записей. Вес записи - вес значения плюс один:
+ * пустое значение тоже занимает запись. При превышении предела вытесняются давно не запрошенные записи.
+ * Не потокобезопасно, доступ синхронизирует владелец.
+ */
+public class WeightedLruMap<K, V> {
+    private final int maxWeight;
+    private final ToIntFunction<V> weigher;
+    private final Runnable onEviction;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int weight;
+
+    public WeightedLruMap(int maxWeight, ToIntFunction<V> weigher, Runnable onEviction) {
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.onEviction = onEviction;
+    }
+
+    public V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Заменяет значение ключа. Значение тяжелее предела не кладется, а прошлое значение ключа все равно удаляется.
+     * Возвращает, положено ли значение.
+     */
+    public boolean put(K key, V value) {
+        V previous = entries.remove(key);
+
+        if (previous != null) {
+            weight -= weightOf(previous);
+        }
+
+        if (weightOf(value) > maxWeight) {
+            return false;
+        }
+
+        entries.put(key, value);
+        weight += weightOf(value);
+
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+
+        while (weight > maxWeight) {
+            weight -= weightOf(eldest.next().getValue());
+            eldest.remove();
+            onEviction.run();
+        }
+
+        return true;
+    }
+
+    public boolean containsKey(K key) {
+        return entries.containsKey(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int weight() {
+        return weight;
+    }
+
+    private int weightOf(V value) {
+        return weigher.applyAsInt(value) + 1;
+    }
+}
@@ -0,0 +1,20 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+
+/**
+ * Передает события слушателям внутри приложения: {@code @EventListener} на {@link BookingEvent}.
+ */
+@Component
+@AllArgsConstructor
+public class ApplicationEventBookingEventSink implements BookingEventSink {
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void publish(BookingEvent event) {
+        eventPublisher.publishEvent(event);
+    }
+}
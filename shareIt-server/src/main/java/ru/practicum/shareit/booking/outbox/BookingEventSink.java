@@ -0,0 +1,11 @@
+package ru.practicum.shareit.booking.outbox;
+
+import ru.practicum.shareit.booking.dto.BookingEvent;
+
+/**
+ * Приемник событий бронирований. Исключение означает, что событие не доставлено:
+ * оно и последующие события того же бронирования будут отправлены повторно.
+ */
+public interface BookingEventSink {
+    void publish(BookingEvent event);
+}
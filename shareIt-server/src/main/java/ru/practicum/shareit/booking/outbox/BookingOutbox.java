@@ -0,0 +1,60 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingOutboxEvent;
+import ru.practicum.shareit.booking.repository.JpaBookingOutboxRepository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Запись событий бронирований в booking_outbox. Вызывается внутри транзакции изменения,
+ * поэтому событие фиксируется вместе с ним или не фиксируется вовсе. Доставку выполняет
+ * {@link BookingOutboxDispatcher}.
+ */
+@Component
+@AllArgsConstructor
+public class BookingOutbox {
+    private final JpaBookingOutboxRepository outboxRepository;
+
+    public void append(Booking booking, BookingEventType type) {
+        appendAll(List.of(booking), type);
+    }
+
+    public void appendAll(Collection<Booking> bookings, BookingEventType type) {
+        LocalDateTime now = LocalDateTime.now();
+
+        outboxRepository.saveAll(bookings.stream()
+                .map(booking -> event(booking.getId(), type, booking.getItem().getId(), booking.getBooker().getId(),
+                        booking.getStart(), booking.getEnd(), now))
+                .collect(Collectors.toList()));
+    }
+
+    public void appendDecisions(Collection<BookingResponseDto> bookings, BookingEventType type) {
+        LocalDateTime now = LocalDateTime.now();
+
+        outboxRepository.saveAll(bookings.stream()
+                .map(booking -> event(booking.getId(), type, booking.getItem().getId(), booking.getBooker().getId(),
+                        booking.getStart(), booking.getEnd(), now))
+                .collect(Collectors.toList()));
+    }
+
+    private BookingOutboxEvent event(Long bookingId, BookingEventType type, Long itemId, Long bookerId,
+                                     LocalDateTime start, LocalDateTime end, LocalDateTime created) {
+        return BookingOutboxEvent.builder()
+                .bookingId(bookingId)
+                .type(type)
+                .itemId(itemId)
+                .bookerId(bookerId)
+                .start(start)
+                .end(end)
+                .created(created)
+                .build();
+    }
+}
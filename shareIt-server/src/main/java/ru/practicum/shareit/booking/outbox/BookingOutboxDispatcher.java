@@ -0,0 +1,167 @@
+package ru.practicum.shareit.booking.outbox;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingOutboxEvent;
+import ru.practicum.shareit.booking.repository.JpaBookingOutboxRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Фоново доставляет события из booking_outbox во все приемники {@link BookingEventSink} порциями по id.
+ * Порция блокируется на время доставки, доставленные события удаляются в той же транзакции - при сбое
+ * до фиксации порция уйдет повторно (доставка "хотя бы раз"). Если событие не доставлено,
+ * следующие события того же бронирования в этом проходе пропускаются, чтобы сохранить их порядок,
+ * события других бронирований доставляются. Проход читает порции после последнего прочитанного id,
+ * поэтому недоставляемые события в начале очереди не останавливают доставку остальных.
+ * Счетчики доставки периодически пишутся в лог.
+ */
+@Slf4j
+@Component
+public class BookingOutboxDispatcher {
+    private static final int DISPATCH_CHUNK = 200;
+
+    private final JpaBookingOutboxRepository outboxRepository;
+    private final List<BookingEventSink> sinks;
+    private final TransactionTemplate transactionTemplate;
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile long lastLagMillis;
+    private long reportedEvents;
+
+    public BookingOutboxDispatcher(JpaBookingOutboxRepository outboxRepository,
+                                   List<BookingEventSink> sinks,
+                                   PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.sinks = sinks;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(initialDelayString = "${shareit.booking.outbox.dispatch-millis:1000}",
+            fixedDelayString = "${shareit.booking.outbox.dispatch-millis:1000}")
+    public void dispatchPending() {
+        try {
+            int count = dispatch();
+
+            if (count > 0) {
+                log.debug("Доставлено событий бронирований: {}, задержка последнего {} мс", count, lastLagMillis);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Ошибка доставки событий бронирований, повтор при следующем запуске", e);
+        }
+    }
+
+    public synchronized int dispatch() {
+        Set<Long> blockedBookings = new HashSet<>();
+        int total = 0;
+        ChunkResult result = new ChunkResult(0L, 0, 0);
+
+        do {
+            long afterId = result.lastId;
+            result = Objects.requireNonNull(
+                    transactionTemplate.execute(status -> dispatchChunk(afterId, blockedBookings)));
+            total += result.delivered;
+        } while (result.read == DISPATCH_CHUNK);
+
+        return total;
+    }
+
+    /**
+     * Счетчики с запуска и возраст очереди; если с прошлой записи ничего не доставлялось
+     * и очередь пуста, запись пропускается.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking.outbox.stats-log-millis:600000}",
+            fixedDelayString = "${shareit.booking.outbox.stats-log-millis:600000}")
+    public void logStats() {
+        long events = dispatched() + failed();
+        long pendingLag = pendingLagMillis();
+
+        if (events == reportedEvents && pendingLag == 0) {
+            return;
+        }
+        reportedEvents = events;
+
+        log.info("События бронирований: доставлено {}, ошибок {}, задержка последнего {} мс, " +
+                "старейшего в очереди {} мс", dispatched(), failed(), lastLagMillis, pendingLag);
+    }
+
+    public long dispatched() {
+        return dispatched.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    /**
+     * Время от записи до доставки последнего доставленного события.
+     */
+    public long lastLagMillis() {
+        return lastLagMillis;
+    }
+
+    /**
+     * Возраст самого старого недоставленного события, 0 - очередь пуста.
+     */
+    public long pendingLagMillis() {
+        return outboxRepository.findOldestCreated()
+                .map(created -> Duration.between(created, LocalDateTime.now()).toMillis())
+                .orElse(0L);
+    }
+
+    private ChunkResult dispatchChunk(long afterId, Set<Long> blockedBookings) {
+        List<BookingOutboxEvent> events = outboxRepository.lockAfter(afterId, PageRequest.ofSize(DISPATCH_CHUNK));
+        List<Long> delivered = new ArrayList<>();
+
+        for (BookingOutboxEvent event : events) {
+            if (blockedBookings.contains(event.getBookingId())) {
+                continue;
+            }
+
+            try {
+                BookingEvent bookingEvent = BookingEvent.of(event);
+                sinks.forEach(sink -> sink.publish(bookingEvent));
+            } catch (RuntimeException e) {
+                blockedBookings.add(event.getBookingId());
+                failed.increment();
+                log.warn("Не удалось доставить событие {} бронирования {}", event.getId(), event.getBookingId(), e);
+                continue;
+            }
+
+            delivered.add(event.getId());
+            dispatched.increment();
+            lastLagMillis = Duration.between(event.getCreated(), LocalDateTime.now()).toMillis();
+        }
+
+        if (!delivered.isEmpty()) {
+            outboxRepository.deleteDispatched(delivered);
+        }
+
+        long lastId = events.isEmpty() ? afterId : events.get(events.size() - 1).getId();
+        return new ChunkResult(lastId, events.size(), delivered.size());
+    }
+
+    private static class ChunkResult {
+        private final long lastId;
+        private final int read;
+        private final int delivered;
+
+        ChunkResult(long lastId, int read, int delivered) {
+            this.lastId = lastId;
+            this.read = read;
+            this.delivered = delivered;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.booking.outbox;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Дописывает события JSON-строками в файл shareit.booking.outbox.file. Включается только этим свойством.
+ */
+@Component
+@ConditionalOnProperty("shareit.booking.outbox.file")
+public class FileBookingEventSink implements BookingEventSink {
+    private final Path file;
+    private final ObjectMapper objectMapper;
+
+    public FileBookingEventSink(@Value("${shareit.booking.outbox.file}") Path file, ObjectMapper objectMapper) {
+        this.file = file;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(BookingEvent event) {
+        try {
+            Files.writeString(file, objectMapper.writeValueAsString(event) + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("событие бронирования не сериализуется", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
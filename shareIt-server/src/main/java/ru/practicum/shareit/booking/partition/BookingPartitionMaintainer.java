@@ -0,0 +1,142 @@
+package ru.practicum.shareit.booking.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Заранее создает месячные секции booking на PostgreSQL: текущий месяц и months-ahead следующих.
+ * На других базах и при несекционированной booking (H2 в тестах, schema.sql без schema-postgresql.sql)
+ * ничего не делает. Бронирования на месяцы дальше months-ahead попадают в booking_default; когда до их месяца
+ * доходит очередь, секция создается при отсоединенной booking_default и строки месяца переносятся в нее
+ * в той же транзакции - иначе PostgreSQL отказывается создавать секцию, пересекающуюся со строками DEFAULT.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class BookingPartitionMaintainer {
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String COLUMNS = "id, start_time, end_time, status, item_id, booker_id, phase, version";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+
+    public BookingPartitionMaintainer(JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${shareit.booking.partition-months-ahead:3}") int monthsAhead) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+    }
+
+    @PostConstruct
+    public void start() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${shareit.booking.partition-cron:0 0 3 * * *}")
+    public void maintain() {
+        try {
+            int created = createPartitions(YearMonth.now());
+
+            if (created > 0) {
+                log.info("Созданы секции бронирований: {}", created);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Ошибка создания секций бронирований, повтор при следующем запуске", e);
+        }
+    }
+
+    public int createPartitions(YearMonth from) {
+        if (!isPartitioned()) {
+            return 0;
+        }
+
+        int created = 0;
+
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = from.plusMonths(i);
+            String partition = partitionName(month);
+
+            if (exists(partition)) {
+                continue;
+            }
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> createPartition(month));
+                created++;
+            } catch (DataAccessException e) {
+                // строки месяца могли появиться в booking_default между проверкой и созданием - повтор их перенесет
+                log.warn("Не удалось создать секцию {}: {}", partition, e.getMessage());
+            }
+        }
+
+        return created;
+    }
+
+    private void createPartition(YearMonth month) {
+        LocalDateTime start = month.atDay(1).atStartOfDay();
+        LocalDateTime end = month.plusMonths(1).atDay(1).atStartOfDay();
+        Boolean inDefault = jdbcTemplate.queryForObject(
+                "select exists(select 1 from booking_default where start_time >= ? and start_time < ?)",
+                Boolean.class, start, end);
+
+        if (!Boolean.TRUE.equals(inDefault)) {
+            jdbcTemplate.execute(partitionDdl(month));
+            return;
+        }
+
+        // отсоединение блокирует booking до конца транзакции, поэтому новых строк месяца в DEFAULT не появится
+        jdbcTemplate.execute("ALTER TABLE booking DETACH PARTITION booking_default");
+        jdbcTemplate.execute(partitionDdl(month));
+        int moved = jdbcTemplate.update("insert into booking (" + COLUMNS + ") select " + COLUMNS +
+                " from booking_default where start_time >= ? and start_time < ?", start, end);
+        jdbcTemplate.update("delete from booking_default where start_time >= ? and start_time < ?", start, end);
+        jdbcTemplate.execute("ALTER TABLE booking ATTACH PARTITION booking_default DEFAULT");
+
+        log.info("В секцию {} перенесено бронирований из booking_default: {}", partitionName(month), moved);
+    }
+
+    static String partitionName(YearMonth month) {
+        return "booking_p" + month.format(PARTITION_SUFFIX);
+    }
+
+    static String partitionDdl(YearMonth month) {
+        return "CREATE TABLE IF NOT EXISTS " + partitionName(month) + " PARTITION OF booking " +
+                "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private boolean isPartitioned() {
+        String database = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+
+        if (!"PostgreSQL".equals(database)) {
+            return false;
+        }
+
+        Integer partitioned = jdbcTemplate.queryForObject(
+                "select count(*) from pg_partitioned_table where partrelid = to_regclass('booking')", Integer.class);
+
+        return partitioned != null && partitioned > 0;
+    }
+
+    private boolean exists(String partition) {
+        Integer found = jdbcTemplate.queryForObject(
+                "select count(*) from pg_class where relname = ?", Integer.class, partition);
+
+        return found != null && found > 0;
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.shareit.booking.phase;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingPhaseShift;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Переключает booking.phase FUTURE -> CURRENT -> PAST в моменты начала и окончания бронирований.
+ * Границы всех незавершенных бронирований лежат в иерархическом колесе таймеров, раз в тик
+ * сработавшие бронирования обновляются пакетом. При старте фазы, пропущенные за время простоя,
+ * догоняются UPDATE по диапазонам id, а колесо заполняется из тех же диапазонов.
+ * Переключение порции и приращения счетчиков владельцев выполняются в одной транзакции,
+ * счетчики после догоняющего UPDATE исправляет сверка {@link OwnerBookingStatsService#reconcile()}.
+ */
+@Slf4j
+@Component
+public class BookingPhaseScheduler {
+    private static final int UPDATE_CHUNK = 500;
+
+    private final JpaBookingRepository bookingRepository;
+    private final OwnerBookingStatsService statsService;
+    private final TransactionTemplate transactionTemplate;
+    private final long tickMillis;
+    private final HierarchicalTimerWheel<Long> wheel;
+    private ScheduledExecutorService executor;
+
+    public BookingPhaseScheduler(JpaBookingRepository bookingRepository,
+                                 OwnerBookingStatsService statsService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${shareit.booking.phase-tick-millis:1000}") long tickMillis) {
+        this.bookingRepository = bookingRepository;
+        this.statsService = statsService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tickMillis = tickMillis;
+        this.wheel = new HierarchicalTimerWheel<>(tickMillis, toMillis(LocalDateTime.now()));
+    }
+
+    @PostConstruct
+    public void start() {
+        recover(LocalDateTime.now());
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "booking-phase");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Ставит границы нового бронирования в колесо. Внутри транзакции - после ее фиксации,
+     * иначе сработавший таймер может не увидеть еще не зафиксированную строку.
+     */
+    public void schedule(Booking booking) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            schedule(booking.getId(), booking.getStart(), booking.getEnd());
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(booking.getId(), booking.getStart(), booking.getEnd());
+            }
+        });
+    }
+
+    /**
+     * Снимает таймеры удаленных бронирований. Внутри транзакции - после ее фиксации.
+     */
+    public void cancel(Collection<Long> bookingIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            wheel.cancel(Set.copyOf(bookingIds));
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wheel.cancel(Set.copyOf(bookingIds));
+            }
+        });
+    }
+
+    // каждый диапазон из UPDATE_CHUNK id - отдельная короткая транзакция, таблица целиком не блокируется
+    void recover(LocalDateTime now) {
+        long maxId = bookingRepository.findMaxId().orElse(0L);
+        int caughtUp = 0;
+
+        for (long from = 1; from <= maxId; from += UPDATE_CHUNK) {
+            long fromId = from;
+            long toId = from + UPDATE_CHUNK;
+
+            caughtUp += transactionTemplate.execute(status -> bookingRepository.updatePhaseToPast(fromId, toId, now)
+                    + bookingRepository.updatePhaseToCurrent(fromId, toId, now)
+                    + bookingRepository.updatePhaseToFuture(fromId, toId, now));
+
+            for (ShortBooking booking : bookingRepository.getShortBookingsByPhaseNot(BookingPhase.PAST, fromId, toId)) {
+                schedule(booking.getId(), booking.getStart(), booking.getEnd());
+            }
+        }
+
+        log.info("Фазы бронирований восстановлены, догнано {}, таймеров {}", caughtUp, wheel.size());
+    }
+
+    void advance(LocalDateTime now) {
+        List<Long> bookingIds = wheel.advance(toMillis(now));
+
+        for (int from = 0; from < bookingIds.size(); from += UPDATE_CHUNK) {
+            List<Long> chunk = bookingIds.subList(from, Math.min(from + UPDATE_CHUNK, bookingIds.size()));
+
+            try {
+                transactionTemplate.executeWithoutResult(status -> shift(chunk, now));
+            } catch (RuntimeException e) {
+                log.warn("Не удалось обновить фазы бронирований {}, повтор на следующем тике", chunk, e);
+                chunk.forEach(id -> wheel.schedule(toMillis(now), id));
+            }
+        }
+    }
+
+    private void shift(List<Long> bookingIds, LocalDateTime now) {
+        List<BookingPhaseShift> toCurrent = bookingRepository.countPhaseShiftsToCurrent(bookingIds, now);
+        bookingRepository.updatePhaseToCurrent(bookingIds, now);
+        statsService.onPhaseShifts(toCurrent, BookingPhase.CURRENT);
+
+        List<BookingPhaseShift> toPast = bookingRepository.countPhaseShiftsToPast(bookingIds, now);
+        bookingRepository.updatePhaseToPast(bookingIds, now);
+        statsService.onPhaseShifts(toPast, BookingPhase.PAST);
+    }
+
+    private void tick() {
+        try {
+            advance(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("Ошибка тика планировщика фаз бронирований", e);
+        }
+    }
+
+    // уже наступившая граница срабатывает на ближайшем тике, повторное обновление фазы ничего не меняет
+    private void schedule(Long bookingId, LocalDateTime start, LocalDateTime end) {
+        wheel.schedule(toMillis(start), bookingId);
+        wheel.schedule(toMillis(end), bookingId);
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
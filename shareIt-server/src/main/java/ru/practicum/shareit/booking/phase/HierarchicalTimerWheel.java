@@ -0,0 +1,137 @@
+package ru.practicum.shareit.booking.phase;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Иерархическое колесо таймеров: LEVELS уровней по 64 слота, слот уровня l покрывает 64^l тиков.
+ * Таймер кладется на самый нижний уровень, в диапазон которого попадает, и при обороте нижнего колеса
+ * спускается ниже. Постановка - O(1), продвижение на тик - O(1) плюс сработавшие и спущенные таймеры.
+ * Таймер никогда не срабатывает раньше своего срока: срок округляется вверх до тика.
+ */
+class HierarchicalTimerWheel<T> {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 6;
+
+    private final long tickMillis;
+    private final List<List<Deque<Timer<T>>>> levels = new ArrayList<>();
+    private final List<T> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    HierarchicalTimerWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+
+        for (int level = 0; level < LEVELS; level++) {
+            List<Deque<Timer<T>>> slots = new ArrayList<>(SLOTS);
+            for (int slot = 0; slot < SLOTS; slot++) {
+                slots.add(new ArrayDeque<>());
+            }
+            levels.add(slots);
+        }
+    }
+
+    synchronized void schedule(long deadlineMillis, T payload) {
+        size++;
+        place(new Timer<>(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), payload));
+    }
+
+    /**
+     * Продвигает колесо до момента nowMillis и возвращает сработавшие за это время таймеры, по возрастанию тиков.
+     */
+    synchronized List<T> advance(long nowMillis) {
+        List<T> expired = new ArrayList<>(due);
+        due.clear();
+
+        long targetTick = nowMillis / tickMillis;
+
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+            expired.addAll(due);
+            due.clear();
+
+            Deque<Timer<T>> slot = levels.get(0).get((int) (currentTick & SLOT_MASK));
+            while (!slot.isEmpty()) {
+                expired.add(slot.poll().payload);
+            }
+        }
+
+        size -= expired.size();
+        return expired;
+    }
+
+    /**
+     * Снимает все таймеры с данными из payloads. Проходит все слоты, поэтому только для редких отмен.
+     */
+    synchronized void cancel(Set<T> payloads) {
+        int cancelled = 0;
+
+        for (List<Deque<Timer<T>>> slots : levels) {
+            for (Deque<Timer<T>> slot : slots) {
+                int before = slot.size();
+                slot.removeIf(timer -> payloads.contains(timer.payload));
+                cancelled += before - slot.size();
+            }
+        }
+
+        int before = due.size();
+        due.removeIf(payloads::contains);
+        size -= cancelled + before - due.size();
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void cascade() {
+        int wrapped = 0;
+
+        while (wrapped + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (wrapped + 1))) - 1)) == 0) {
+            wrapped++;
+        }
+
+        for (int level = wrapped; level > 0; level--) {
+            Deque<Timer<T>> slot = levels.get(level).get(slotIndex(currentTick, level));
+            List<Timer<T>> timers = new ArrayList<>(slot);
+            slot.clear();
+            timers.forEach(this::place);
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.expirationTick - currentTick;
+
+        if (delta <= 0) {
+            due.add(timer.payload);
+            return;
+        }
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+
+        levels.get(level).get(slotIndex(timer.expirationTick, level)).add(timer);
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static class Timer<T> {
+        private final long expirationTick;
+        private final T payload;
+
+        Timer(long expirationTick, T payload) {
+            this.expirationTick = expirationTick;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Slice;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingState;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface BookingQueryRepository {
+    List<BookingResponseDto> findBookerBookings(Long bookerId, BookingState state, long offset, int size);
+
+    List<BookingResponseDto> findOwnerBookings(Long ownerId, BookingState state, long offset, int size);
+
+    Slice<BookingResponseDto> findBookerBookingsAfter(Long bookerId, BookingState state, BookingCursor cursor,
+                                                      int size);
+
+    Slice<BookingResponseDto> findOwnerBookingsAfter(Long ownerId, BookingState state, BookingCursor cursor,
+                                                     int size);
+
+    /**
+     * Для каждой вещи - не больше двух APPROVED бронирований: последнее начавшееся до now (с учетом архива)
+     * и ближайшее начинающееся после now. Один запрос с ROW_NUMBER() по вещам страницы.
+     */
+    List<ShortBooking> findLastAndNextApprovedBookings(Collection<Long> itemIds, LocalDateTime now);
+
+    /**
+     * Все бронирования владельца вместе с архивными в порядке (start desc, id desc), читаются порциями.
+     * Поток нужно закрыть, вызывать внутри транзакции.
+     */
+    Stream<BookingResponseDto> streamOwnerBookings(Long ownerId);
+
+    /**
+     * Сообщает, что в архив переносятся бронирования, закончившиеся раньше endedBefore.
+     * Вызывается до фиксации переноса: до этого выборки по состояниям не обращаются к архиву.
+     */
+    void publishArchiveBoundary(LocalDateTime endedBefore);
+
+    /**
+     * Вставляет бронирования одним JDBC-пакетом и проставляет им сгенерированные id.
+     * Должен вызываться внутри транзакции.
+     */
+    void insertAll(List<Booking> bookings);
+}
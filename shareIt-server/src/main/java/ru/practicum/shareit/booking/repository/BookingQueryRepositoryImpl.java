@@ -0,0 +1,389 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.hibernate.Session;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.*;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Выборки бронирований пользователя по состоянию. Завершенные бронирования со временем переносятся
+ * в booking_archive; состояния, в которые попадает архив, сначала читаются только из booking,
+ * и объединение с архивом выполняется, лишь если страница доходит до самого нового архивного бронирования.
+ * Все архивные бронирования закончились раньше границы, которую публикует {@link #publishArchiveBoundary}
+ * перед переносом, поэтому полная страница, заканчивающаяся позже этой границы, отдается без обращения к архиву,
+ * а пока в архив ничего не перенесено, архив не проверяется вовсе. При запуске граница - archive-after-days
+ * дней назад, если архив не пуст.
+ */
+public class BookingQueryRepositoryImpl implements BookingQueryRepository {
+    private static final String INSERT_BOOKING =
+            "insert into booking (start_time, end_time, status, item_id, booker_id, phase, version) " +
+            "values (?, ?, ?, ?, ?, ?, 0)";
+    private static final String SELECT_BOOKINGS =
+            "select booking.id, booking.start_time, booking.end_time, booking.status, booking.booker_id, " +
+            "item.id as item_id, item.name as item_name " +
+            "from booking join items item on item.id = booking.item_id ";
+    private static final String SELECT_ARCHIVE =
+            "select archive.id, archive.start_time, archive.end_time, archive.status, archive.booker_id, " +
+            "item.id as item_id, item.name as item_name " +
+            "from booking_archive archive join items item on item.id = archive.item_id ";
+    // в каждой вещи нумеруются отдельно начавшиеся (по убыванию начала) и будущие (по возрастанию) бронирования
+    private static final String LAST_AND_NEXT_BOOKINGS =
+            "select id, booker_id, start_time, end_time, item_id from (" +
+            "select bookings.*, row_number() over (partition by item_id, is_next " +
+            "order by case when is_next = 1 then start_time end, start_time desc, id desc) as position " +
+            "from (" +
+            "select id, booker_id, start_time, end_time, item_id, " +
+            "case when start_time > :now then 1 else 0 end as is_next " +
+            "from booking " +
+            "where item_id in (:itemIds) and status = 'APPROVED' and start_time <> :now " +
+            "union all " +
+            "select id, booker_id, start_time, end_time, item_id, 0 " +
+            "from booking_archive " +
+            "where item_id in (:itemIds) and status = 'APPROVED'" +
+            ") bookings" +
+            ") ranked where position = 1";
+    private static final Set<BookingState> ARCHIVED_STATES =
+            EnumSet.of(BookingState.ALL, BookingState.PAST, BookingState.WAITING, BookingState.REJECTED);
+    private static final int EXPORT_FETCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final long archiveAfterDays;
+    // null - архив пуст
+    private volatile LocalDateTime archiveBoundary;
+
+    public BookingQueryRepositoryImpl(EntityManager entityManager,
+                                      @Value("${shareit.booking.archive-after-days:90}") long archiveAfterDays) {
+        this.entityManager = entityManager;
+        this.archiveAfterDays = archiveAfterDays;
+    }
+
+    @PostConstruct
+    void loadArchiveBoundary() {
+        boolean archived = !entityManager.createQuery("select archive.id from ArchivedBooking archive", Long.class)
+                .setMaxResults(1)
+                .getResultList()
+                .isEmpty();
+
+        archiveBoundary = archived ? LocalDateTime.now().minusDays(archiveAfterDays) : null;
+    }
+
+    @Override
+    public synchronized void publishArchiveBoundary(LocalDateTime endedBefore) {
+        if (archiveBoundary == null || archiveBoundary.isBefore(endedBefore)) {
+            archiveBoundary = endedBefore;
+        }
+    }
+
+    @Override
+    public List<BookingResponseDto> findBookerBookings(Long bookerId, BookingState state, long offset, int size) {
+        return findBookings(BookingRole.BOOKER, bookerId, state, null, offset, size);
+    }
+
+    @Override
+    public List<BookingResponseDto> findOwnerBookings(Long ownerId, BookingState state, long offset, int size) {
+        return findBookings(BookingRole.OWNER, ownerId, state, null, offset, size);
+    }
+
+    @Override
+    public Slice<BookingResponseDto> findBookerBookingsAfter(Long bookerId, BookingState state, BookingCursor cursor,
+                                                             int size) {
+        return toSlice(findBookings(BookingRole.BOOKER, bookerId, state, cursor, 0, size + 1), size);
+    }
+
+    @Override
+    public Slice<BookingResponseDto> findOwnerBookingsAfter(Long ownerId, BookingState state, BookingCursor cursor,
+                                                            int size) {
+        return toSlice(findBookings(BookingRole.OWNER, ownerId, state, cursor, 0, size + 1), size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<BookingResponseDto> streamOwnerBookings(Long ownerId) {
+        Stream<Object[]> rows = unionQuery(BookingRole.OWNER, ownerId, BookingState.ALL, null)
+                .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+                .getResultStream();
+
+        return rows.map(this::toResponseDto);
+    }
+
+    @Override
+    public List<ShortBooking> findLastAndNextApprovedBookings(Collection<Long> itemIds, LocalDateTime now) {
+        if (itemIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<?> rows = entityManager.createNativeQuery(LAST_AND_NEXT_BOOKINGS)
+                .setParameter("itemIds", itemIds)
+                .setParameter("now", now)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> toShortBooking((Object[]) row))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void insertAll(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return;
+        }
+
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOKING, new String[]{"id"})) {
+                LocalDateTime now = LocalDateTime.now();
+
+                for (Booking booking : bookings) {
+                    booking.setPhase(BookingPhase.at(booking.getStart(), booking.getEnd(), now));
+                    statement.setTimestamp(1, Timestamp.valueOf(booking.getStart()));
+                    statement.setTimestamp(2, Timestamp.valueOf(booking.getEnd()));
+                    statement.setString(3, booking.getStatus().name());
+                    statement.setLong(4, booking.getItem().getId());
+                    statement.setLong(5, booking.getBooker().getId());
+                    statement.setString(6, booking.getPhase().name());
+                    statement.addBatch();
+                }
+
+                statement.executeBatch();
+
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    for (Booking booking : bookings) {
+                        keys.next();
+                        booking.setId(keys.getLong(1));
+                        booking.setVersion(0L);
+                    }
+                }
+            }
+        });
+    }
+
+    private List<BookingResponseDto> findBookings(BookingRole role, Long userId, BookingState state,
+                                                  BookingCursor cursor, long offset, int limit) {
+        List<BookingResponseDto> bookings = buildQuery(role, userId, state, cursor)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+
+        LocalDateTime boundary = archiveBoundary;
+
+        if (!ARCHIVED_STATES.contains(state) || boundary == null || bookings.size() == limit
+                && !bookings.get(bookings.size() - 1).getStart().isBefore(boundary)) {
+            return bookings;
+        }
+
+        Optional<BookingCursor> newestArchived = findNewestArchived(role, userId, state, cursor);
+
+        if (newestArchived.isEmpty()
+                || bookings.size() == limit && precedes(bookings.get(bookings.size() - 1), newestArchived.get())) {
+            return bookings;
+        }
+
+        List<?> rows = unionQuery(role, userId, state, cursor)
+                .setFirstResult(Math.toIntExact(offset))
+                .setMaxResults(limit)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> toResponseDto((Object[]) row))
+                .collect(Collectors.toList());
+    }
+
+    private Slice<BookingResponseDto> toSlice(List<BookingResponseDto> bookings, int size) {
+        boolean hasNext = bookings.size() > size;
+
+        return new SliceImpl<>(hasNext ? bookings.subList(0, size) : bookings, PageRequest.ofSize(size), hasNext);
+    }
+
+    // порядок выдачи - (start desc, id desc)
+    private boolean precedes(BookingResponseDto booking, BookingCursor archived) {
+        int compare = booking.getStart().compareTo(archived.getStart());
+        return compare > 0 || compare == 0 && booking.getId() > archived.getId();
+    }
+
+    private Optional<BookingCursor> findNewestArchived(BookingRole role, Long userId, BookingState state,
+                                                       BookingCursor cursor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingCursor> query = cb.createQuery(BookingCursor.class);
+        Root<ArchivedBooking> archive = query.from(ArchivedBooking.class);
+        Path<LocalDateTime> start = archive.get("start");
+        Path<Long> id = archive.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (role == BookingRole.BOOKER) {
+            predicates.add(cb.equal(archive.get("booker").get("id"), userId));
+        } else {
+            predicates.add(cb.equal(archive.get("ownerId"), userId));
+        }
+
+        if (state == BookingState.WAITING || state == BookingState.REJECTED) {
+            predicates.add(cb.equal(archive.get("status"), BookingStatus.valueOf(state.name())));
+        }
+
+        if (cursor != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(start, cursor.getStart()),
+                    cb.and(cb.equal(start, cursor.getStart()), cb.lessThan(id, cursor.getId()))));
+        }
+
+        query.select(cb.construct(BookingCursor.class, start, id))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(start), cb.desc(id));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(1)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    private Query unionQuery(BookingRole role, Long userId, BookingState state, BookingCursor cursor) {
+        String sql = "select * from (" +
+                SELECT_BOOKINGS + "where " + nativeFilter(role, state, cursor, "booking") + " " +
+                "union all " +
+                SELECT_ARCHIVE + "where " + nativeFilter(role, state, cursor, "archive") +
+                ") bookings order by start_time desc, id desc";
+
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("userId", userId);
+
+        if (cursor != null) {
+            query.setParameter("cursorStart", cursor.getStart())
+                    .setParameter("cursorId", cursor.getId());
+        }
+
+        return query;
+    }
+
+    private String nativeFilter(BookingRole role, BookingState state, BookingCursor cursor, String alias) {
+        StringBuilder filter = new StringBuilder();
+
+        if (role == BookingRole.BOOKER) {
+            filter.append(alias).append(".booker_id = :userId");
+        } else if (alias.equals("archive")) {
+            filter.append("archive.owner_id = :userId");
+        } else {
+            filter.append("item.owner_id = :userId");
+        }
+
+        if (state == BookingState.PAST && alias.equals("booking")) {
+            filter.append(" and booking.phase = '").append(BookingPhase.PAST.name()).append("'");
+        } else if (state == BookingState.WAITING || state == BookingState.REJECTED) {
+            filter.append(" and ").append(alias).append(".status = '").append(state.name()).append("'");
+        }
+
+        if (cursor != null) {
+            filter.append(" and (").append(alias).append(".start_time < :cursorStart or (")
+                    .append(alias).append(".start_time = :cursorStart and ")
+                    .append(alias).append(".id < :cursorId))");
+        }
+
+        return filter.toString();
+    }
+
+    private ShortBooking toShortBooking(Object[] row) {
+        return new ShortBooking(((Number) row[0]).longValue(),
+                ((Number) row[1]).longValue(),
+                ((Timestamp) row[2]).toLocalDateTime(),
+                ((Timestamp) row[3]).toLocalDateTime(),
+                ((Number) row[4]).longValue());
+    }
+
+    private BookingResponseDto toResponseDto(Object[] row) {
+        return new BookingResponseDto(((Number) row[0]).longValue(),
+                ((Timestamp) row[1]).toLocalDateTime(),
+                ((Timestamp) row[2]).toLocalDateTime(),
+                BookingStatus.valueOf((String) row[3]),
+                ((Number) row[4]).longValue(),
+                ((Number) row[5]).longValue(),
+                (String) row[6]);
+    }
+
+    private TypedQuery<BookingResponseDto> buildQuery(BookingRole role, Long userId, BookingState state,
+                                                      BookingCursor cursor) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookingResponseDto> query = cb.createQuery(BookingResponseDto.class);
+        Root<Booking> booking = query.from(Booking.class);
+        Join<Booking, Item> item = booking.join("item");
+        Path<Long> bookerId = booking.get("booker").get("id");
+        Path<LocalDateTime> start = booking.get("start");
+        Path<Long> id = booking.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+
+        if (role == BookingRole.BOOKER) {
+            predicates.add(cb.equal(bookerId, userId));
+        } else {
+            predicates.add(cb.equal(item.get("ownerId"), userId));
+        }
+
+        predicates.add(statePredicate(cb, booking, state));
+
+        if (cursor != null) {
+            predicates.add(cb.or(
+                    cb.lessThan(start, cursor.getStart()),
+                    cb.and(cb.equal(start, cursor.getStart()), cb.lessThan(id, cursor.getId()))));
+        }
+
+        query.select(cb.construct(BookingResponseDto.class,
+                        id, start, booking.get("end"), booking.get("status"),
+                        bookerId, item.get("id"), item.get("name")))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(start), cb.desc(id));
+
+        return entityManager.createQuery(query);
+    }
+
+    private Predicate statePredicate(CriteriaBuilder cb, Root<Booking> booking, BookingState state) {
+        switch (state) {
+            case ALL:
+                return cb.conjunction();
+            case CURRENT:
+                return cb.equal(booking.get("phase"), BookingPhase.CURRENT);
+            case PAST://завершенные
+                return cb.equal(booking.get("phase"), BookingPhase.PAST);
+            case FUTURE://будущие
+                return cb.equal(booking.get("phase"), BookingPhase.FUTURE);
+            case WAITING://ожидающие подтверждения
+                return cb.equal(booking.get("status"), BookingStatus.WAITING);
+            case REJECTED://отклоненные
+                return cb.equal(booking.get("status"), BookingStatus.REJECTED);
+            default:
+                throw new BadRequestException("error", "Unknown state: UNSUPPORTED_STATUS");
+        }
+    }
+
+    private enum BookingRole {
+        BOOKER,
+        OWNER
+    }
+}
@@ -0,0 +1,72 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.ArchivedBooking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.OwnerBookingStats;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface JpaBookingArchiveRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    @Modifying
+    @Query(value = "insert into booking_archive (id, start_time, end_time, status, item_id, booker_id, owner_id) " +
+            "select booking.id, booking.start_time, booking.end_time, booking.status, booking.item_id, " +
+            "booking.booker_id, items.owner_id " +
+            "from booking join items on items.id = booking.item_id " +
+            "where booking.id in ?1",
+            nativeQuery = true)
+    int copyFromBooking(Collection<Long> bookingIds);
+
+    @Query("select new ru.practicum.shareit.booking.dto.BookingResponseDto(" +
+            "archive.id, archive.start, archive.end, archive.status, booker.id, item.id, item.name) " +
+            "from ArchivedBooking archive " +
+            "join archive.item item " +
+            "join archive.booker booker " +
+            "where archive.id = ?1 and (booker.id = ?2 or archive.ownerId = ?2)")
+    Optional<BookingResponseDto> findVisibleBooking(Long bookingId, Long userId);
+
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "archive.id, archive.booker.id, archive.start, archive.end, archive.item.id) " +
+            "from ArchivedBooking archive " +
+            "where archive.item.id in ?1 and archive.status = 'APPROVED' and archive.start = (" +
+            "select max(latest.start) from ArchivedBooking latest " +
+            "where latest.item.id = archive.item.id and latest.status = 'APPROVED')")
+    List<ShortBooking> getLastApprovedBookings(Collection<Long> itemIds);
+
+    @Query("select new ru.practicum.shareit.booking.model.OwnerBookingStats(archive.ownerId, count(archive), " +
+            "sum(case when archive.status = 'WAITING' then 1L else 0L end), " +
+            "sum(case when archive.status = 'REJECTED' then 1L else 0L end), " +
+            "0L, 0L, count(archive)) " +
+            "from ArchivedBooking archive " +
+            "where archive.ownerId in ?1 " +
+            "group by archive.ownerId")
+    List<OwnerBookingStats> countOwnerBookings(Collection<Long> ownerIds);
+
+    @Query("select new ru.practicum.shareit.booking.model.OwnerBookingStats(archive.ownerId, count(archive), " +
+            "sum(case when archive.status = 'WAITING' then 1L else 0L end), " +
+            "sum(case when archive.status = 'REJECTED' then 1L else 0L end), " +
+            "0L, 0L, count(archive)) " +
+            "from ArchivedBooking archive " +
+            "where archive.booker.id = ?1 and archive.ownerId <> ?1 " +
+            "group by archive.ownerId")
+    List<OwnerBookingStats> countBookerBookingsByOwner(Long bookerId);
+
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "archive.id, archive.booker.id, archive.start, archive.end, archive.item.id) " +
+            "from ArchivedBooking archive " +
+            "where archive.booker.id = ?1")
+    List<ShortBooking> getShortBookingsByBookerId(Long bookerId);
+
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "archive.id, archive.booker.id, archive.start, archive.end, archive.item.id) " +
+            "from ArchivedBooking archive " +
+            "where archive.item.id = ?1 and archive.status = ?2")
+    List<ShortBooking> getShortBookingsByItemId(Long itemId, BookingStatus status);
+}
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.model.BookingOutboxEvent;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface JpaBookingOutboxRepository extends JpaRepository<BookingOutboxEvent, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select event from BookingOutboxEvent event where event.id > ?1 order by event.id")
+    List<BookingOutboxEvent> lockAfter(Long afterId, Pageable pageable);
+
+    @Modifying
+    @Query("delete from BookingOutboxEvent event where event.id in ?1")
+    int deleteDispatched(Collection<Long> eventIds);
+
+    @Query("select min(event.created) from BookingOutboxEvent event")
+    Optional<LocalDateTime> findOldestCreated();
+}
@@ -1,42 +1,30 @@
 package ru.practicum.shareit.booking.repository;
 
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.dto.BookingPhaseShift;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.dto.ShortBooking;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.OwnerBookingStats;
 
+import javax.persistence.LockModeType;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface JpaBookingRepository extends JpaRepository<Booking, Long> {
-
-    Page<Booking> getBookingByBooker_Id(Long bookerId, Pageable pageable);
-
-    Page<Booking> getBookingByBooker_IdAndStartBeforeAndEndAfter(Long bookerId, LocalDateTime timeForStart,
-                                                                 LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByBooker_IdAndEndBefore(Long bookerId, LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByBooker_IdAndStartAfterAndEndAfter(Long bookerId, LocalDateTime timeForStart,
-                                                                LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByBooker_IdAndStatus(Long bookerId, BookingStatus status, Pageable pageable);
-
-    Page<Booking> getBookingByItem_OwnerId(Long ownerId, Pageable pageable);
-
-    Page<Booking> getBookingByItem_OwnerIdAndStartBeforeAndEndAfter(Long ownerId, LocalDateTime timeForStart,
-                                                                    LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByItem_OwnerIdAndEndBefore(Long ownerId, LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByItem_OwnerIdAndStartAfterAndEndAfter(Long ownerId, LocalDateTime timeForStart,
-                                                                   LocalDateTime timeForEnd, Pageable pageable);
-
-    Page<Booking> getBookingByItem_OwnerIdAndStatus(Long ownerId, BookingStatus status, Pageable pageable);
+/**
+ * На PostgreSQL booking секционирована по месяцам start_time. Запросы, ограниченные только по end,
+ * повторяют ту же границу для start (start всегда раньше end), чтобы секции отсекались при планировании.
+ */
+public interface JpaBookingRepository extends JpaRepository<Booking, Long>, BookingQueryRepository {
 
     @Query("select new ru.practicum.shareit.booking.dto.ShortBooking( " +
             "booking.id, booker.id, booking.start, booking.end, item.ownerId) " +
@@ -51,13 +39,167 @@ public interface JpaBookingRepository extends JpaRepository<Booking, Long> {
             "from Booking booking " +
             "join booking.item item " +
             "join booking.booker booker " +
-            "where item.ownerId = ?1 and booking.status = ?2")
-    List<ShortBooking> getShortBookingsByItemsOwnerId(Long ownerId, BookingStatus bookingStatus);
+            "where booking.status in ?1")
+    List<ShortBooking> getShortBookingsByStatusIn(Collection<BookingStatus> bookingStatuses);
+
+    /**
+     * Учитывает и архив: комментировать можно и давно завершенную аренду.
+     * Каждый EXISTS останавливается на первой строке индекса (booker_id, item_id, status, end_time).
+     */
+    @Query(value = "select case when exists (" +
+            "select 1 from booking " +
+            "where booking.booker_id = ?1 and booking.item_id = ?2 and booking.status = 'APPROVED' " +
+            "and booking.start_time < ?3 and booking.end_time < ?3" +
+            ") or exists (" +
+            "select 1 from booking_archive archive " +
+            "where archive.booker_id = ?1 and archive.item_id = ?2 and archive.status = 'APPROVED' " +
+            "and archive.end_time < ?3" +
+            ") then true else false end",
+            nativeQuery = true)
+    boolean existsApprovedBookingEndedBefore(Long bookerId, Long itemId, LocalDateTime date);
+
+    @Query("select new ru.practicum.shareit.booking.dto.BookingResponseDto(" +
+            "booking.id, booking.start, booking.end, booking.status, booker.id, item.id, item.name) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "join booking.booker booker " +
+            "where booking.id = ?1 and (booker.id = ?2 or item.ownerId = ?2)")
+    Optional<BookingResponseDto> findVisibleBooking(Long bookingId, Long userId);
+
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "booking.id, booking.booker.id, booking.start, booking.end, booking.item.id) " +
+            "from Booking booking " +
+            "where booking.item.id = ?1 and booking.status in ?2 and booking.start < ?4 and booking.end > ?3")
+    List<ShortBooking> getShortBookingsInRange(Long itemId, Collection<BookingStatus> bookingStatuses,
+                                               LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Id вещей из itemIds, у которых есть бронирование в статусе status, пересекающее [from, to).
+     */
+    @Query("select distinct booking.item.id from Booking booking " +
+            "where booking.item.id in ?1 and booking.status = ?2 and booking.start < ?4 and booking.end > ?3")
+    List<Long> findBookedItemIds(Collection<Long> itemIds, BookingStatus bookingStatus,
+                                 LocalDateTime from, LocalDateTime to);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new ru.practicum.shareit.booking.dto.BookingResponseDto(" +
+            "booking.id, booking.start, booking.end, booking.status, booker.id, item.id, item.name) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "join booking.booker booker " +
+            "where booking.id in ?1 and item.ownerId = ?2")
+    List<BookingResponseDto> lockOwnerBookings(Collection<Long> bookingIds, Long ownerId);
+
+    @Modifying
+    @Query("update versioned Booking booking set booking.status = ?1 " +
+            "where booking.id in ?2 and booking.status = 'WAITING' " +
+            "and booking.item.id in (select item.id from Item item where item.ownerId = ?3)")
+    int updateWaitingStatus(BookingStatus bookingStatus, Collection<Long> bookingIds, Long ownerId);
 
-    @Query("select count(booking.id) from Booking booking " +
+    @Query("select max(booking.id) from Booking booking")
+    Optional<Long> findMaxId();
+
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "booking.id, booker.id, booking.start, booking.end, item.id) " +
+            "from Booking booking " +
             "join booking.item item " +
             "join booking.booker booker " +
-            "where booker.id = ?1 and item.id = ?2 and booking.end < ?3 and booking.status = 'APPROVED' " +
-            "group by booking.id")
-    Optional<Integer> countApprovedBookingsForUserAndItemAnEarlyEndDate(Long authorId, Long itemId, LocalDateTime date);
-}
\ No newline at end of file
+            "where booking.id >= ?2 and booking.id < ?3 and booking.phase <> ?1")
+    List<ShortBooking> getShortBookingsByPhaseNot(BookingPhase bookingPhase, Long fromId, Long toId);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking booking set booking.phase = 'PAST' " +
+            "where booking.id >= ?1 and booking.id < ?2 " +
+            "and booking.start < ?3 and booking.end <= ?3 and booking.phase <> 'PAST'")
+    int updatePhaseToPast(Long fromId, Long toId, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking booking set booking.phase = 'CURRENT' " +
+            "where booking.id >= ?1 and booking.id < ?2 " +
+            "and booking.start <= ?3 and booking.end > ?3 and booking.phase <> 'CURRENT'")
+    int updatePhaseToCurrent(Long fromId, Long toId, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking booking set booking.phase = 'FUTURE' " +
+            "where booking.id >= ?1 and booking.id < ?2 " +
+            "and booking.start > ?3 and booking.phase <> 'FUTURE'")
+    int updatePhaseToFuture(Long fromId, Long toId, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking booking set booking.phase = 'PAST' " +
+            "where booking.id in ?1 and booking.start < ?2 and booking.end <= ?2 and booking.phase <> 'PAST'")
+    int updatePhaseToPast(Collection<Long> bookingIds, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("update Booking booking set booking.phase = 'CURRENT' " +
+            "where booking.id in ?1 and booking.start <= ?2 and booking.end > ?2 and booking.phase <> 'CURRENT'")
+    int updatePhaseToCurrent(Collection<Long> bookingIds, LocalDateTime now);
+
+    @Query("select new ru.practicum.shareit.booking.dto.BookingPhaseShift(item.ownerId, booking.phase, count(booking)) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "where booking.id in ?1 and booking.start < ?2 and booking.end <= ?2 and booking.phase <> 'PAST' " +
+            "group by item.ownerId, booking.phase")
+    List<BookingPhaseShift> countPhaseShiftsToPast(Collection<Long> bookingIds, LocalDateTime now);
+
+    @Query("select new ru.practicum.shareit.booking.dto.BookingPhaseShift(item.ownerId, booking.phase, count(booking)) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "where booking.id in ?1 and booking.start <= ?2 and booking.end > ?2 and booking.phase <> 'CURRENT' " +
+            "group by item.ownerId, booking.phase")
+    List<BookingPhaseShift> countPhaseShiftsToCurrent(Collection<Long> bookingIds, LocalDateTime now);
+
+    @Query("select new ru.practicum.shareit.booking.model.OwnerBookingStats(item.ownerId, count(booking), " +
+            "sum(case when booking.status = 'WAITING' then 1L else 0L end), " +
+            "sum(case when booking.status = 'REJECTED' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'CURRENT' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'FUTURE' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'PAST' then 1L else 0L end)) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "where item.ownerId in ?1 " +
+            "group by item.ownerId")
+    List<OwnerBookingStats> countOwnerBookings(Collection<Long> ownerIds);
+
+    /**
+     * Счетчики бронирований пользователя bookerId по владельцам забронированных им чужих вещей.
+     */
+    @Query("select new ru.practicum.shareit.booking.model.OwnerBookingStats(item.ownerId, count(booking), " +
+            "sum(case when booking.status = 'WAITING' then 1L else 0L end), " +
+            "sum(case when booking.status = 'REJECTED' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'CURRENT' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'FUTURE' then 1L else 0L end), " +
+            "sum(case when booking.phase = 'PAST' then 1L else 0L end)) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "where booking.booker.id = ?1 and item.ownerId <> ?1 " +
+            "group by item.ownerId")
+    List<OwnerBookingStats> countBookerBookingsByOwner(Long bookerId);
+
+    /**
+     * Бронирования пользователя и бронирования его вещей.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "booking.id, booking.booker.id, booking.start, booking.end, item.id) " +
+            "from Booking booking " +
+            "join booking.item item " +
+            "where booking.booker.id = ?1 or item.ownerId = ?1")
+    List<ShortBooking> lockUserBookings(Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new ru.practicum.shareit.booking.dto.ShortBooking(" +
+            "booking.id, booking.booker.id, booking.start, booking.end, booking.item.id) " +
+            "from Booking booking " +
+            "where booking.start < ?1 and booking.end < ?1")
+    List<ShortBooking> lockEndedBefore(LocalDateTime cutoff, Pageable pageable);
+
+    @Modifying
+    @Query("delete from Booking booking where booking.id in ?1")
+    int deleteArchived(Collection<Long> bookingIds);
+}
@@ -0,0 +1,40 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.OwnerBookingStats;
+
+import javax.persistence.LockModeType;
+import java.util.Collection;
+import java.util.List;
+
+public interface JpaOwnerBookingStatsRepository extends JpaRepository<OwnerBookingStats, Long> {
+
+    @Modifying
+    @Query("update OwnerBookingStats stats set " +
+            "stats.allCount = stats.allCount + ?2, " +
+            "stats.waitingCount = stats.waitingCount + ?3, " +
+            "stats.rejectedCount = stats.rejectedCount + ?4, " +
+            "stats.currentCount = stats.currentCount + ?5, " +
+            "stats.futureCount = stats.futureCount + ?6, " +
+            "stats.pastCount = stats.pastCount + ?7 " +
+            "where stats.ownerId = ?1")
+    int addCounts(Long ownerId, long all, long waiting, long rejected, long current, long future, long past);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    List<OwnerBookingStats> findByOwnerIdIn(Collection<Long> ownerIds);
+
+    @Query("select stats.ownerId from OwnerBookingStats stats order by stats.ownerId")
+    List<Long> findAllOwnerIds();
+
+    @Transactional
+    @Modifying
+    @Query(value = "insert into owner_booking_stats (owner_id) " +
+            "select users.id from users " +
+            "where not exists (select 1 from owner_booking_stats stats where stats.owner_id = users.id)",
+            nativeQuery = true)
+    int insertMissingOwners();
+}
@@ -1,19 +1,38 @@
 package ru.practicum.shareit.booking.service;
 
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
 import ru.practicum.shareit.booking.model.BookingState;
 
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
     BookingResponseDto create(Long tenantId, BookingRequestDto bookingRequestDto);
 
+    List<BookingBatchResultDto> createBatch(Long bookerId, List<BookingRequestDto> bookingRequestDtos);
+
     BookingResponseDto updateApprove(Long itemOwnerId, Long bookingId, Boolean approved);
 
+    BookingDecisionResultDto updateApproveAll(Long itemOwnerId, List<Long> bookingIds, Boolean approved);
+
+    Map<BookingState, Long> getOwnerStats(Long ownerId);
+
+    StreamingResponseBody exportOwnerBookings(Long ownerId);
+
     BookingResponseDto getBookingById(Long userId, Long bookingId);
 
     List<BookingResponseDto> getBookingsByBookerId(Long bookerId, BookingState state, Long from, Long size);
 
     List<BookingResponseDto> getBookingsByOwnerId(Long ownerId, BookingState state, Long from, Long size);
+
+    BookingSliceResponseDto getBookingsByBookerIdAfterCursor(Long bookerId, BookingState state, String cursor,
+                                                             Long size);
+
+    BookingSliceResponseDto getBookingsByOwnerIdAfterCursor(Long ownerId, BookingState state, String cursor,
+                                                            Long size);
 }
\ No newline at end of file
@@ -1,37 +1,80 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingChange;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingDtoMapper;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.export.OwnerBookingExporter;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingEventType;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.BookingOccupancyIndex;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.outbox.BookingOutbox;
+import ru.practicum.shareit.booking.phase.BookingPhaseScheduler;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
 import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+import ru.practicum.shareit.exception.AvailabilityException;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDeletedEvent;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+@Slf4j
 @Service
 @AllArgsConstructor
 public class BookingServiceImpl implements BookingService {
+    private static final int DECISION_ATTEMPTS = 3;
+    private static final long DECISION_BACKOFF_MILLIS = 10;
+
     private final JpaBookingRepository bookingRepository;
     private final ItemService itemService;
     private final UserService userService;
+    private final BookingOccupancyIndex occupancyIndex;
+    private final BookingPhaseScheduler phaseScheduler;
+    private final OwnerBookingStatsService statsService;
+    private final OwnerBookingExporter bookingExporter;
+    private final TransactionTemplate transactionTemplate;
+    private final ItemBookingVersions itemBookingVersions;
+    private final JpaBookingArchiveRepository archiveRepository;
+    private final BookingOutbox bookingOutbox;
 
     @Override
+    @Transactional
     public BookingResponseDto create(Long bookerId, BookingRequestDto bookingRequestDto) {
         User userById = userService.getUserById(bookerId);
         Item itemById = itemService.getItemById(bookingRequestDto.getItemId());
@@ -46,45 +89,253 @@ public class BookingServiceImpl implements BookingService {
             throw new BadRequestException("booking create", "item недоступен");
         }
 
-        return BookingDtoMapper.mapperToBookingResponseDto(bookingRepository.save(booking));
+        Booking saved = occupancyIndex.occupy(booking, () -> bookingRepository.save(booking));
+        statsService.onCreated(List.of(saved));
+        bookingOutbox.append(saved, BookingEventType.CREATED);
+        itemBookingVersions.changed(saved.getItem().getId(), change(saved));
+        phaseScheduler.schedule(saved);
+
+        return BookingDtoMapper.mapperToBookingResponseDto(saved);
+    }
+
+    @Override
+    @Transactional
+    public List<BookingBatchResultDto> createBatch(Long bookerId, List<BookingRequestDto> bookingRequestDtos) {
+        User booker = userService.getUserById(bookerId);
+        Map<Long, Item> items = itemService.getItemsByIds(bookingRequestDtos.stream()
+                        .map(BookingRequestDto::getItemId)
+                        .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
+
+        BookingBatchResultDto[] results = new BookingBatchResultDto[bookingRequestDtos.size()];
+        List<Booking> bookings = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+
+        for (int i = 0; i < bookingRequestDtos.size(); i++) {
+            BookingRequestDto bookingRequestDto = bookingRequestDtos.get(i);
+            Item item = items.get(bookingRequestDto.getItemId());
+
+            if (item == null) {
+                results[i] = BookingBatchResultDto.failed(HttpStatus.NOT_FOUND,
+                        String.format("Вещь с id %s не найдена", bookingRequestDto.getItemId()));
+            } else if (Objects.equals(bookerId, item.getOwnerId())) {
+                results[i] = BookingBatchResultDto.failed(HttpStatus.NOT_FOUND, "нельзя арендовать у себя");
+            } else if (!item.getAvailable()) {
+                results[i] = BookingBatchResultDto.failed(HttpStatus.BAD_REQUEST, "item недоступен");
+            } else {
+                bookings.add(BookingDtoMapper.mapperToBooking(bookingRequestDto, booker, item));
+                positions.add(i);
+            }
+        }
+
+        List<Long> conflicts = occupancyIndex.occupyAll(bookings, bookingRepository::insertAll);
+        List<Booking> created = new ArrayList<>();
+
+        for (int i = 0; i < bookings.size(); i++) {
+            if (conflicts.get(i) == null) {
+                created.add(bookings.get(i));
+                itemBookingVersions.changed(bookings.get(i).getItem().getId(), change(bookings.get(i)));
+                phaseScheduler.schedule(bookings.get(i));
+            }
+
+            results[positions.get(i)] = conflicts.get(i) == null
+                    ? BookingBatchResultDto.created(BookingDtoMapper.mapperToBookingResponseDto(bookings.get(i)))
+                    : BookingBatchResultDto.failed(HttpStatus.CONFLICT,
+                    BookingOccupancyIndex.conflictMessage(conflicts.get(i)));
+        }
+
+        statsService.onCreated(created);
+        bookingOutbox.appendAll(created, BookingEventType.CREATED);
+
+        return Arrays.asList(results);
     }
 
+    /**
+     * Решение применяется с оптимистической блокировкой по версии бронирования. При конфликте версий
+     * бронирование перечитывается: если его статус изменило параллельное решение - 409, иначе
+     * (сбой блокировки без смены статуса) попытка повторяется с растущей паузой, не более DECISION_ATTEMPTS раз.
+     */
     @Override
     public BookingResponseDto updateApprove(Long itemOwnerId, Long bookingId, Boolean approved) {
+        AtomicReference<BookingStatus> observedStatus = new AtomicReference<>();
+
+        return withDecisionRetries("бронированию " + bookingId,
+                () -> decide(itemOwnerId, bookingId, approved, observedStatus));
+    }
+
+    private <T> T withDecisionRetries(String target, Supplier<T> decision) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> decision.get());
+            } catch (ConcurrencyFailureException e) {
+                if (attempt == DECISION_ATTEMPTS) {
+                    throw new AvailabilityException("не удалось применить решение по " + target
+                            + " из-за параллельных изменений");
+                }
+
+                log.debug("Конфликт при решении по {}, попытка {}", target, attempt, e);
+                pause(attempt);
+            }
+        }
+    }
+
+    private BookingResponseDto decide(Long itemOwnerId, Long bookingId, Boolean approved,
+                                      AtomicReference<BookingStatus> observedStatus) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new BadRequestException("updateApprove", "не найден booking"));
 
-        if (booking.getStatus() == BookingStatus.APPROVED) {
+        BookingStatus previousStatus = booking.getStatus();
+
+        if (!observedStatus.compareAndSet(null, previousStatus) && observedStatus.get() != previousStatus) {
+            throw new AvailabilityException("решение по бронированию " + bookingId + " уже принято другим запросом");
+        }
+
+        if (previousStatus == BookingStatus.APPROVED) {
             throw new BadRequestException("updateApprove", "изменение статуса после согласования");
         }
 
-        if (Objects.equals(itemOwnerId, booking.getItem().getOwnerId())) {
-            if (approved) {
-                booking.setStatus(BookingStatus.APPROVED);
-            } else {
-                booking.setStatus(BookingStatus.REJECTED);
-            }
+        if (!Objects.equals(itemOwnerId, booking.getItem().getOwnerId())) {
+            throw new ObjectNotFoundException("несоответствие пользователя и владельца");
+        }
+
+        boolean wasRejected = previousStatus == BookingStatus.REJECTED;
+
+        if (approved) {
+            booking.setStatus(BookingStatus.APPROVED);
         } else {
+            booking.setStatus(BookingStatus.REJECTED);
+        }
+
+        // строка бронирования блокируется раньше строки счетчиков, как в updateApproveAll,
+        // иначе встречные одиночное и пакетное решения взаимно блокируют друг друга
+        Booking saved = approved && wasRejected
+                ? occupancyIndex.occupy(booking, () -> bookingRepository.saveAndFlush(booking))
+                : bookingRepository.saveAndFlush(booking);
+
+        statsService.onStatusChanged(itemOwnerId, previousStatus, saved.getStatus(), 1);
+        bookingOutbox.append(saved, approved ? BookingEventType.APPROVED : BookingEventType.REJECTED);
+        itemBookingVersions.changed(saved.getItem().getId(), change(saved));
+
+        if (!approved && !wasRejected) {
+            occupancyIndex.release(saved);
+        }
+
+        return BookingDtoMapper.mapperToBookingResponseDto(saved);
+    }
+
+    private void pause(int attempt) {
+        try {
+            Thread.sleep(DECISION_BACKOFF_MILLIS * (1L << attempt)
+                    + ThreadLocalRandom.current().nextLong(DECISION_BACKOFF_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AvailabilityException("решение по бронированию прервано");
+        }
+    }
+
+    /**
+     * Пакет решается в одной транзакции. Сбой блокировки при встречных решениях повторяет пакет целиком
+     * так же, как одиночное решение; уже решенные к повтору бронирования попадают в пропущенные.
+     */
+    @Override
+    public BookingDecisionResultDto updateApproveAll(Long itemOwnerId, List<Long> bookingIds, Boolean approved) {
+        return withDecisionRetries("бронированиям " + bookingIds,
+                () -> decideAll(itemOwnerId, bookingIds, approved));
+    }
+
+    private BookingDecisionResultDto decideAll(Long itemOwnerId, List<Long> bookingIds, Boolean approved) {
+        Set<Long> requestedIds = Set.copyOf(bookingIds);
+        List<BookingResponseDto> bookings = bookingRepository.lockOwnerBookings(requestedIds, itemOwnerId);
+
+        if (bookings.size() != requestedIds.size()) {
             throw new ObjectNotFoundException("несоответствие пользователя и владельца");
         }
 
-        return BookingDtoMapper.mapperToBookingResponseDto(bookingRepository.save(booking));
+        Map<Boolean, List<BookingResponseDto>> byWaiting = bookings.stream()
+                .collect(Collectors.partitioningBy(booking -> booking.getStatus() == BookingStatus.WAITING));
+        List<BookingResponseDto> waiting = byWaiting.get(true);
+
+        if (!waiting.isEmpty()) {
+            BookingStatus status = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+            int updated = bookingRepository.updateWaitingStatus(status, ids(waiting), itemOwnerId);
+
+            // блокировка проекции не везде становится FOR UPDATE: если часть бронирований успело решить
+            // параллельное решение, пакет откатывается целиком, а не считается по прочитанным статусам
+            if (updated != waiting.size()) {
+                throw new AvailabilityException("решения по части бронирований уже приняты другим запросом");
+            }
+
+            statsService.onStatusChanged(itemOwnerId, BookingStatus.WAITING, status, waiting.size());
+            bookingOutbox.appendDecisions(waiting, approved ? BookingEventType.APPROVED : BookingEventType.REJECTED);
+            waiting.forEach(booking -> itemBookingVersions.changed(booking.getItem().getId(),
+                    new BookingChange(booking.getId(), booking.getStart(), booking.getEnd(), status)));
+
+            if (!approved) {
+                waiting.forEach(booking -> occupancyIndex.release(booking.getItem().getId(), booking.getId()));
+            }
+        }
+
+        return new BookingDecisionResultDto(ids(waiting), ids(byWaiting.get(false)));
+    }
+
+    /**
+     * Бронирования удаляемого пользователя и бронирования его вещей удаляются каскадом в базе.
+     * Они блокируются раньше строк счетчиков, как и при решениях по бронированиям, а из индекса занятости,
+     * колеса фаз и версий вещей уходят после фиксации удаления.
+     */
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        Long userId = event.getUserId();
+        List<ShortBooking> bookings = bookingRepository.lockUserBookings(userId);
+
+        statsService.onBookerDeleted(userId);
+        bookings.forEach(booking -> occupancyIndex.release(booking.getItemId(), booking.getId()));
+        phaseScheduler.cancel(bookings.stream()
+                .map(ShortBooking::getId)
+                .collect(Collectors.toList()));
+
+        Map<Long, List<BookingChange>> removed = new HashMap<>();
+        Stream.concat(bookings.stream(), archiveRepository.getShortBookingsByBookerId(userId).stream())
+                .forEach(booking -> removed.computeIfAbsent(booking.getItemId(), id -> new ArrayList<>())
+                        .add(BookingChange.removed(booking.getId())));
+        removed.forEach(itemBookingVersions::changed);
     }
 
     @Override
-    public BookingResponseDto getBookingById(Long userId, Long bookingId) {
-        if (!(userService.isPresent(userId) && bookingRepository.existsById(bookingId))) {
-            throw new ObjectNotFoundException("не найден user или booking");
+    public Map<BookingState, Long> getOwnerStats(Long ownerId) {
+        if (!userService.isPresent(ownerId)) {
+            throw new ObjectNotFoundException("не найден пользователь");
         }
 
-        Booking booking = bookingRepository.findById(bookingId).get();
+        return statsService.getCounts(ownerId);
+    }
 
-        if (Objects.equals(booking.getBooker().getId(), userId)
-                || Objects.equals(booking.getItem().getOwnerId(), userId)) {
-            return BookingDtoMapper.mapperToBookingResponseDto(booking);
-        } else {
-            throw new ObjectNotFoundException("несоответствие id владельца вещи или арендатора");
+    @Override
+    public StreamingResponseBody exportOwnerBookings(Long ownerId) {
+        if (!userService.isPresent(ownerId)) {
+            throw new ObjectNotFoundException("не найден пользователь");
         }
+
+        return outputStream -> bookingExporter.write(ownerId, outputStream);
+    }
+
+    /**
+     * Бронирование видно только арендатору и владельцу вещи, это проверяет сам запрос.
+     * Причину отказа выясняют дополнительные запросы только на пути ошибки.
+     */
+    @Override
+    public BookingResponseDto getBookingById(Long userId, Long bookingId) {
+        return bookingRepository.findVisibleBooking(bookingId, userId)
+                .or(() -> archiveRepository.findVisibleBooking(bookingId, userId))
+                .orElseThrow(() -> {
+                    if (!(userService.isPresent(userId) && (bookingRepository.existsById(bookingId)
+                            || archiveRepository.existsById(bookingId)))) {
+                        return new ObjectNotFoundException("не найден user или booking");
+                    }
+
+                    return new ObjectNotFoundException("несоответствие id владельца вещи или арендатора");
+                });
     }
 
     @Override
@@ -93,51 +344,8 @@ public class BookingServiceImpl implements BookingService {
             throw new ObjectNotFoundException("не найден пользователь");
         }
 
-        Pageable pageable = PageRequest.of(Math.toIntExact(from) / Math.toIntExact(size),
-                Math.toIntExact(size),
-                Sort.by(Sort.Direction.DESC, "start"));
-
-        List<Booking> bookings;
-        LocalDateTime now = LocalDateTime.now();
-
-        switch (state) {
-            case ALL:
-                bookings = bookingRepository
-                        .getBookingByBooker_Id(bookerId, pageable)
-                        .getContent();
-                break;
-            case CURRENT:
-                bookings = bookingRepository
-                        .getBookingByBooker_IdAndStartBeforeAndEndAfter(bookerId, now, now, pageable)
-                        .getContent();
-                break;
-            case PAST://завершенные
-                bookings = bookingRepository
-                        .getBookingByBooker_IdAndEndBefore(bookerId, now, pageable)
-                        .getContent();
-                break;
-            case FUTURE://будущие
-                bookings = bookingRepository
-                        .getBookingByBooker_IdAndStartAfterAndEndAfter(bookerId, now, now, pageable)
-                        .getContent();
-                break;
-            case WAITING://ожидающие подтверждения
-                bookings = bookingRepository
-                        .getBookingByBooker_IdAndStatus(bookerId, BookingStatus.WAITING, pageable)
-                        .getContent();
-                break;
-            case REJECTED://отклоненные
-                bookings = bookingRepository
-                        .getBookingByBooker_IdAndStatus(bookerId, BookingStatus.REJECTED, pageable)
-                        .getContent();
-                break;
-            default:
-                throw new BadRequestException("error", "Unknown state: UNSUPPORTED_STATUS");
-        }
-
-        return bookings.stream()
-                .map(BookingDtoMapper::mapperToBookingResponseDto)
-                .collect(Collectors.toList());
+        return bookingRepository.findBookerBookings(bookerId, state, pageOffset(from, size),
+                Math.toIntExact(size));
     }
 
     @Override
@@ -146,50 +354,54 @@ public class BookingServiceImpl implements BookingService {
             throw new ObjectNotFoundException("не найден пользователь");
         }
 
-        Pageable pageable = PageRequest.of(Math.toIntExact(from) / Math.toIntExact(size),
-                Math.toIntExact(size),
-                Sort.by(Sort.Direction.DESC, "start"));
-
-        List<Booking> bookings;
-        LocalDateTime now = LocalDateTime.now();
-
-        switch (state) {
-            case ALL:
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerId(ownerId, pageable)
-                        .getContent();
-                break;
-            case CURRENT:
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerIdAndStartBeforeAndEndAfter(ownerId, now, now, pageable)
-                        .getContent();
-                break;
-            case PAST://завершенные
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerIdAndEndBefore(ownerId, now, pageable)
-                        .getContent();
-                break;
-            case FUTURE://будущие
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerIdAndStartAfterAndEndAfter(ownerId, now, now, pageable)
-                        .getContent();
-                break;
-            case WAITING://ожидающие подтверждения
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerIdAndStatus(ownerId, BookingStatus.WAITING, pageable)
-                        .getContent();
-                break;
-            case REJECTED://отклоненные
-                bookings = bookingRepository
-                        .getBookingByItem_OwnerIdAndStatus(ownerId, BookingStatus.REJECTED, pageable)
-                        .getContent();
-                break;
-            default:
-                throw new BadRequestException("error", "Unknown state: UNSUPPORTED_STATUS");
+        return bookingRepository.findOwnerBookings(ownerId, state, pageOffset(from, size),
+                Math.toIntExact(size));
+    }
+
+    @Override
+    public BookingSliceResponseDto getBookingsByBookerIdAfterCursor(Long bookerId, BookingState state, String cursor,
+                                                                    Long size) {
+        if (!userService.isPresent(bookerId)) {
+            throw new ObjectNotFoundException("не найден пользователь");
         }
 
+        return toSliceResponseDto(bookingRepository.findBookerBookingsAfter(bookerId, state,
+                BookingCursor.decode(cursor), Math.toIntExact(size)));
+    }
+
+    @Override
+    public BookingSliceResponseDto getBookingsByOwnerIdAfterCursor(Long ownerId, BookingState state, String cursor,
+                                                                   Long size) {
+        if (!userService.isPresent(ownerId)) {
+            throw new ObjectNotFoundException("не найден пользователь");
+        }
+
+        return toSliceResponseDto(bookingRepository.findOwnerBookingsAfter(ownerId, state,
+                BookingCursor.decode(cursor), Math.toIntExact(size)));
+    }
+
+    private BookingChange change(Booking booking) {
+        return new BookingChange(booking.getId(), booking.getStart(), booking.getEnd(), booking.getStatus());
+    }
+
+    private List<Long> ids(List<BookingResponseDto> bookings) {
         return bookings.stream()
-                .map(BookingDtoMapper::mapperToBookingResponseDto)
+                .map(BookingResponseDto::getId)
+                .sorted()
                 .collect(Collectors.toList());
     }
-}
\ No newline at end of file
+
+    private long pageOffset(Long from, Long size) {
+        return from / size * size;
+    }
+
+    private BookingSliceResponseDto toSliceResponseDto(Slice<BookingResponseDto> slice) {
+        List<BookingResponseDto> bookings = slice.getContent();
+
+        String nextCursor = slice.hasNext()
+                ? BookingCursor.of(bookings.get(bookings.size() - 1)).encode()
+                : null;
+
+        return new BookingSliceResponseDto(bookings, nextCursor);
+    }
+}
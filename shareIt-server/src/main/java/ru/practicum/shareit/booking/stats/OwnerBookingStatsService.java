@@ -0,0 +1,241 @@
+package ru.practicum.shareit.booking.stats;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingPhaseShift;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.model.OwnerBookingStats;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.repository.JpaOwnerBookingStatsRepository;
+import ru.practicum.shareit.user.dto.UserCreatedEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Счетчики бронирований владельцев в таблице owner_booking_stats. Строка счетчиков создается вместе
+ * с пользователем, а изменения бронирований применяются к ней приращениями в той же транзакции,
+ * поэтому чтение статистики - одна строка, а параллельные транзакции только обновляют ее, не вставляя.
+ * Периодическая сверка пересчитывает счетчики по таблице booking и исправляет расхождения,
+ * например после удаления пользователей или догоняющего обновления фаз при старте.
+ * Перенесенные в booking_archive бронирования учитываются как завершенные.
+ */
+@Slf4j
+@Service
+public class OwnerBookingStatsService {
+    private static final int RECONCILE_CHUNK = 500;
+
+    private final JpaOwnerBookingStatsRepository statsRepository;
+    private final JpaBookingRepository bookingRepository;
+    private final JpaBookingArchiveRepository archiveRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public OwnerBookingStatsService(JpaOwnerBookingStatsRepository statsRepository,
+                                    JpaBookingRepository bookingRepository,
+                                    JpaBookingArchiveRepository archiveRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.statsRepository = statsRepository;
+        this.bookingRepository = bookingRepository;
+        this.archiveRepository = archiveRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Если строки владельца еще нет, счетчики считаются по таблице booking без записи.
+     */
+    public Map<BookingState, Long> getCounts(Long ownerId) {
+        return statsRepository.findById(ownerId)
+                .or(() -> Optional.ofNullable(countOwnerBookings(List.of(ownerId)).get(ownerId)))
+                .orElseGet(() -> OwnerBookingStats.empty(ownerId))
+                .toCounts();
+    }
+
+    /**
+     * Пустые счетчики нового пользователя: бронирований его вещей еще нет. Пользователь к этому моменту
+     * уже сохранен, поэтому сбой записи не роняет запрос: без строки getCounts считает по таблицам,
+     * а строку вставит сверка.
+     */
+    @EventListener
+    public void onUserCreated(UserCreatedEvent event) {
+        try {
+            statsRepository.save(OwnerBookingStats.empty(event.getUserId()));
+        } catch (DataAccessException e) {
+            log.warn("Не удалось создать счетчики бронирований пользователя {}, их создаст сверка",
+                    event.getUserId(), e);
+        }
+    }
+
+    public void onCreated(Collection<Booking> bookings) {
+        SortedMap<Long, long[]> deltas = new TreeMap<>();
+
+        for (Booking booking : bookings) {
+            long[] delta = deltas.computeIfAbsent(booking.getItem().getOwnerId(), id -> newDelta());
+            delta[BookingState.ALL.ordinal()]++;
+            add(delta, booking.getStatus(), 1);
+            delta[toState(booking.getPhase()).ordinal()]++;
+        }
+
+        deltas.forEach(this::apply);
+    }
+
+    public void onStatusChanged(Long ownerId, BookingStatus from, BookingStatus to, long count) {
+        if (from == to || count == 0) {
+            return;
+        }
+
+        long[] delta = newDelta();
+        add(delta, from, -count);
+        add(delta, to, count);
+        apply(ownerId, delta);
+    }
+
+    public void onPhaseShifts(Collection<BookingPhaseShift> shifts, BookingPhase to) {
+        SortedMap<Long, long[]> deltas = new TreeMap<>();
+
+        for (BookingPhaseShift shift : shifts) {
+            long[] delta = deltas.computeIfAbsent(shift.getOwnerId(), id -> newDelta());
+            delta[toState(shift.getPhase()).ordinal()] -= shift.getCount();
+            delta[toState(to).ordinal()] += shift.getCount();
+        }
+
+        deltas.forEach(this::apply);
+    }
+
+    /**
+     * Бронирования удаляемого пользователя уходят из базы каскадом вместе с ним, их вклад вычитается
+     * из счетчиков владельцев забронированных вещей. Строка счетчиков самого пользователя удаляется каскадом.
+     */
+    public void onBookerDeleted(Long bookerId) {
+        SortedMap<Long, OwnerBookingStats> counts = new TreeMap<>();
+
+        for (OwnerBookingStats stats : bookingRepository.countBookerBookingsByOwner(bookerId)) {
+            counts.merge(stats.getOwnerId(), stats, OwnerBookingStats::plus);
+        }
+
+        for (OwnerBookingStats archived : archiveRepository.countBookerBookingsByOwner(bookerId)) {
+            counts.merge(archived.getOwnerId(), archived, OwnerBookingStats::plus);
+        }
+
+        counts.forEach((ownerId, stats) -> apply(ownerId, negated(stats)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        reconcile();
+    }
+
+    /**
+     * Пересчитывает счетчики порциями владельцев. Строки порции блокируются до пересчета, поэтому
+     * приращения параллельных транзакций не теряются: они либо уже видны в пересчете, либо ждут блокировки.
+     */
+    @Scheduled(initialDelayString = "${shareit.booking.stats-reconcile-millis:3600000}",
+            fixedDelayString = "${shareit.booking.stats-reconcile-millis:3600000}")
+    public void reconcile() {
+        try {
+            statsRepository.insertMissingOwners();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Строки счетчиков новых пользователей созданы параллельно, будут сверены при следующем запуске");
+        }
+
+        List<Long> ownerIds = statsRepository.findAllOwnerIds();
+        int repaired = 0;
+
+        for (int from = 0; from < ownerIds.size(); from += RECONCILE_CHUNK) {
+            List<Long> chunk = ownerIds.subList(from, Math.min(from + RECONCILE_CHUNK, ownerIds.size()));
+            repaired += Objects.requireNonNull(transactionTemplate.execute(status -> reconcile(chunk)));
+        }
+
+        log.info("Счетчики бронирований сверены, владельцев {}, исправлено {}", ownerIds.size(), repaired);
+    }
+
+    private int reconcile(List<Long> ownerIds) {
+        List<OwnerBookingStats> stored = statsRepository.findByOwnerIdIn(ownerIds);
+        Map<Long, OwnerBookingStats> actual = countOwnerBookings(ownerIds);
+        int repaired = 0;
+
+        for (OwnerBookingStats stats : stored) {
+            OwnerBookingStats expected = actual.getOrDefault(stats.getOwnerId(),
+                    OwnerBookingStats.empty(stats.getOwnerId()));
+
+            if (!stats.equals(expected)) {
+                log.warn("Расхождение счетчиков бронирований: {}, ожидалось {}", stats, expected);
+                statsRepository.save(expected);
+                repaired++;
+            }
+        }
+
+        return repaired;
+    }
+
+    // строки нет только у пользователя, созданного до появления счетчиков: ее вставит и пересчитает сверка,
+    // а до тех пор getCounts считает по таблицам
+    private void apply(Long ownerId, long[] delta) {
+        int updated = statsRepository.addCounts(ownerId,
+                delta[BookingState.ALL.ordinal()],
+                delta[BookingState.WAITING.ordinal()],
+                delta[BookingState.REJECTED.ordinal()],
+                delta[BookingState.CURRENT.ordinal()],
+                delta[BookingState.FUTURE.ordinal()],
+                delta[BookingState.PAST.ordinal()]);
+
+        if (updated == 0) {
+            log.warn("Нет строки счетчиков бронирований владельца {}, она будет создана сверкой", ownerId);
+        }
+    }
+
+    private Map<Long, OwnerBookingStats> countOwnerBookings(Collection<Long> ownerIds) {
+        Map<Long, OwnerBookingStats> counts = bookingRepository.countOwnerBookings(ownerIds).stream()
+                .collect(Collectors.toMap(OwnerBookingStats::getOwnerId, Function.identity()));
+
+        for (OwnerBookingStats archived : archiveRepository.countOwnerBookings(ownerIds)) {
+            counts.merge(archived.getOwnerId(), archived, OwnerBookingStats::plus);
+        }
+
+        return counts;
+    }
+
+    private void add(long[] delta, BookingStatus status, long count) {
+        if (status == BookingStatus.WAITING) {
+            delta[BookingState.WAITING.ordinal()] += count;
+        } else if (status == BookingStatus.REJECTED) {
+            delta[BookingState.REJECTED.ordinal()] += count;
+        }
+    }
+
+    private long[] negated(OwnerBookingStats stats) {
+        long[] delta = newDelta();
+        delta[BookingState.ALL.ordinal()] = -stats.getAllCount();
+        delta[BookingState.WAITING.ordinal()] = -stats.getWaitingCount();
+        delta[BookingState.REJECTED.ordinal()] = -stats.getRejectedCount();
+        delta[BookingState.CURRENT.ordinal()] = -stats.getCurrentCount();
+        delta[BookingState.FUTURE.ordinal()] = -stats.getFutureCount();
+        delta[BookingState.PAST.ordinal()] = -stats.getPastCount();
+        return delta;
+    }
+
+    private long[] newDelta() {
+        return new long[BookingState.values().length];
+    }
+
+    private BookingState toState(BookingPhase phase) {
+        return BookingState.valueOf(phase.name());
+    }
+}
@@ -2,11 +2,17 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import ru.practicum.shareit.item.dto.*;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -57,17 +63,90 @@ public class ItemController {
         return itemOutList;
     }
 
+    /**
+     * ETag - версия бронирований вещи: пока она не изменилась, на If-None-Match отвечаем 304
+     * после одной проверки вещи по id, поэтому удаленная вещь дает 404, а не 304.
+     */
+    @GetMapping("/{itemId}/availability")
+    public ResponseEntity<ItemAvailabilityDto> getAvailability(
+            @PathVariable Long itemId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "false") boolean includeWaiting,
+            WebRequest webRequest) {
+        log.info("Запрос GET /items/{}/availability?from={}&to={}&includeWaiting={}", itemId, from, to,
+                includeWaiting);
+        String tag = itemService.getAvailabilityTag(itemId);
+
+        if (webRequest.checkNotModified(tag)) {
+            log.info("Отправлен ответ GET /items/{}/availability 304", itemId);
+            return null;
+        }
+
+        ItemAvailabilityDto availability = itemService.getAvailability(itemId, from, to, includeWaiting);
+        log.info("Отправлен ответ GET /items/{}/availability {}", itemId, availability);
+        return ResponseEntity.ok()
+                .eTag(tag)
+                .cacheControl(CacheControl.noCache())
+                .body(availability);
+    }
+
+    /**
+     * Подписка календарных приложений владельца: бронирования вещи видны только ему.
+     * Пока версия бронирований вещи не изменилась, на If-None-Match и If-Modified-Since отвечаем 304
+     * после одной проверки вещи и владельца по id.
+     */
+    @GetMapping(value = "/{itemId}/calendar.ics", produces = "text/calendar;charset=UTF-8")
+    public ResponseEntity<String> getCalendar(@RequestHeader("X-Sharer-User-Id") Long ownerId,
+                                              @PathVariable Long itemId, WebRequest webRequest) {
+        log.info("Запрос GET /items/{}/calendar.ics userId {}", itemId, ownerId);
+        ItemCalendarDto version = itemService.getCalendarVersion(itemId, ownerId);
+
+        if (webRequest.checkNotModified(version.getTag(), version.getLastModified().toEpochMilli())) {
+            log.info("Отправлен ответ GET /items/{}/calendar.ics 304", itemId);
+            return null;
+        }
+
+        ItemCalendarDto calendar = itemService.getCalendar(itemId, ownerId);
+        log.info("Отправлен ответ GET /items/{}/calendar.ics версия {}", itemId, calendar.getTag());
+        return ResponseEntity.ok()
+                .eTag(calendar.getTag())
+                .lastModified(calendar.getLastModified())
+                .cacheControl(CacheControl.noCache())
+                .body(calendar.getBody());
+    }
+
     @GetMapping("/search")
     @ResponseStatus(HttpStatus.OK)
     public List<ItemOnlyResponseDto> searchByText(@RequestParam(name = "text") String textForSearch,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime start,
+                                                  @RequestParam(required = false)
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                  LocalDateTime end,
+                                                  @RequestParam(defaultValue = "ID") ItemSearchSort sort,
+                                                  @RequestParam(defaultValue = "false") boolean fuzzy,
                                                   @RequestParam(defaultValue = "0") Long from,
                                                   @RequestParam(defaultValue = "20") Long size) {
-        log.info("Запрос GET /search?text={}", textForSearch);
-        List<ItemOnlyResponseDto> itemOutList = itemService.searchByText(textForSearch, from, size);
+        log.info("Запрос GET /search?text={}&start={}&end={}&sort={}&fuzzy={}", textForSearch, start, end, sort,
+                fuzzy);
+        List<ItemOnlyResponseDto> itemOutList = itemService.searchByText(textForSearch, start, end, sort, fuzzy,
+                from, size);
         log.info("Отправлен ответ GET /search?text={} {}", textForSearch, itemOutList);
         return itemOutList;
     }
 
+    @GetMapping("/suggest")
+    @ResponseStatus(HttpStatus.OK)
+    public List<ItemSuggestionDto> suggest(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        log.info("Запрос GET /suggest?prefix={}&limit={}", prefix, limit);
+        List<ItemSuggestionDto> suggestions = itemService.suggest(prefix, limit);
+        log.info("Отправлен ответ GET /suggest?prefix={} {}", prefix, suggestions);
+        return suggestions;
+    }
+
     @PostMapping("/{itemId}/comment")
     @ResponseStatus(HttpStatus.OK)
     public CommentResponseDto addComment(@RequestHeader("X-Sharer-User-Id") Long authorId,
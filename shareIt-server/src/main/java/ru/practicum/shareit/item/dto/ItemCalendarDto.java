@@ -0,0 +1,17 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Календарь бронирований вещи в формате iCalendar. Без body - только версия для условного GET.
+ */
+@Data
+@AllArgsConstructor
+public class ItemCalendarDto {
+    private String tag;
+    private Instant lastModified;
+    private String body;
+}
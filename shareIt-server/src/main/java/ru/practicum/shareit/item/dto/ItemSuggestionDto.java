@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Подсказка при наборе названия вещи.
+ */
+@Data
+@AllArgsConstructor
+public class ItemSuggestionDto {
+    private Long id;
+    private String name;
+}
@@ -4,19 +4,40 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface JpaItemRepository extends JpaRepository<Item, Long> {
     Page<Item> findItemByOwnerId(Long userId, Pageable pageable);
 
+    @Query("select it.id from Item it where it.ownerId = ?1")
+    List<Long> findIdsByOwnerId(Long ownerId);
+
+    /**
+     * Поиск по подстроке сканированием таблицы. Сервис ищет по {@link ru.practicum.shareit.item.search.ItemSearchIndex},
+     * запрос оставлен для сравнения с индексом в ItemSearchBenchmarkTest.
+     */
     @Query(value = "select it from Item it where it.available = true and " +
             "(lower(it.name) like lower(concat('%',?1,'%')) " +
             "or (lower(it.description) like lower(concat('%',?1,'%'))))")
     Page<Item> some(String text, Pageable pageable);
 
+    /**
+     * Id вещей из itemIds по возрастанию, у которых нет бронирования в статусе status, пересекающего [start, end).
+     * Анти-соединение проверяется по индексу idx_booking_item_status_start.
+     */
+    @Query("select it.id from Item it where it.id in ?1 " +
+            "and not exists (select booking.id from Booking booking where booking.item.id = it.id " +
+            "and booking.status = ?2 and booking.start < ?4 and booking.end > ?3) " +
+            "order by it.id")
+    List<Long> findFreeIds(Collection<Long> itemIds, BookingStatus status, LocalDateTime start, LocalDateTime end,
+                           Pageable pageable);
+
     Optional<List<Item>> findByItemRequest_Author_IdOrderById(Long authorId);
 
     Optional<List<Item>> findByItemRequest_Author_IdNotOrderById(Long authorId);
@@ -0,0 +1,133 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-дерево слов по расстоянию Левенштейна. Поиск слов не дальше maxDistance от запроса обходит только
+ * поддеревья, чьи ребра лежат в [d - maxDistance, d + maxDistance], где d - расстояние до узла
+ * (неравенство треугольника), а не весь словарь. Слова из дерева не удаляются.
+ */
+final class BkTree {
+    private Node root;
+    private int size;
+
+    void add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+
+        Node node = root;
+
+        while (true) {
+            int distance = distance(word, node.word);
+
+            if (distance == 0) {
+                return;
+            }
+
+            Node child = node.children.get(distance);
+
+            if (child == null) {
+                node.children.put(distance, new Node(word));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /**
+     * Слова не дальше maxDistance от word вместе с расстоянием до них.
+     */
+    List<Match> search(String word, int maxDistance) {
+        List<Match> matches = new ArrayList<>();
+
+        if (root == null) {
+            return matches;
+        }
+
+        Deque<Node> pending = new ArrayDeque<>();
+        pending.push(root);
+
+        while (!pending.isEmpty()) {
+            Node node = pending.pop();
+            int distance = distance(word, node.word);
+
+            if (distance <= maxDistance) {
+                matches.add(new Match(node.word, distance));
+            }
+
+            for (int edge = Math.max(1, distance - maxDistance); edge <= distance + maxDistance; edge++) {
+                Node child = node.children.get(edge);
+
+                if (child != null) {
+                    pending.push(child);
+                }
+            }
+        }
+
+        return matches;
+    }
+
+    int size() {
+        return size;
+    }
+
+    static int distance(String left, String right) {
+        int[] previous = new int[right.length() + 1];
+        int[] current = new int[right.length() + 1];
+
+        for (int j = 0; j <= right.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= left.length(); i++) {
+            current[0] = i;
+
+            for (int j = 1; j <= right.length(); j++) {
+                int substitution = previous[j - 1] + (left.charAt(i - 1) == right.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+
+        return previous[right.length()];
+    }
+
+    static final class Match {
+        private final String word;
+        private final int distance;
+
+        Match(String word, int distance) {
+            this.word = word;
+            this.distance = distance;
+        }
+
+        String word() {
+            return word;
+        }
+
+        int distance() {
+            return distance;
+        }
+    }
+
+    private static final class Node {
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>();
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
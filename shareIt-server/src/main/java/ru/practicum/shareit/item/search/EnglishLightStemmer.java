@@ -0,0 +1,35 @@
+package ru.practicum.shareit.item.search;
+
+/**
+ * Легкий стеммер английского: только множественное число ("drills" - "drill", "batteries" - "battery"),
+ * слова на -ss и -us не меняются.
+ */
+final class EnglishLightStemmer implements TokenFilter {
+    @Override
+    public String apply(String token) {
+        int length = token.length();
+
+        if (length < 3 || token.charAt(length - 1) != 's') {
+            return token;
+        }
+
+        char beforeS = token.charAt(length - 2);
+
+        if (beforeS == 's' || beforeS == 'u') {
+            return token;
+        }
+
+        if (beforeS == 'e') {
+            char beforeEs = token.charAt(length - 3);
+
+            if (length > 3 && beforeEs == 'i' && token.charAt(length - 4) != 'a' && token.charAt(length - 4) != 'e') {
+                return token.substring(0, length - 3) + 'y';
+            }
+            if (beforeEs == 'i' || beforeEs == 'a' || beforeEs == 'o' || beforeEs == 'e') {
+                return token;
+            }
+        }
+
+        return token.substring(0, length - 1);
+    }
+}
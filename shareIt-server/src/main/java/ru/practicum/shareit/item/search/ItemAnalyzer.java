@@ -0,0 +1,77 @@
+package ru.practicum.shareit.item.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Превращает текст вещи или запроса в слова индекса: текст приводится к форме NFKC, режется на слова
+ * {@link ItemTokenizer}, и каждое слово проходит цепочку фильтров. Индекс анализирует одной цепочкой
+ * и вещи, и запросы, иначе слова запроса не совпадут со словами словаря.
+ */
+final class ItemAnalyzer {
+    static final TokenFilter YO_FOLDING = token -> token.indexOf('ё') < 0 ? token : token.replace('ё', 'е');
+
+    private final List<TokenFilter> filters;
+
+    ItemAnalyzer(List<TokenFilter> filters) {
+        this.filters = List.copyOf(filters);
+    }
+
+    /**
+     * Замена ё на е, стоп-слова, легкие стеммеры русского и английского.
+     */
+    static ItemAnalyzer standard() {
+        return new ItemAnalyzer(List.of(
+                YO_FOLDING,
+                new StopWordFilter(),
+                new RussianLightStemmer(),
+                new EnglishLightStemmer()));
+    }
+
+    /**
+     * Слова текста без повторов в порядке первого появления.
+     */
+    List<String> tokenize(String text) {
+        return new ArrayList<>(new LinkedHashSet<>(words(text)));
+    }
+
+    /**
+     * Все слова текста по порядку, с повторами.
+     */
+    List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        String normalized = Normalizer.isNormalized(text, Normalizer.Form.NFKC)
+                ? text
+                : Normalizer.normalize(text, Normalizer.Form.NFKC);
+        List<String> words = new ArrayList<>();
+
+        for (String word : ItemTokenizer.words(normalized)) {
+            String analyzed = analyze(word);
+
+            if (analyzed != null) {
+                words.add(analyzed);
+            }
+        }
+
+        return words;
+    }
+
+    private String analyze(String word) {
+        String token = word;
+
+        for (TokenFilter filter : filters) {
+            token = filter.apply(token);
+
+            if (token == null || token.isEmpty()) {
+                return null;
+            }
+        }
+
+        return token;
+    }
+}
@@ -0,0 +1,193 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Подсказки названий доступных вещей по началу названия или любого его слова, популярные первыми.
+ * Популярность вещи - число подтвержденных бронирований, включая архивные. Подсказки лежат в {@link SuggestionTrie},
+ * который строится из таблиц при старте, обновляется сервисом вещей при создании и изменении вещи,
+ * сервисом пользователей при удалении владельца и событиями подтверждения бронирований.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class ItemNameSuggester {
+    public static final int MAX_LIMIT = 20;
+    private static final int MAX_KEYS = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    // без стоп-слов и стемминга: подсказывается название как есть
+    private final ItemAnalyzer analyzer = new ItemAnalyzer(List.of(ItemAnalyzer.YO_FOLDING));
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private SuggestionTrie trie = new SuggestionTrie(MAX_LIMIT);
+    private Map<Long, SuggestionTrie.Suggestion> suggestions = new HashMap<>();
+    private Map<Long, Long> popularity = new HashMap<>();
+
+    public ItemNameSuggester(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        Map<Long, Long> loadedPopularity = new HashMap<>();
+        jdbcTemplate.query("select item_id, count(*) as approved from (" +
+                        "select item_id from booking where status = 'APPROVED' " +
+                        "union all select item_id from booking_archive where status = 'APPROVED') b " +
+                        "group by item_id",
+                (RowCallbackHandler) rs -> loadedPopularity.put(rs.getLong("item_id"), rs.getLong("approved")));
+
+        SuggestionTrie rebuiltTrie = new SuggestionTrie(MAX_LIMIT);
+        Map<Long, SuggestionTrie.Suggestion> rebuiltSuggestions = new HashMap<>();
+
+        jdbcTemplate.query("select id, name from items where available order by id",
+                (RowCallbackHandler) rs -> {
+                    long itemId = rs.getLong("id");
+                    SuggestionTrie.Suggestion suggestion = new SuggestionTrie.Suggestion(itemId, rs.getString("name"),
+                            loadedPopularity.getOrDefault(itemId, 0L));
+
+                    rebuiltSuggestions.put(itemId, suggestion);
+                    keys(suggestion.name()).forEach(key -> rebuiltTrie.add(key, suggestion));
+                });
+
+        lock.writeLock().lock();
+        try {
+            trie = rebuiltTrie;
+            suggestions = rebuiltSuggestions;
+            popularity = loadedPopularity;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Подсказки названий вещей построены, вещей: {}", rebuiltSuggestions.size());
+    }
+
+    /**
+     * Не больше limit доступных вещей, название которых или одно из его слов начинается с prefix.
+     */
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        String key = String.join(" ", analyzer.words(prefix));
+
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return trie.top(key, Math.min(limit, MAX_LIMIT)).stream()
+                    .map(suggestion -> new ItemSuggestionDto(suggestion.id(), suggestion.name()))
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет доступную вещь в подсказки или убирает недоступную; прошлое название вещи заменяется.
+     */
+    public void index(Item item) {
+        boolean available = Boolean.TRUE.equals(item.getAvailable());
+
+        lock.writeLock().lock();
+        try {
+            SuggestionTrie.Suggestion previous = suggestions.get(item.getId());
+
+            if (previous != null && available && previous.name().equals(item.getName())) {
+                return;
+            }
+
+            if (previous != null) {
+                removeSuggestion(previous);
+            }
+
+            if (available) {
+                SuggestionTrie.Suggestion suggestion = new SuggestionTrie.Suggestion(item.getId(), item.getName(),
+                        popularity.getOrDefault(item.getId(), 0L));
+
+                suggestions.put(item.getId(), suggestion);
+                keys(suggestion.name()).forEach(key -> trie.add(key, suggestion));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> itemIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long itemId : itemIds) {
+                SuggestionTrie.Suggestion previous = suggestions.get(itemId);
+
+                if (previous != null) {
+                    removeSuggestion(previous);
+                }
+                popularity.remove(itemId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Подтвержденное бронирование поднимает вещь в подсказках. События доставляются "хотя бы раз",
+     * так что повтор события изредка завышает популярность до следующего перестроения.
+     */
+    @EventListener
+    public void onBookingEvent(BookingEvent event) {
+        if (event.getType() != BookingEventType.APPROVED || event.getItemId() == null) {
+            return;
+        }
+
+        lock.writeLock().lock();
+        try {
+            long approved = popularity.merge(event.getItemId(), 1L, Long::sum);
+            SuggestionTrie.Suggestion previous = suggestions.get(event.getItemId());
+
+            if (previous != null) {
+                SuggestionTrie.Suggestion raised = new SuggestionTrie.Suggestion(previous.id(), previous.name(),
+                        approved);
+
+                suggestions.put(raised.id(), raised);
+                keys(raised.name()).forEach(key -> trie.raise(key, raised));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeSuggestion(SuggestionTrie.Suggestion suggestion) {
+        suggestions.remove(suggestion.id());
+        keys(suggestion.name()).forEach(key -> trie.remove(key, suggestion.id()));
+    }
+
+    // название и его хвосты с каждого слова, поэтому "дре" находит и "Аккумуляторная дрель"
+    private Set<String> keys(String name) {
+        List<String> words = analyzer.words(name);
+        Set<String> keys = new LinkedHashSet<>();
+
+        for (int i = 0; i < Math.min(words.size(), MAX_KEYS); i++) {
+            keys.add(String.join(" ", words.subList(i, words.size())));
+        }
+
+        return keys;
+    }
+}
@@ -0,0 +1,516 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.sql.init.dependency.DependsOnDatabaseInitialization;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Инвертированный индекс слов названия и описания вещей для поиска по тексту.
+ * На каждое слово хранится возрастающий массив id вещей, в которых оно встречается, и параллельный массив
+ * частот слова в названии и описании; слова лежат в упорядоченном словаре, поэтому слово запроса находит
+ * все слова, начинающиеся с него. При нечетком поиске слово запроса находит и слова словаря на расстоянии
+ * Левенштейна 1-2 (по {@link BkTree}). Недоступные вещи хранятся отдельным списком и вычитаются из результата.
+ * Слова вещей и запросов проходят один {@link ItemAnalyzer}, поэтому в словаре лежат основы слов.
+ * Индекс живет в памяти экземпляра сервера, строится из таблицы items при старте и обновляется
+ * сервисом вещей при создании и изменении вещи и сервисом пользователей при удалении владельца.
+ */
+@Slf4j
+@Component
+@DependsOnDatabaseInitialization
+public class ItemSearchIndex {
+    private static final long[] EMPTY = new long[0];
+    // параметры BM25F: насыщение частоты, нормализация по длине поля и вес названия относительно описания
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final double NAME_WEIGHT = 2.0;
+    private static final int MAX_FREQUENCY = 0xFFFF;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ItemAnalyzer analyzer;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private NavigableMap<String, Postings> postings = new TreeMap<>();
+    private Map<Long, Document> documents = new HashMap<>();
+    private Postings unavailable = new Postings(null);
+    private BkTree vocabulary = new BkTree();
+    private long totalNameLength;
+    private long totalDescriptionLength;
+
+    @Autowired
+    public ItemSearchIndex(JdbcTemplate jdbcTemplate) {
+        this(jdbcTemplate, ItemAnalyzer.standard());
+    }
+
+    ItemSearchIndex(JdbcTemplate jdbcTemplate, ItemAnalyzer analyzer) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.analyzer = analyzer;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        NavigableMap<String, Postings> rebuiltPostings = new TreeMap<>();
+        Map<Long, Document> rebuiltDocuments = new HashMap<>();
+        Postings rebuiltUnavailable = new Postings(null);
+        BkTree rebuiltVocabulary = new BkTree();
+        long[] lengths = new long[2];
+
+        jdbcTemplate.query("select id, name, description, available from items order by id",
+                (RowCallbackHandler) rs -> {
+                    long itemId = rs.getLong("id");
+                    Document document = addPostings(rebuiltPostings, itemId,
+                            rs.getString("name"), rs.getString("description"));
+
+                    rebuiltDocuments.put(itemId, document);
+                    lengths[0] += document.nameLength;
+                    lengths[1] += document.descriptionLength;
+                    if (!rs.getBoolean("available")) {
+                        rebuiltUnavailable.add(itemId, 0);
+                    }
+                });
+        rebuiltPostings.keySet().forEach(rebuiltVocabulary::add);
+
+        lock.writeLock().lock();
+        try {
+            postings = rebuiltPostings;
+            vocabulary = rebuiltVocabulary;
+            documents = rebuiltDocuments;
+            unavailable = rebuiltUnavailable;
+            totalNameLength = lengths[0];
+            totalDescriptionLength = lengths[1];
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        log.info("Поисковый индекс вещей построен, вещей: {}, слов: {}", rebuiltDocuments.size(),
+                rebuiltPostings.size());
+    }
+
+    /**
+     * Добавляет вещь в индекс или заменяет ее прошлые слова и доступность.
+     */
+    public void index(Item item) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(item.getId());
+
+            Document document = addPostings(postings, item.getId(), item.getName(), item.getDescription());
+            documents.put(item.getId(), document);
+            for (String term : document.terms) {
+                vocabulary.add(term);
+            }
+            totalNameLength += document.nameLength;
+            totalDescriptionLength += document.descriptionLength;
+
+            if (Boolean.TRUE.equals(item.getAvailable())) {
+                unavailable.remove(item.getId());
+            } else {
+                unavailable.add(item.getId(), 0);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Collection<Long> itemIds) {
+        lock.writeLock().lock();
+        try {
+            for (Long itemId : itemIds) {
+                removeDocument(itemId);
+                unavailable.remove(itemId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Id доступных вещей по возрастанию, в названии или описании которых каждое слово текста
+     * является началом какого-либо слова, а при fuzzy - еще и отличается от слова не больше чем
+     * на {@link #maxDistance} правок.
+     */
+    public long[] search(String text, boolean fuzzy) {
+        List<String> tokens = analyzer.tokenize(text);
+
+        if (tokens.isEmpty()) {
+            return EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            return candidates(expand(tokens, fuzzy));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Не больше limit вещей из {@link #search}, прошедших filter, по убыванию оценки BM25F.
+     * Слово в названии весит больше, чем в описании; слово запроса, совпавшее только с началом слова вещи,
+     * учитывается с долей длины запроса в длине слова, нечеткое совпадение - с весом 1 / (1 + расстояние);
+     * из нескольких таких слов вещи берется лучшее.
+     * Отбор идет ограниченной кучей, без сортировки всех совпадений.
+     */
+    public long[] searchByRelevance(String text, boolean fuzzy, int limit, LongPredicate filter) {
+        List<String> tokens = analyzer.tokenize(text);
+
+        if (tokens.isEmpty() || limit <= 0) {
+            return EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<List<Expansion>> expansions = expand(tokens, fuzzy);
+            long[] found = candidates(expansions);
+            double[] scores = score(found, expansions);
+            TopItems top = new TopItems(Math.min(limit, found.length));
+
+            for (int i = 0; i < found.length; i++) {
+                if (filter.test(found[i])) {
+                    top.offer(found[i], scores[i]);
+                }
+            }
+
+            return top.drain();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Допустимое число правок для слова запроса: короткие слова только точно, как AUTO-нечеткость Lucene.
+     */
+    static int maxDistance(String token) {
+        if (token.length() <= 2) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    // слова словаря, которые находит каждое слово запроса, с весом совпадения
+    private List<List<Expansion>> expand(List<String> tokens, boolean fuzzy) {
+        List<List<Expansion>> expansions = new ArrayList<>();
+
+        for (String token : tokens) {
+            Map<String, Expansion> matched = new LinkedHashMap<>();
+
+            postings.subMap(token, true, token + Character.MAX_VALUE, false).values()
+                    .forEach(termPostings -> matched.put(termPostings.term, new Expansion(termPostings,
+                            (double) token.length() / termPostings.term.length())));
+
+            int maxDistance = fuzzy ? maxDistance(token) : 0;
+            if (maxDistance > 0) {
+                for (BkTree.Match match : vocabulary.search(token, maxDistance)) {
+                    Postings termPostings = postings.get(match.word());
+
+                    // слова удаленных вещей остаются в дереве, пока индекс не перестроен
+                    if (termPostings != null && !matched.containsKey(match.word())) {
+                        matched.put(match.word(), new Expansion(termPostings, 1.0 / (1 + match.distance())));
+                    }
+                }
+            }
+
+            expansions.add(new ArrayList<>(matched.values()));
+        }
+
+        return expansions;
+    }
+
+    private long[] candidates(List<List<Expansion>> expansions) {
+        long[] found = null;
+
+        for (List<Expansion> tokenExpansions : expansions) {
+            long[] matched = union(tokenExpansions);
+            found = found == null ? matched : intersect(found, matched);
+
+            if (found.length == 0) {
+                return EMPTY;
+            }
+        }
+
+        return subtract(found, unavailable);
+    }
+
+    private double[] score(long[] found, List<List<Expansion>> expansions) {
+        double[] scores = new double[found.length];
+        double[] best = new double[found.length];
+        double averageName = Math.max(1.0, (double) totalNameLength / documents.size());
+        double averageDescription = Math.max(1.0, (double) totalDescriptionLength / documents.size());
+
+        for (List<Expansion> tokenExpansions : expansions) {
+            // idf считается на слово запроса, а не на каждое продолжение: редкое продолжение не должно
+            // перевешивать точное совпадение
+            long documentFrequency = Math.min(documents.size(),
+                    tokenExpansions.stream().mapToLong(expansion -> expansion.postings.size).sum());
+            double idf = Math.log(1.0 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+
+            Arrays.fill(best, 0.0);
+
+            for (Expansion expansion : tokenExpansions) {
+                Postings termPostings = expansion.postings;
+                int j = 0;
+
+                for (int i = 0; i < termPostings.size && j < found.length; i++) {
+                    long itemId = termPostings.ids[i];
+
+                    while (j < found.length && found[j] < itemId) {
+                        j++;
+                    }
+                    if (j == found.length || found[j] != itemId) {
+                        continue;
+                    }
+
+                    Document document = documents.get(itemId);
+                    int frequencies = termPostings.frequencies[i];
+                    double weighted = NAME_WEIGHT * (frequencies >>> 16)
+                            / (1 - B + B * document.nameLength / averageName)
+                            + (frequencies & MAX_FREQUENCY)
+                            / (1 - B + B * document.descriptionLength / averageDescription);
+
+                    best[j] = Math.max(best[j], expansion.weight * idf * weighted * (K1 + 1) / (weighted + K1));
+                }
+            }
+
+            for (int i = 0; i < found.length; i++) {
+                scores[i] += best[i];
+            }
+        }
+
+        return scores;
+    }
+
+    // слова вещи заменяются экземплярами из словаря, чтобы у миллиона вещей не было миллионов копий строк
+    private Document addPostings(NavigableMap<String, Postings> target, long itemId,
+                                 String name, String description) {
+        List<String> nameWords = analyzer.words(name);
+        List<String> descriptionWords = analyzer.words(description);
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+
+        // частота в названии - старшие 16 бит, в описании - младшие
+        nameWords.forEach(word -> frequencies.merge(word, 1 << 16,
+                (previous, one) -> (previous >>> 16) < MAX_FREQUENCY ? previous + one : previous));
+        descriptionWords.forEach(word -> frequencies.merge(word, 1,
+                (previous, one) -> (previous & MAX_FREQUENCY) < MAX_FREQUENCY ? previous + one : previous));
+
+        String[] terms = new String[frequencies.size()];
+        int i = 0;
+
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            Postings termPostings = target.computeIfAbsent(entry.getKey(), Postings::new);
+
+            termPostings.add(itemId, entry.getValue());
+            terms[i++] = termPostings.term;
+        }
+
+        return new Document(terms, nameWords.size(), descriptionWords.size());
+    }
+
+    private void removeDocument(Long itemId) {
+        Document previous = documents.remove(itemId);
+
+        if (previous == null) {
+            return;
+        }
+
+        totalNameLength -= previous.nameLength;
+        totalDescriptionLength -= previous.descriptionLength;
+
+        for (String term : previous.terms) {
+            Postings termPostings = postings.get(term);
+
+            if (termPostings != null && termPostings.remove(itemId) && termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static long[] union(List<Expansion> matched) {
+        if (matched.isEmpty()) {
+            return EMPTY;
+        }
+        if (matched.size() == 1) {
+            return matched.get(0).postings.toArray();
+        }
+
+        int total = 0;
+        for (Expansion expansion : matched) {
+            total += expansion.postings.size;
+        }
+
+        long[] merged = new long[total];
+        int position = 0;
+        for (Expansion expansion : matched) {
+            System.arraycopy(expansion.postings.ids, 0, merged, position, expansion.postings.size);
+            position += expansion.postings.size;
+        }
+        Arrays.sort(merged);
+
+        int distinct = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i == 0 || merged[i] != merged[i - 1]) {
+                merged[distinct++] = merged[i];
+            }
+        }
+
+        return Arrays.copyOf(merged, distinct);
+    }
+
+    private static long[] intersect(long[] left, long[] right) {
+        long[] result = new long[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    private static long[] subtract(long[] ids, Postings excluded) {
+        if (excluded.isEmpty()) {
+            return ids;
+        }
+
+        long[] result = new long[ids.length];
+        int size = 0;
+        int j = 0;
+
+        for (long id : ids) {
+            while (j < excluded.size && excluded.ids[j] < id) {
+                j++;
+            }
+            if (j == excluded.size || excluded.ids[j] != id) {
+                result[size++] = id;
+            }
+        }
+
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Слово словаря, найденное словом запроса, и вес совпадения.
+     */
+    private static final class Expansion {
+        private final Postings postings;
+        private final double weight;
+
+        Expansion(Postings postings, double weight) {
+            this.postings = postings;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Слова вещи и длины ее полей в словах.
+     */
+    private static final class Document {
+        private final String[] terms;
+        private final int nameLength;
+        private final int descriptionLength;
+
+        Document(String[] terms, int nameLength, int descriptionLength) {
+            this.terms = terms;
+            this.nameLength = nameLength;
+            this.descriptionLength = descriptionLength;
+        }
+    }
+
+    /**
+     * Возрастающий список id без повторов с упакованными частотами слова. Id новых вещей больше прежних,
+     * поэтому добавление обычно дописывает в конец.
+     */
+    private static final class Postings {
+        private final String term;
+        private long[] ids = new long[2];
+        private int[] frequencies = new int[2];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(long id, int frequency) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+
+                if (position < 0) {
+                    insert(-position - 1, id, frequency);
+                } else {
+                    frequencies[position] = frequency;
+                }
+                return;
+            }
+
+            insert(size, id, frequency);
+        }
+
+        boolean remove(long id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+
+            if (position < 0) {
+                return false;
+            }
+
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            System.arraycopy(frequencies, position + 1, frequencies, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        private void insert(int position, long id, int frequency) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            System.arraycopy(frequencies, position, frequencies, position + 1, size - position);
+            ids[position] = id;
+            frequencies[position] = frequency;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package ru.practicum.shareit.item.search;
+
+public enum ItemSearchSort {
+    // По возрастанию id
+    ID,
+    // По убыванию оценки BM25, при равной оценке по возрастанию id
+    RELEVANCE
+}
@@ -0,0 +1,38 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Разбивает текст на слова: последовательности букв и цифр в нижнем регистре.
+ */
+final class ItemTokenizer {
+    private ItemTokenizer() {
+    }
+
+    /**
+     * Все слова текста по порядку, с повторами.
+     */
+    static List<String> words(String text) {
+        if (text == null) {
+            return List.of();
+        }
+
+        List<String> words = new ArrayList<>();
+        int start = -1;
+
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+}
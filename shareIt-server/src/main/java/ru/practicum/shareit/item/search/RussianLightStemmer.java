@@ -0,0 +1,32 @@
+package ru.practicum.shareit.item.search;
+
+/**
+ * Легкий стеммер русского: отрезает падежное окончание существительного или прилагательного,
+ * так что "дрель", "дрели" и "дрелью" дают одну основу "дрел". Суффиксы не трогает - основа
+ * длиннее, чем у полного стеммера, зато разные слова реже склеиваются.
+ */
+final class RussianLightStemmer implements TokenFilter {
+    // длинные окончания раньше коротких
+    private static final String[] ENDINGS = {
+            "ами", "ями", "ого", "его", "ому", "ему", "ыми", "ими", "иях", "иям", "ием",
+            "ой", "ей", "ый", "ий", "ая", "яя", "ое", "ее", "ые", "ие", "ую", "юю", "ых", "их", "ым", "им",
+            "ом", "ем", "ам", "ям", "ах", "ях", "ов", "ев", "ью", "ия", "ию", "ья", "ье", "ьи",
+            "а", "я", "о", "е", "и", "ы", "у", "ю", "ь", "й"
+    };
+    private static final int MIN_STEM = 2;
+
+    @Override
+    public String apply(String token) {
+        if (Character.UnicodeBlock.of(token.charAt(token.length() - 1)) != Character.UnicodeBlock.CYRILLIC) {
+            return token;
+        }
+
+        for (String ending : ENDINGS) {
+            if (token.length() - ending.length() >= MIN_STEM && token.endsWith(ending)) {
+                return token.substring(0, token.length() - ending.length());
+            }
+        }
+
+        return token;
+    }
+}
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.Set;
+
+/**
+ * Отбрасывает служебные слова русского и английского, которые есть почти в каждом описании.
+ * Слова записаны после замены ё на е.
+ */
+final class StopWordFilter implements TokenFilter {
+    private static final Set<String> STOP_WORDS = Set.of(
+            "а", "без", "бы", "в", "во", "все", "вы", "да", "для", "до", "его", "ее", "еще", "же", "за",
+            "и", "из", "или", "к", "как", "ко", "ли", "на", "над", "не", "нет", "но", "о", "об", "от",
+            "по", "под", "при", "с", "со", "так", "то", "у", "что", "это", "эта", "этот", "эти",
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is",
+            "it", "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there",
+            "these", "they", "this", "to", "was", "will", "with");
+
+    @Override
+    public String apply(String token) {
+        return STOP_WORDS.contains(token) ? null : token;
+    }
+}
@@ -0,0 +1,329 @@
+package ru.practicum.shareit.item.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Сжатое префиксное дерево ключей подсказок: цепочки узлов с одним потомком склеены в одно ребро,
+ * поэтому узлов не больше двух на ключ. Каждый узел хранит до capacity лучших подсказок своего поддерева
+ * (популярные раньше, при равенстве - меньший id), и ответ на префикс - спуск по его буквам.
+ * Одна подсказка может лежать под несколькими ключами, в лучших узла она встречается один раз.
+ */
+final class SuggestionTrie {
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Comparator<Suggestion> BEST_FIRST = Comparator
+            .comparingLong((Suggestion suggestion) -> -suggestion.popularity)
+            .thenComparingLong(suggestion -> suggestion.id);
+
+    private final int capacity;
+    private final Node root = new Node("");
+
+    SuggestionTrie(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Лучшие подсказки для ключей, начинающихся с prefix, не больше limit.
+     */
+    List<Suggestion> top(String prefix, int limit) {
+        Node node = root;
+        int position = 0;
+
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+
+            if (index < 0) {
+                return List.of();
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, position);
+
+            // префикс может закончиться посреди ребра, но не разойтись с ним
+            if (common < child.label.length() && position + common < prefix.length()) {
+                return List.of();
+            }
+
+            position += common;
+            node = child;
+        }
+
+        return List.of(node.top).subList(0, Math.min(limit, node.top.length));
+    }
+
+    void add(String key, Suggestion suggestion) {
+        List<Node> path = insertPath(key);
+        Node last = path.get(path.size() - 1);
+
+        last.items = Arrays.copyOf(last.items, last.items.length + 1);
+        last.items[last.items.length - 1] = suggestion;
+
+        for (Node node : path) {
+            node.top = offer(node.top, suggestion);
+        }
+    }
+
+    /**
+     * Заменяет подсказку с тем же id на более популярную, не перестраивая лучшие узлов.
+     */
+    void raise(String key, Suggestion suggestion) {
+        List<Node> path = findPath(key);
+
+        if (path == null) {
+            return;
+        }
+
+        Node last = path.get(path.size() - 1);
+
+        for (int i = 0; i < last.items.length; i++) {
+            if (last.items[i].id == suggestion.id) {
+                last.items[i] = suggestion;
+            }
+        }
+
+        for (Node node : path) {
+            node.top = offer(node.top, suggestion);
+        }
+    }
+
+    void remove(String key, long id) {
+        List<Node> path = findPath(key);
+
+        if (path == null) {
+            return;
+        }
+
+        Node last = path.get(path.size() - 1);
+        last.items = Arrays.stream(last.items)
+                .filter(item -> item.id != id)
+                .toArray(Suggestion[]::new);
+
+        // снизу вверх: пустые узлы удаляются, узел с одним потомком склеивается с ним, а узлам,
+        // в лучших которых была подсказка, лучшие собираются заново из своих подсказок и лучших потомков
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+
+            if (i > 0 && node.items.length == 0 && node.children.length <= 1) {
+                Node parent = path.get(i - 1);
+                int index = parent.childIndex(node.label.charAt(0));
+
+                if (node.children.length == 0) {
+                    parent.removeChild(index);
+                } else {
+                    Node only = node.children[0];
+                    only.label = node.label + only.label;
+                    parent.children[index] = only;
+                }
+                continue;
+            }
+
+            if (Arrays.stream(node.top).anyMatch(current -> current.id == id)) {
+                node.top = collectTop(node);
+            }
+        }
+    }
+
+    private List<Node> insertPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+
+            if (index < 0) {
+                Node leaf = new Node(key.substring(position));
+                node.insertChild(-index - 1, leaf);
+                path.add(leaf);
+                return path;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, position);
+
+            if (common < child.label.length()) {
+                Node middle = new Node(child.label.substring(0, common));
+
+                child.label = child.label.substring(common);
+                middle.children = new Node[]{child};
+                middle.top = child.top;
+                node.children[index] = middle;
+                child = middle;
+            }
+
+            path.add(child);
+            position += common;
+            node = child;
+        }
+
+        return path;
+    }
+
+    private List<Node> findPath(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+
+            if (index < 0 || !key.startsWith(node.children[index].label, position)) {
+                return null;
+            }
+
+            node = node.children[index];
+            position += node.label.length();
+            path.add(node);
+        }
+
+        return path;
+    }
+
+    private Suggestion[] offer(Suggestion[] top, Suggestion suggestion) {
+        if (top.length == capacity && BEST_FIRST.compare(suggestion, top[capacity - 1]) > 0
+                && Arrays.stream(top).noneMatch(current -> current.id == suggestion.id)) {
+            return top;
+        }
+
+        Suggestion[] result = new Suggestion[Math.min(capacity, top.length + 1)];
+        int size = 0;
+        boolean placed = false;
+
+        for (Suggestion current : top) {
+            if (current.id == suggestion.id) {
+                continue;
+            }
+            if (!placed && BEST_FIRST.compare(suggestion, current) < 0) {
+                result[size++] = suggestion;
+                placed = true;
+            }
+            if (size < capacity) {
+                result[size++] = current;
+            }
+        }
+
+        if (!placed && size < capacity) {
+            result[size++] = suggestion;
+        }
+
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    private Suggestion[] collectTop(Node node) {
+        List<Suggestion> candidates = new ArrayList<>(Arrays.asList(node.items));
+
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(BEST_FIRST);
+
+        Set<Long> seen = new HashSet<>();
+        List<Suggestion> top = new ArrayList<>();
+
+        for (Suggestion candidate : candidates) {
+            if (top.size() == capacity) {
+                break;
+            }
+            if (seen.add(candidate.id)) {
+                top.add(candidate);
+            }
+        }
+
+        return top.isEmpty() ? NO_SUGGESTIONS : top.toArray(Suggestion[]::new);
+    }
+
+    private static int commonPrefix(String label, String key, int position) {
+        int common = 0;
+
+        while (common < label.length() && position + common < key.length()
+                && label.charAt(common) == key.charAt(position + common)) {
+            common++;
+        }
+
+        return common;
+    }
+
+    /**
+     * Вещь в подсказках: id, название как у вещи и популярность.
+     */
+    static final class Suggestion {
+        private final long id;
+        private final String name;
+        private final long popularity;
+
+        Suggestion(long id, String name, long popularity) {
+            this.id = id;
+            this.name = name;
+            this.popularity = popularity;
+        }
+
+        long id() {
+            return id;
+        }
+
+        String name() {
+            return name;
+        }
+
+        long popularity() {
+            return popularity;
+        }
+    }
+
+    private static final class Node {
+        private String label;
+        // по первой букве label, по возрастанию
+        private Node[] children = NO_CHILDREN;
+        // подсказки, ключ которых заканчивается в этом узле
+        private Suggestion[] items = NO_SUGGESTIONS;
+        private Suggestion[] top = NO_SUGGESTIONS;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = children.length - 1;
+
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char current = children[middle].label.charAt(0);
+
+                if (current < first) {
+                    low = middle + 1;
+                } else if (current > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+
+            return -(low + 1);
+        }
+
+        void insertChild(int index, Node child) {
+            Node[] updated = new Node[children.length + 1];
+
+            System.arraycopy(children, 0, updated, 0, index);
+            updated[index] = child;
+            System.arraycopy(children, index, updated, index + 1, children.length - index);
+            children = updated;
+        }
+
+        void removeChild(int index) {
+            Node[] updated = new Node[children.length - 1];
+
+            System.arraycopy(children, 0, updated, 0, index);
+            System.arraycopy(children, index + 1, updated, index, children.length - index - 1);
+            children = updated.length == 0 ? NO_CHILDREN : updated;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.shareit.item.search;
+
+/**
+ * Шаг анализа слова в {@link ItemAnalyzer}.
+ */
+interface TokenFilter {
+    /**
+     * Измененное слово или null, если слово не попадает в индекс.
+     */
+    String apply(String token);
+}
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.item.search;
+
+/**
+ * Лучшие limit вещей по оценке: двоичная куча с худшей из отобранных вещей в корне.
+ * Вещь из потока n кандидатов вытесняет корень за O(log limit), при равных оценках выше меньший id.
+ */
+final class TopItems {
+    private final long[] ids;
+    private final double[] scores;
+    private int size;
+
+    TopItems(int limit) {
+        ids = new long[limit];
+        scores = new double[limit];
+    }
+
+    void offer(long id, double score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (size > 0 && worse(ids[0], scores[0], id, score)) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    /**
+     * Отобранные id от лучшего к худшему. Куча при этом разбирается.
+     */
+    long[] drain() {
+        long[] result = new long[size];
+
+        for (int last = size - 1; last >= 0; last--) {
+            result[last] = ids[0];
+            swap(0, last);
+            siftDown(0, last);
+        }
+        size = 0;
+
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+
+            if (!worse(ids[index], scores[index], ids[parent], scores[parent])) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+
+            if (left < heapSize && worse(ids[left], scores[left], ids[worst], scores[worst])) {
+                worst = left;
+            }
+            if (right < heapSize && worse(ids[right], scores[right], ids[worst], scores[worst])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private static boolean worse(long id, double score, long otherId, double otherScore) {
+        return score < otherScore || (score == otherScore && id > otherId);
+    }
+
+    private void swap(int i, int j) {
+        long id = ids[i];
+        double score = scores[i];
+
+        ids[i] = ids[j];
+        scores[i] = scores[j];
+        ids[j] = id;
+        scores[j] = score;
+    }
+}
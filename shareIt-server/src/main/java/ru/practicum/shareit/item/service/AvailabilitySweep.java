@@ -0,0 +1,74 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto.FreePeriod;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Свободные периоды вещи заметающей прямой: начала и окончания бронирований - события +1 и -1,
+ * отсортированные по времени, свободен отрезок, на котором счетчик пересечений равен нулю.
+ * Бронирования могут пересекаться между собой и выходить за границы диапазона [from, to).
+ */
+final class AvailabilitySweep {
+    private static final Comparator<Event> EVENT_ORDER = Comparator.comparing((Event event) -> event.time)
+            .thenComparingInt(event -> event.delta);
+
+    private AvailabilitySweep() {
+    }
+
+    static List<FreePeriod> freePeriods(List<ShortBooking> bookings, LocalDateTime from, LocalDateTime to) {
+        List<Event> events = new ArrayList<>(bookings.size() * 2);
+
+        for (ShortBooking booking : bookings) {
+            events.add(new Event(clamp(booking.getStart(), from, to), 1));
+            events.add(new Event(clamp(booking.getEnd(), from, to), -1));
+        }
+
+        // при равном времени окончание раньше начала: смежные бронирования не дают пустого свободного отрезка
+        events.sort(EVENT_ORDER);
+
+        List<FreePeriod> free = new ArrayList<>();
+        LocalDateTime freeSince = from;
+        int depth = 0;
+
+        for (Event event : events) {
+            if (depth == 0 && event.time.isAfter(freeSince)) {
+                free.add(new FreePeriod(freeSince, event.time));
+            }
+
+            depth += event.delta;
+
+            if (depth == 0) {
+                freeSince = event.time;
+            }
+        }
+
+        if (to.isAfter(freeSince)) {
+            free.add(new FreePeriod(freeSince, to));
+        }
+
+        return free;
+    }
+
+    private static LocalDateTime clamp(LocalDateTime time, LocalDateTime from, LocalDateTime to) {
+        if (time.isBefore(from)) {
+            return from;
+        }
+
+        return time.isAfter(to) ? to : time;
+    }
+
+    private static class Event {
+        private final LocalDateTime time;
+        private final int delta;
+
+        Event(LocalDateTime time, int delta) {
+            this.time = time;
+            this.delta = delta;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Пары (пользователь, вещь), для которых уже подтверждено право оставить отзыв.
+ * Право появляется с окончанием подтвержденной аренды и не пропадает, пока она остается подтвержденной,
+ * поэтому запоминаются только положительные ответы. Хранятся последние по обращению пары.
+ */
+@Component
+class CommentEligibilityCache {
+    private final Map<Key, Boolean> eligible;
+
+    CommentEligibilityCache(@Value("${shareit.item.comment-eligibility-cache.max-entries:100000}") int maxEntries) {
+        this.eligible = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    boolean isEligible(Long userId, Long itemId, BooleanSupplier check) {
+        Key key = new Key(userId, itemId);
+
+        synchronized (this) {
+            if (eligible.containsKey(key)) {
+                return true;
+            }
+        }
+
+        if (!check.getAsBoolean()) {
+            return false;
+        }
+
+        synchronized (this) {
+            eligible.put(key, Boolean.TRUE);
+        }
+
+        return true;
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class Key {
+        private final Long userId;
+        private final Long itemId;
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.shareit.item.service;
+
+import ru.practicum.shareit.booking.dto.BookingChange;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Собранный iCalendar одной вещи (RFC 5545): по VEVENT на подтвержденное бронирование в порядке начала.
+ * Снимок неизменяем: новая версия получается из предыдущей заменой текста только измененных VEVENT,
+ * остальные события переиспользуются без повторного чтения и форматирования.
+ */
+class ItemCalendar {
+    private static final DateTimeFormatter LOCAL_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+    private static final DateTimeFormatter UTC_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+    private static final String CRLF = "\r\n";
+    private static final Comparator<Event> BY_START =
+            Comparator.comparing((Event event) -> event.start).thenComparing(event -> event.bookingId);
+
+    private final Long itemId;
+    private final String tag;
+    private final Instant lastModified;
+    private final NavigableSet<Event> events;
+    private final Map<Long, Event> eventsByBookingId;
+    private final String body;
+
+    private ItemCalendar(Long itemId, String tag, Instant lastModified,
+                         NavigableSet<Event> events, Map<Long, Event> eventsByBookingId) {
+        this.itemId = itemId;
+        this.tag = tag;
+        this.lastModified = lastModified;
+        this.events = events;
+        this.eventsByBookingId = eventsByBookingId;
+        this.body = body(itemId, events);
+    }
+
+    /**
+     * Календарь версии tag по полному списку подтвержденных бронирований вещи.
+     */
+    static ItemCalendar render(Long itemId, String tag, Instant lastModified, Collection<ShortBooking> bookings) {
+        NavigableSet<Event> events = new TreeSet<>(BY_START);
+        Map<Long, Event> eventsByBookingId = new HashMap<>();
+
+        for (ShortBooking booking : bookings) {
+            Event event = new Event(booking.getId(), booking.getStart(), booking.getEnd(), lastModified);
+            events.add(event);
+            eventsByBookingId.put(event.bookingId, event);
+        }
+
+        return new ItemCalendar(itemId, tag, lastModified, events, eventsByBookingId);
+    }
+
+    /**
+     * Календарь версии tag: этот снимок с примененными изменениями бронирований.
+     * Подтвержденное бронирование добавляется или заменяется, остальные статусы и удаление убирают его событие.
+     */
+    ItemCalendar patch(String tag, Instant lastModified, List<BookingChange> changes) {
+        NavigableSet<Event> patched = new TreeSet<>(events);
+        Map<Long, Event> patchedByBookingId = new HashMap<>(eventsByBookingId);
+
+        for (BookingChange change : changes) {
+            Event previous = patchedByBookingId.remove(change.getId());
+
+            if (previous != null) {
+                patched.remove(previous);
+            }
+
+            if (change.getStatus() == BookingStatus.APPROVED) {
+                Event event = new Event(change.getId(), change.getStart(), change.getEnd(), lastModified);
+                patched.add(event);
+                patchedByBookingId.put(event.bookingId, event);
+            }
+        }
+
+        return new ItemCalendar(itemId, tag, lastModified, patched, patchedByBookingId);
+    }
+
+    String tag() {
+        return tag;
+    }
+
+    Instant lastModified() {
+        return lastModified;
+    }
+
+    String body() {
+        return body;
+    }
+
+    int size() {
+        return events.size();
+    }
+
+    private static String body(Long itemId, Collection<Event> events) {
+        StringBuilder calendar = new StringBuilder()
+                .append("BEGIN:VCALENDAR").append(CRLF)
+                .append("VERSION:2.0").append(CRLF)
+                .append("PRODID:-//ShareIt//Item bookings//RU").append(CRLF)
+                .append("CALSCALE:GREGORIAN").append(CRLF)
+                .append("X-WR-CALNAME:item-").append(itemId).append(CRLF);
+
+        events.forEach(event -> calendar.append(event.text));
+
+        return calendar.append("END:VCALENDAR").append(CRLF).toString();
+    }
+
+    private static class Event {
+        private final Long bookingId;
+        private final LocalDateTime start;
+        private final String text;
+
+        Event(Long bookingId, LocalDateTime start, LocalDateTime end, Instant stamp) {
+            this.bookingId = bookingId;
+            this.start = start;
+            this.text = "BEGIN:VEVENT" + CRLF
+                    + "UID:booking-" + bookingId + "@shareit" + CRLF
+                    + "DTSTAMP:" + UTC_TIME.format(stamp) + CRLF
+                    + "DTSTART:" + LOCAL_TIME.format(start) + CRLF
+                    + "DTEND:" + LOCAL_TIME.format(end) + CRLF
+                    + "SUMMARY:Бронирование " + bookingId + CRLF
+                    + "END:VEVENT" + CRLF;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.dto.BookingChange;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.occupancy.WeightedLruMap;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * LRU-кэш последних собранных календарей вещей. Календарь с текущей версией бронирований вещи отдается как есть,
+ * устаревший догоняет ее изменениями из журнала {@link ItemBookingVersions}. Заново по всем бронированиям вещи
+ * календарь собирается, только если его нет в кэше или журнал уже не помнит всех изменений после его версии. Объем ограничен суммарным числом VEVENT во всех
+ * календарях через {@link WeightedLruMap}, как в
+ * {@link ru.practicum.shareit.booking.occupancy.ItemBookingTimelineCache}.
+ */
+@Slf4j
+@Component
+class ItemCalendarCache {
+    private final ItemBookingVersions versions;
+    private final WeightedLruMap<Long, ItemCalendar> calendars;
+
+    ItemCalendarCache(ItemBookingVersions versions,
+                      @Value("${shareit.item.calendar-cache.max-events:100000}") int maxEvents) {
+        this.versions = versions;
+        this.calendars = new WeightedLruMap<>(maxEvents, ItemCalendar::size, () -> { });
+    }
+
+    ItemCalendar get(Long itemId, String tag, Instant lastModified,
+                     Function<Long, Collection<ShortBooking>> loader) {
+        ItemCalendar current;
+
+        synchronized (this) {
+            current = calendars.get(itemId);
+        }
+
+        if (current != null && tag.equals(current.tag())) {
+            return current;
+        }
+
+        Optional<List<BookingChange>> changes = current == null
+                ? Optional.empty()
+                : versions.changesBetween(itemId, current.tag(), tag);
+        ItemCalendar updated = changes.isPresent()
+                ? current.patch(tag, lastModified, changes.get())
+                : ItemCalendar.render(itemId, tag, lastModified, loader.apply(itemId));
+        // параллельная сборка может записать более старую версию - следующий запрос догонит ее по журналу
+        put(itemId, updated);
+
+        return updated;
+    }
+
+    synchronized int cachedEvents() {
+        return calendars.weight();
+    }
+
+    synchronized boolean contains(Long itemId) {
+        return calendars.containsKey(itemId);
+    }
+
+    private synchronized void put(Long itemId, ItemCalendar calendar) {
+        if (!calendars.put(itemId, calendar)) {
+            log.debug("Календарь вещи {} не помещается в кэш: {}", itemId, calendar.size());
+        }
+    }
+}
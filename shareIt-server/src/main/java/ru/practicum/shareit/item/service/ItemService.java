@@ -2,7 +2,10 @@ package ru.practicum.shareit.item.service;
 
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface ItemService {
@@ -12,11 +15,24 @@ public interface ItemService {
 
     Item getItemById(Long itemId);
 
+    List<Item> getItemsByIds(Collection<Long> itemIds);
+
     ItemBookingCommentsResponseDto getByItemId(Long itemId, Long userId);
 
     List<ItemBookingCommentsResponseDto> getByUserId(Long ownerId, Long from, Long size);
 
-    List<ItemOnlyResponseDto> searchByText(String textForSearch, Long from, Long size);
+    String getAvailabilityTag(Long itemId);
+
+    ItemAvailabilityDto getAvailability(Long itemId, LocalDateTime from, LocalDateTime to, boolean includeWaiting);
+
+    ItemCalendarDto getCalendarVersion(Long itemId, Long ownerId);
+
+    ItemCalendarDto getCalendar(Long itemId, Long ownerId);
+
+    List<ItemOnlyResponseDto> searchByText(String textForSearch, LocalDateTime start, LocalDateTime end,
+                                           ItemSearchSort sort, boolean fuzzy, Long from, Long size);
+
+    List<ItemSuggestionDto> suggest(String prefix, int limit);
 
     CommentResponseDto addComment(Long authorId, Long itemId, CommentRequestDto text);
 }
\ No newline at end of file
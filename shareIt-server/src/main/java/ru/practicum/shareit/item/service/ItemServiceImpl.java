@@ -1,12 +1,19 @@
 package ru.practicum.shareit.item.service;
 
 import lombok.AllArgsConstructor;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.practicum.shareit.booking.dto.ShortBooking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.ItemBookingTimeline;
+import ru.practicum.shareit.booking.occupancy.ItemBookingTimelineCache;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
 import ru.practicum.shareit.booking.repository.JpaBookingRepository;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
@@ -15,8 +22,12 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.JpaCommentRepository;
 import ru.practicum.shareit.item.repository.JpaItemRepository;
+import ru.practicum.shareit.item.search.ItemNameSuggester;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.itemrequest.model.ItemRequest;
 import ru.practicum.shareit.itemrequest.repository.JpaItemRequestRepository;
+import ru.practicum.shareit.user.dto.UserDeletedEvent;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
@@ -26,11 +37,23 @@ import java.util.stream.Collectors;
 @Service
 @AllArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    // сколько id вещей передается в один запрос занятости: с запасом ниже предела параметров запроса
+    private static final int FREE_CHECK_CHUNK = 10_000;
+    // во сколько раз больше нужного берется лучших по релевантности кандидатов до проверки их занятости
+    private static final int RELEVANT_FREE_OVERFETCH = 2;
+
     private final UserService userService;
     private final JpaBookingRepository bookingRepository;
     private final JpaItemRepository itemRepository;
     private final JpaCommentRepository jpaCommentRepository;
     private final JpaItemRequestRepository jpaItemRequestRepository;
+    private final ItemBookingVersions itemBookingVersions;
+    private final JpaBookingArchiveRepository archiveRepository;
+    private final ItemBookingTimelineCache timelineCache;
+    private final CommentEligibilityCache commentEligibilityCache;
+    private final ItemCalendarCache calendarCache;
+    private final ItemSearchIndex searchIndex;
+    private final ItemNameSuggester nameSuggester;
 
     @Override
     public ItemOnlyResponseDto create(Long ownerId, CreateItemRequestDto createItemRequestDto) {
@@ -45,9 +68,11 @@ public class ItemServiceImpl implements ItemService {
                     .orElseThrow(() -> new ObjectNotFoundException("запрос на добавление вещи не найден"));
         }
 
-        Item item = ItemDtoMapper.mapperToItem(createItemRequestDto, ownerId, itemRequest);
+        Item item = itemRepository.save(ItemDtoMapper.mapperToItem(createItemRequestDto, ownerId, itemRequest));
+        searchIndex.index(item);
+        nameSuggester.index(item);
 
-        return ItemDtoMapper.mapperToItemOutDto(itemRepository.save(item));
+        return ItemDtoMapper.mapperToItemOutDto(item);
     }
 
     @Override
@@ -72,7 +97,37 @@ public class ItemServiceImpl implements ItemService {
             item.setAvailable(updateItem.getAvailable());
         }
 
-        return ItemDtoMapper.mapperToItemOutDto(itemRepository.save(item));
+        Item saved = itemRepository.save(item);
+        searchIndex.index(saved);
+        nameSuggester.index(saved);
+
+        return ItemDtoMapper.mapperToItemOutDto(saved);
+    }
+
+    /**
+     * Вещи удаляются вместе с владельцем каскадом в базе, поэтому их id читаются до удаления,
+     * а из поискового индекса и подсказок убираются после фиксации.
+     */
+    @EventListener
+    public void onUserDeleted(UserDeletedEvent event) {
+        List<Long> itemIds = itemRepository.findIdsByOwnerId(event.getUserId());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            removeFromSearch(itemIds);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                removeFromSearch(itemIds);
+            }
+        });
+    }
+
+    private void removeFromSearch(List<Long> itemIds) {
+        searchIndex.remove(itemIds);
+        nameSuggester.remove(itemIds);
     }
 
     @Override
@@ -81,6 +136,11 @@ public class ItemServiceImpl implements ItemService {
                 .orElseThrow(() -> new ObjectNotFoundException(String.format("Вещь с id %s не найдена", itemId)));
     }
 
+    @Override
+    public List<Item> getItemsByIds(Collection<Long> itemIds) {
+        return itemRepository.findAllById(itemIds);
+    }
+
     @Override
     public ItemBookingCommentsResponseDto getByItemId(Long itemId, Long userId) {
         if (!userService.isPresent(userId)) {
@@ -94,8 +154,11 @@ public class ItemServiceImpl implements ItemService {
             itemBookingCommentsResponseDto.setNextBooking(null);
             itemBookingCommentsResponseDto.setLastBooking(null);
         } else {
-            addShortBookingsToItemBookerOutDto(itemBookingCommentsResponseDto,
-                    bookingRepository.getShortBookingsByItemId(itemId, BookingStatus.APPROVED), LocalDateTime.now());
+            LocalDateTime now = LocalDateTime.now();
+            ItemBookingTimeline timeline = timelineCache.get(itemId, this::getApprovedShortBookings);
+
+            itemBookingCommentsResponseDto.setLastBooking(timeline.last(now));
+            itemBookingCommentsResponseDto.setNextBooking(timeline.next(now));
         }
 
         Optional<List<CommentResponseDto>> optionalCommentOutDtoList =
@@ -121,42 +184,119 @@ public class ItemServiceImpl implements ItemService {
                 Sort.by(Sort.Direction.ASC, "id"));
 
         List<Item> items = itemRepository.findItemByOwnerId(ownerId, pageable).getContent();
+        LocalDateTime now = LocalDateTime.now();
 
-        List<ShortBooking> shortBookingList =
-                bookingRepository.getShortBookingsByItemsOwnerId(ownerId, BookingStatus.APPROVED);
+        Map<Long, List<ShortBooking>> bookingsByItemId = bookingRepository.findLastAndNextApprovedBookings(
+                        items.stream().map(Item::getId).collect(Collectors.toList()), now).stream()
+                .collect(Collectors.groupingBy(ShortBooking::getItemId));
 
         List<ItemBookingCommentsResponseDto> itemBookingCommentsResponseDtoList = new ArrayList<>();
 
         for (Item item : items) {
-            List<ShortBooking> shortBookingListForItem = shortBookingList.stream()
-                    .filter(entity -> Objects.equals(entity.getItemId(), item.getId()))
-                    .sorted(Comparator.comparing(ShortBooking::getStart))
-                    .sorted(Comparator.comparing(ShortBooking::getBookerId))
-                    .collect(Collectors.toList());
-
             itemBookingCommentsResponseDtoList.add(
                     addShortBookingsToItemBookerOutDto(ItemDtoMapper.mapperToItemBookerOutDto(item),
-                            shortBookingListForItem, LocalDateTime.now()));
+                            bookingsByItemId.getOrDefault(item.getId(), List.of()), now));
         }
 
         return itemBookingCommentsResponseDtoList;
     }
 
     @Override
-    public List<ItemOnlyResponseDto> searchByText(String textForSearch, Long from, Long size) {
+    public String getAvailabilityTag(Long itemId) {
+        if (!itemRepository.existsById(itemId)) {
+            throw new ObjectNotFoundException(String.format("Вещь с id %s не найдена", itemId));
+        }
+
+        return itemBookingVersions.tag(itemId);
+    }
+
+    @Override
+    public ItemAvailabilityDto getAvailability(Long itemId, LocalDateTime from, LocalDateTime to,
+                                               boolean includeWaiting) {
+        if (!from.isBefore(to)) {
+            throw new BadRequestException("getAvailability", "начало диапазона не раньше окончания");
+        }
+
+        if (!itemRepository.existsById(itemId)) {
+            throw new ObjectNotFoundException(String.format("Вещь с id %s не найдена", itemId));
+        }
+
+        Set<BookingStatus> statuses = includeWaiting
+                ? EnumSet.of(BookingStatus.APPROVED, BookingStatus.WAITING)
+                : EnumSet.of(BookingStatus.APPROVED);
+
+        return new ItemAvailabilityDto(itemId, from, to, AvailabilitySweep.freePeriods(
+                bookingRepository.getShortBookingsInRange(itemId, statuses, from, to), from, to));
+    }
+
+    @Override
+    public ItemCalendarDto getCalendarVersion(Long itemId, Long ownerId) {
+        if (!Objects.equals(getItemById(itemId).getOwnerId(), ownerId)) {
+            throw new ObjectNotFoundException("Несоответствие id владельца");
+        }
+
+        return new ItemCalendarDto(itemBookingVersions.tag(itemId), itemBookingVersions.lastChanged(itemId), null);
+    }
+
+    @Override
+    public ItemCalendarDto getCalendar(Long itemId, Long ownerId) {
+        ItemCalendarDto version = getCalendarVersion(itemId, ownerId);
+        ItemCalendar calendar = calendarCache.get(itemId, version.getTag(), version.getLastModified(),
+                this::getAllApprovedShortBookings);
+
+        return new ItemCalendarDto(calendar.tag(), calendar.lastModified(), calendar.body());
+    }
+
+    @Override
+    public List<ItemOnlyResponseDto> searchByText(String textForSearch, LocalDateTime start, LocalDateTime end,
+                                                  ItemSearchSort sort, boolean fuzzy, Long from, Long size) {
+        if ((start == null) != (end == null)) {
+            throw new BadRequestException("searchByText", "период задается обеими датами start и end");
+        }
+
+        if (start != null && !start.isBefore(end)) {
+            throw new BadRequestException("searchByText", "дата окончания раньше начала или равны");
+        }
+
         if (textForSearch.isBlank()) {
             return new ArrayList<>();
         }
 
-        Pageable pageable = PageRequest.of(Math.toIntExact(from) / Math.toIntExact(size),
-                Math.toIntExact(size),
-                Sort.by(Sort.Direction.ASC, "id"));
+        int pageSize = Math.toIntExact(size);
+        int offset = Math.toIntExact(from) / pageSize * pageSize;
+
+        List<Long> pageIds;
 
-        return itemRepository.some(textForSearch, pageable).stream()
+        if (sort == ItemSearchSort.RELEVANCE) {
+            pageIds = relevantPageOf(textForSearch, fuzzy, start, end, offset, pageSize);
+        } else {
+            long[] found = searchIndex.search(textForSearch, fuzzy);
+            pageIds = start == null
+                    ? pageOf(found, offset, pageSize)
+                    : freePageOf(found, start, end, offset, pageSize);
+        }
+
+        Map<Long, Item> items = itemRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Item::getId, item -> item));
+
+        // вещь, удаленную с владельцем между поиском и чтением, сервис пользователей уберет из индекса сам
+        return pageIds.stream()
+                .map(items::get)
+                .filter(Objects::nonNull)
                 .map(ItemDtoMapper::mapperToItemOutDto)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<ItemSuggestionDto> suggest(String prefix, int limit) {
+        if (limit < 1 || limit > ItemNameSuggester.MAX_LIMIT) {
+            throw new BadRequestException("suggest",
+                    String.format("limit должен быть от 1 до %d", ItemNameSuggester.MAX_LIMIT));
+        }
+
+        return nameSuggester.suggest(prefix, limit);
+    }
+
     @Override
     public CommentResponseDto addComment(Long authorId, Long itemId, CommentRequestDto text) {
         if (!userService.isPresent(authorId)) {
@@ -167,9 +307,8 @@ public class ItemServiceImpl implements ItemService {
             throw new BadRequestException("addComment", "Вещь не существует");
         }
 
-        if (bookingRepository.countApprovedBookingsForUserAndItemAnEarlyEndDate(
-                        authorId, itemId, LocalDateTime.now())
-                .isEmpty()) {
+        if (!commentEligibilityCache.isEligible(authorId, itemId,
+                () -> bookingRepository.existsApprovedBookingEndedBefore(authorId, itemId, LocalDateTime.now()))) {
             throw new BadRequestException("addComment",
                     "Пользователь еще не арендовал эту вещь или аренда еще не закончилась");
         }
@@ -184,6 +323,93 @@ public class ItemServiceImpl implements ItemService {
         return CommentDtoMapper.commentCommentOutDtoMapper(jpaCommentRepository.save(comment));
     }
 
+    private static List<Long> pageOf(long[] ids, int offset, int size) {
+        int fromIndex = Math.min(offset, ids.length);
+
+        return Arrays.stream(ids, fromIndex, fromIndex + Math.min(size, ids.length - fromIndex))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    // свободные вещи отбирает анти-соединение в базе по порциям найденных id, обычно одной:
+    // запрос порции возвращает не больше свободных id, чем еще осталось пропустить и взять
+    private List<Long> freePageOf(long[] ids, LocalDateTime start, LocalDateTime end, int offset, int size) {
+        List<Long> page = new ArrayList<>();
+        int toSkip = offset;
+
+        for (int chunkStart = 0; chunkStart < ids.length && page.size() < size; chunkStart += FREE_CHECK_CHUNK) {
+            List<Long> free = itemRepository.findFreeIds(pageOf(ids, chunkStart, FREE_CHECK_CHUNK),
+                    BookingStatus.APPROVED, start, end, PageRequest.ofSize(toSkip + size - page.size()));
+            int skipped = Math.min(toSkip, free.size());
+
+            toSkip -= skipped;
+            page.addAll(free.subList(skipped, free.size()));
+        }
+
+        return page;
+    }
+
+    // при периоде занятые вещи среди всех найденных читаются заранее и отсекаются фильтром ранжирования,
+    // поэтому страница набирается из свободных вещей любой глубины рейтинга за один проход оценки
+    // сначала ранжирование, затем проверка занятости только лучших кандидатов: берется вдвое больше нужного
+    // и удваивается, пока страница не наберется или совпадения не кончатся; занятые уже проверенные
+    // кандидаты отсеивает фильтр ранжирования, свободные повторно не проверяются
+    private List<Long> relevantPageOf(String text, boolean fuzzy, LocalDateTime start, LocalDateTime end,
+                                      int offset, int size) {
+        int wanted = offset + size;
+
+        if (start == null) {
+            return pageOf(searchIndex.searchByRelevance(text, fuzzy, wanted, itemId -> true), offset, size);
+        }
+
+        Set<Long> booked = new HashSet<>();
+        Set<Long> free = new HashSet<>();
+
+        for (int limit = wanted * RELEVANT_FREE_OVERFETCH; ; limit *= 2) {
+            long[] ranked = searchIndex.searchByRelevance(text, fuzzy, limit, itemId -> !booked.contains(itemId));
+            List<Long> unchecked = Arrays.stream(ranked)
+                    .boxed()
+                    .filter(itemId -> !free.contains(itemId))
+                    .collect(Collectors.toList());
+
+            for (int chunkStart = 0; chunkStart < unchecked.size(); chunkStart += FREE_CHECK_CHUNK) {
+                List<Long> chunk = unchecked.subList(chunkStart,
+                        Math.min(chunkStart + FREE_CHECK_CHUNK, unchecked.size()));
+                booked.addAll(bookingRepository.findBookedItemIds(chunk, BookingStatus.APPROVED, start, end));
+            }
+
+            unchecked.stream()
+                    .filter(itemId -> !booked.contains(itemId))
+                    .forEach(free::add);
+
+            long[] freeRanked = Arrays.stream(ranked)
+                    .filter(itemId -> !booked.contains(itemId))
+                    .toArray();
+
+            if (freeRanked.length >= wanted || ranked.length < limit) {
+                return pageOf(freeRanked, offset, size);
+            }
+        }
+    }
+
+    // из архива нужно только самое позднее бронирование: все архивные уже начались
+    private List<ShortBooking> getApprovedShortBookings(Long itemId) {
+        List<ShortBooking> bookings =
+                new ArrayList<>(bookingRepository.getShortBookingsByItemId(itemId, BookingStatus.APPROVED));
+        bookings.addAll(archiveRepository.getLastApprovedBookings(List.of(itemId)));
+
+        return bookings;
+    }
+
+    // календарь показывает и перенесенные в архив бронирования, иначе архивация убирала бы их у подписчиков
+    private List<ShortBooking> getAllApprovedShortBookings(Long itemId) {
+        List<ShortBooking> bookings = new ArrayList<>(
+                bookingRepository.getShortBookingsByItemId(itemId, BookingStatus.APPROVED));
+        bookings.addAll(archiveRepository.getShortBookingsByItemId(itemId, BookingStatus.APPROVED));
+
+        return bookings;
+    }
+
     private ItemBookingCommentsResponseDto addShortBookingsToItemBookerOutDto(
             ItemBookingCommentsResponseDto itemBookingCommentsResponseDto,
             List<ShortBooking> shortBookingList,
@@ -0,0 +1,13 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Пользователь сохранен. Публикуется после фиксации вставки строки users.
+ */
+@AllArgsConstructor
+@Data
+public class UserCreatedEvent {
+    private Long userId;
+}
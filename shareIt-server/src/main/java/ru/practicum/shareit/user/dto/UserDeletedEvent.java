@@ -0,0 +1,15 @@
+package ru.practicum.shareit.user.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Пользователь удаляется. Публикуется в транзакции удаления до удаления строки users, пока каскадно
+ * удаляемые вещи и бронирования еще видны: слушатели читают их в той же транзакции, а структуры в памяти
+ * освобождают после ее фиксации.
+ */
+@AllArgsConstructor
+@Data
+public class UserDeletedEvent {
+    private Long userId;
+}
@@ -1,12 +1,16 @@
 package ru.practicum.shareit.user.service;
 
 import lombok.AllArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.AvailabilityException;
 import ru.practicum.shareit.exception.EmailValidException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.user.dto.UpdateUserRequestDto;
+import ru.practicum.shareit.user.dto.UserCreatedEvent;
+import ru.practicum.shareit.user.dto.UserDeletedEvent;
 import ru.practicum.shareit.user.dto.UserDtoMapper;
 import ru.practicum.shareit.user.dto.UserRequestDto;
 import ru.practicum.shareit.user.dto.UserResponseDto;
@@ -21,15 +25,20 @@ import java.util.stream.Collectors;
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
     private final JpaUserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public UserResponseDto create(UserRequestDto userRequestDto) {
+        User user;
+
         try {
-            return UserDtoMapper
-                    .mapperToUserResponseDto(userRepository.save(UserDtoMapper.mapperToUser(userRequestDto)));
+            user = userRepository.save(UserDtoMapper.mapperToUser(userRequestDto));
         } catch (DataIntegrityViolationException e) {
             throw new AvailabilityException("Адрес электронной почты уже используется");
         }
+
+        eventPublisher.publishEvent(new UserCreatedEvent(user.getId()));
+        return UserDtoMapper.mapperToUserResponseDto(user);
     }
 
     @Override
@@ -55,11 +64,13 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Transactional
     public void delete(Long userId) {
         if (!userRepository.existsById(userId)) {
             throw new ObjectNotFoundException("пользователь не найден");
         }
 
+        eventPublisher.publishEvent(new UserDeletedEvent(userId));
         userRepository.deleteById(userId);
     }
 
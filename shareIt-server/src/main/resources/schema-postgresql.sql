@@ -0,0 +1,42 @@
+-- Выполняется после schema.sql при spring.sql.init.platform=postgresql:
+-- booking пересоздается секционированной по месяцам start_time.
+-- Секции месяцев создает BookingPartitionMaintainer, строки вне созданных секций попадают в booking_default
+-- и переносятся в секцию своего месяца, когда она создается.
+
+DROP TABLE IF EXISTS booking CASCADE;
+
+CREATE TABLE booking
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    start_time TIMESTAMP                               NOT NULL,
+    end_time   TIMESTAMP                               NOT NULL,
+    status     VARCHAR(50)                             NOT NULL,
+    item_id    BIGINT                                  NOT NULL,
+    booker_id  BIGINT                                  NOT NULL,
+    phase      VARCHAR(10)                             NOT NULL,
+    version    BIGINT DEFAULT 0                        NOT NULL,
+    -- ключ секционированной таблицы обязан содержать start_time, поиск по id идет по его первой колонке
+    CONSTRAINT pk_booking PRIMARY KEY (id, start_time),
+    CONSTRAINT check_status_booking CHECK (status IN ('WAITING', 'APPROVED', 'REJECTED')),
+    CONSTRAINT check_phase_booking CHECK (phase IN ('FUTURE', 'CURRENT', 'PAST')),
+    CONSTRAINT fk_booking_items FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE,
+    CONSTRAINT fk_booking_users FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE
+) PARTITION BY RANGE (start_time);
+
+CREATE TABLE booking_default PARTITION OF booking DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_start ON booking (booker_id, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_phase_start ON booking (booker_id, phase, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_item_status_start ON booking (item_id, status, start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_item_phase_start ON booking (item_id, phase, start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_status_end ON booking (status, end_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_end ON booking (end_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_start ON booking (start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_item_status_end ON booking (booker_id, item_id, status, end_time);
@@ -1,4 +1,5 @@
-DROP TABLE IF EXISTS users, items, booking, comments, item_requests CASCADE;
+DROP TABLE IF EXISTS users, items, booking, booking_archive, booking_outbox, comments, item_requests, owner_booking_stats
+    CASCADE;
 
 CREATE TABLE IF NOT EXISTS users
 (
@@ -29,12 +30,43 @@ CREATE TABLE IF NOT EXISTS booking
     status     VARCHAR(50)                             NOT NULL,
     item_id    BIGINT                                  NOT NULL,
     booker_id  BIGINT                                  NOT NULL,
+    phase      VARCHAR(10)                             NOT NULL,
+    version    BIGINT DEFAULT 0                        NOT NULL,
     CONSTRAINT pk_booking PRIMARY KEY (id),
     CONSTRAINT check_status_booking CHECK (status IN ('WAITING', 'APPROVED', 'REJECTED')),
+    CONSTRAINT check_phase_booking CHECK (phase IN ('FUTURE', 'CURRENT', 'PAST')),
     CONSTRAINT fk_booking_items FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE,
     CONSTRAINT fk_booking_users FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS booking_archive
+(
+    id         BIGINT       NOT NULL,
+    start_time TIMESTAMP    NOT NULL,
+    end_time   TIMESTAMP    NOT NULL,
+    status     VARCHAR(50)  NOT NULL,
+    item_id    BIGINT       NOT NULL,
+    booker_id  BIGINT       NOT NULL,
+    owner_id   BIGINT       NOT NULL,
+    CONSTRAINT pk_booking_archive PRIMARY KEY (id),
+    CONSTRAINT fk_booking_archive_items FOREIGN KEY (item_id) REFERENCES items (id) ON DELETE CASCADE,
+    CONSTRAINT fk_booking_archive_users FOREIGN KEY (booker_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS booking_outbox
+(
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
+    booking_id BIGINT                                  NOT NULL,
+    event_type VARCHAR(20)                             NOT NULL,
+    item_id    BIGINT                                  NOT NULL,
+    booker_id  BIGINT                                  NOT NULL,
+    start_time TIMESTAMP                               NOT NULL,
+    end_time   TIMESTAMP                               NOT NULL,
+    created    TIMESTAMP                               NOT NULL,
+    CONSTRAINT pk_booking_outbox PRIMARY KEY (id),
+    CONSTRAINT check_event_type_booking_outbox CHECK (event_type IN ('CREATED', 'APPROVED', 'REJECTED'))
+);
+
 CREATE TABLE IF NOT EXISTS comments
 (
     id           BIGINT GENERATED BY DEFAULT AS IDENTITY NOT NULL,
@@ -57,8 +89,48 @@ CREATE TABLE IF NOT EXISTS item_requests
     CONSTRAINT fk_requests_users FOREIGN KEY (author_id) REFERENCES users (id) ON DELETE CASCADE
 );
 
+CREATE TABLE IF NOT EXISTS owner_booking_stats
+(
+    owner_id       BIGINT           NOT NULL,
+    all_count      BIGINT DEFAULT 0 NOT NULL,
+    waiting_count  BIGINT DEFAULT 0 NOT NULL,
+    rejected_count BIGINT DEFAULT 0 NOT NULL,
+    current_count  BIGINT DEFAULT 0 NOT NULL,
+    future_count   BIGINT DEFAULT 0 NOT NULL,
+    past_count     BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_owner_booking_stats PRIMARY KEY (owner_id),
+    CONSTRAINT fk_owner_booking_stats_users FOREIGN KEY (owner_id) REFERENCES users (id) ON DELETE CASCADE
+);
+
 ALTER TABLE items
     ADD CONSTRAINT fk_items_item_requests FOREIGN KEY (request_id)
         REFERENCES item_requests (id)
         ON DELETE SET NULL
-;
\ No newline at end of file
+;
+
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id, id);
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_start ON booking (booker_id, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_phase_start ON booking (booker_id, phase, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_item_status_start ON booking (item_id, status, start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_item_phase_start ON booking (item_id, phase, start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_status_end ON booking (status, end_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_end ON booking (end_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_start ON booking (start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_booker_item_status_end ON booking (booker_id, item_id, status, end_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_archive_booker_start ON booking_archive (booker_id, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_archive_owner_start ON booking_archive (owner_id, start_time DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_booking_archive_item_status_start ON booking_archive (item_id, status, start_time);
+
+CREATE INDEX IF NOT EXISTS idx_booking_archive_booker_item_status_end
+    ON booking_archive (booker_id, item_id, status, end_time);
@@ -0,0 +1,210 @@
+package ru.practicum.shareit.booking.archive;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import ru.practicum.shareit.booking.dto.BookingRequestDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+import ru.practicum.shareit.item.dto.CommentRequestDto;
+import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemOnlyResponseDto;
+import ru.practicum.shareit.item.repository.JpaItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserRequestDto;
+import ru.practicum.shareit.user.dto.UserResponseDto;
+import ru.practicum.shareit.user.repository.JpaUserRepository;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class BookingArchiverIntegrationTest {
+    @Autowired
+    BookingArchiver archiver;
+    @Autowired
+    BookingService bookingService;
+    @Autowired
+    UserService userService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    OwnerBookingStatsService statsService;
+    @Autowired
+    ItemBookingVersions itemBookingVersions;
+
+    @Autowired
+    JpaUserRepository userRepository;
+    @Autowired
+    JpaItemRepository itemRepository;
+    @Autowired
+    JpaBookingRepository bookingRepository;
+    @Autowired
+    JpaBookingArchiveRepository archiveRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private UserResponseDto owner;
+    private UserResponseDto tenant;
+    private ItemOnlyResponseDto item;
+    private ItemOnlyResponseDto rarelyBookedItem;
+    private LocalDateTime now;
+    private Long oldest;
+    private Long longRunning;
+    private Long archivedLater;
+    private Long future;
+
+    @BeforeEach
+    void setUp() {
+        owner = userService.create(new UserRequestDto("owner@mail.com", "owner"));
+        tenant = userService.create(new UserRequestDto("tenant@mail.com", "tenant"));
+        item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item").description("item description").available(true).build());
+        rarelyBookedItem = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("rare").description("rare description").available(true).build());
+        now = LocalDateTime.now().withNano(0);
+
+        oldest = insertPastBooking(rarelyBookedItem.getId(), now.minusDays(200), now.minusDays(199));
+        // началось раньше архивного, но закончилось недавно - остается в booking
+        longRunning = insertPastBooking(item.getId(), now.minusDays(180), now.minusDays(1));
+        archivedLater = insertPastBooking(item.getId(), now.minusDays(150), now.minusDays(149));
+        future = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), now.plusDays(1), now.plusDays(2))).getId();
+    }
+
+    @Test
+    void archive_movesOnlyBookingsEndedBeforeCutoff() {
+        assertThat(archiver.archive(now.minusDays(90))).isEqualTo(2);
+        assertThat(archiver.archive(now.minusDays(90))).isZero();
+
+        assertThat(archiveRepository.findAll()).extracting(archived -> archived.getId())
+                .containsExactlyInAnyOrder(oldest, archivedLater);
+        assertThat(archiveRepository.findById(oldest).orElseThrow().getOwnerId()).isEqualTo(owner.getId());
+        assertThat(bookingRepository.findAll()).extracting(booking -> booking.getId())
+                .containsExactlyInAnyOrder(longRunning, future);
+    }
+
+    @Test
+    void archive_changesVersionsOfArchivedItems() {
+        String itemTag = itemBookingVersions.tag(item.getId());
+        String rareTag = itemBookingVersions.tag(rarelyBookedItem.getId());
+
+        archiver.archive(now.minusDays(90));
+
+        assertThat(itemBookingVersions.tag(item.getId())).isNotEqualTo(itemTag);
+        assertThat(itemBookingVersions.tag(rarelyBookedItem.getId())).isNotEqualTo(rareTag);
+
+        String archivedTag = itemBookingVersions.tag(item.getId());
+        archiver.archive(now.minusDays(90));
+
+        assertThat(itemBookingVersions.tag(item.getId())).isEqualTo(archivedTag);
+    }
+
+    @Test
+    void getBookings_mergeArchiveInStartOrder() {
+        archiver.archive(now.minusDays(90));
+
+        assertThat(ids(bookingService.getBookingsByBookerId(tenant.getId(), BookingState.ALL, 0L, 10L)))
+                .containsExactly(future, archivedLater, longRunning, oldest);
+        assertThat(ids(bookingService.getBookingsByOwnerId(owner.getId(), BookingState.PAST, 0L, 10L)))
+                .containsExactly(archivedLater, longRunning, oldest);
+        assertThat(ids(bookingService.getBookingsByOwnerId(owner.getId(), BookingState.PAST, 1L, 1L)))
+                .containsExactly(longRunning);
+        assertThat(ids(bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 1L)))
+                .containsExactly(future);
+        assertThat(bookingService.getBookingsByOwnerId(owner.getId(), BookingState.FUTURE, 0L, 10L)).hasSize(1);
+    }
+
+    @Test
+    void getBookingsAfterCursor_pagesThroughArchive() {
+        archiver.archive(now.minusDays(90));
+
+        BookingSliceResponseDto first =
+                bookingService.getBookingsByOwnerIdAfterCursor(owner.getId(), BookingState.ALL, null, 2L);
+        BookingSliceResponseDto second =
+                bookingService.getBookingsByOwnerIdAfterCursor(owner.getId(), BookingState.ALL,
+                        first.getNextCursor(), 2L);
+
+        assertThat(ids(first.getBookings())).containsExactly(future, archivedLater);
+        assertThat(ids(second.getBookings())).containsExactly(longRunning, oldest);
+        assertThat(second.getNextCursor()).isNull();
+    }
+
+    @Test
+    void archivedBookings_remainVisibleEverywhere() throws IOException {
+        archiver.archive(now.minusDays(90));
+
+        assertThat(bookingService.getBookingById(tenant.getId(), oldest).getItem().getName()).isEqualTo("rare");
+        assertThat(itemService.getByItemId(rarelyBookedItem.getId(), owner.getId()).getLastBooking().getId())
+                .isEqualTo(oldest);
+        assertThat(itemService.getByUserId(owner.getId(), 0L, 10L).stream()
+                .map(withBookings -> withBookings.getLastBooking().getId())
+                .collect(Collectors.toList()))
+                .containsExactly(archivedLater, oldest);
+
+        CommentRequestDto comment = new CommentRequestDto();
+        comment.setText("давно брал, все работало");
+        assertThat(itemService.addComment(tenant.getId(), rarelyBookedItem.getId(), comment).getId()).isNotNull();
+
+        statsService.reconcile();
+        assertThat(bookingService.getOwnerStats(owner.getId()))
+                .containsEntry(BookingState.ALL, 4L)
+                .containsEntry(BookingState.PAST, 3L);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        bookingService.exportOwnerBookings(owner.getId()).writeTo(outputStream);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8).split("\n")).hasSize(4);
+    }
+
+    @AfterEach
+    void clear() {
+        bookingRepository.deleteAll();
+        archiveRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private Long insertPastBooking(Long itemId, LocalDateTime start, LocalDateTime end) {
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+
+        jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement("insert into booking " +
+                    "(start_time, end_time, status, item_id, booker_id, phase) values (?, ?, 'APPROVED', ?, ?, 'PAST')",
+                    new String[]{"id"});
+            statement.setTimestamp(1, Timestamp.valueOf(start));
+            statement.setTimestamp(2, Timestamp.valueOf(end));
+            statement.setLong(3, itemId);
+            statement.setLong(4, tenant.getId());
+            return statement;
+        }, keyHolder);
+
+        return Objects.requireNonNull(keyHolder.getKey()).longValue();
+    }
+
+    private List<Long> ids(List<BookingResponseDto> bookings) {
+        return bookings.stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
+    }
+}
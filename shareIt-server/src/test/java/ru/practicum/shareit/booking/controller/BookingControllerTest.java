@@ -6,23 +6,34 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.service.BookingService;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = BookingController.class)
@@ -67,6 +78,88 @@ class BookingControllerTest {
                 .andExpect(jsonPath("$.item.name").value("some"));
     }
 
+    @SneakyThrows
+    @Test
+    void createBatchCorrect() {
+        BookingRequestDto first = new BookingRequestDto(1L,
+                LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2));
+        BookingRequestDto second = new BookingRequestDto(2L,
+                LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2));
+
+        when(bookingService.createBatch(anyLong(), anyList()))
+                .thenReturn(List.of(
+                        BookingBatchResultDto.created(new BookingResponseDto(5L, first.getStart(), first.getEnd(),
+                                BookingStatus.WAITING, 1L, 1L, "some")),
+                        BookingBatchResultDto.failed(HttpStatus.CONFLICT, "период пересекается с бронированием 3")));
+
+        mockMvc.perform(post("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .content(objectMapper.writeValueAsString(List.of(first, second)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].booking.id").value(5))
+                .andExpect(jsonPath("$[0].error").doesNotExist())
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].booking").doesNotExist())
+                .andExpect(jsonPath("$[1].error").value("период пересекается с бронированием 3"));
+    }
+
+    @SneakyThrows
+    @Test
+    void updateAllCorrect() {
+        when(bookingService.updateApproveAll(1L, List.of(1L, 2L, 3L), true))
+                .thenReturn(new BookingDecisionResultDto(List.of(1L, 3L), List.of(2L)));
+
+        mockMvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", 1L)
+                        .param("approved", "true")
+                        .content(objectMapper.writeValueAsString(List.of(1L, 2L, 3L)))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated[0]").value(1))
+                .andExpect(jsonPath("$.updated[1]").value(3))
+                .andExpect(jsonPath("$.skipped[0]").value(2));
+    }
+
+    @SneakyThrows
+    @Test
+    void getOwnerStatsCorrect() {
+        when(bookingService.getOwnerStats(1L))
+                .thenReturn(Map.of(BookingState.ALL, 3L, BookingState.WAITING, 1L));
+
+        mockMvc.perform(get("/bookings/owner/stats")
+                        .header("X-Sharer-User-Id", 1L)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.ALL").value(3))
+                .andExpect(jsonPath("$.WAITING").value(1));
+    }
+
+    @SneakyThrows
+    @Test
+    void exportOwnerBookingsStreamsNdjson() {
+        when(bookingService.exportOwnerBookings(1L))
+                .thenReturn(outputStream -> outputStream.write("{\"id\":1}\n{\"id\":2}\n".getBytes()));
+
+        MvcResult result = mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 1L))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_NDJSON_VALUE))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+    }
+
     @SneakyThrows
     @Test
     void createWithoutRequestBody() {
@@ -153,4 +246,35 @@ class BookingControllerTest {
 
         verify(bookingService).getBookingsByOwnerId(1L, BookingState.ALL, 0L, 3L);
     }
-}
\ No newline at end of file
+
+    @SneakyThrows
+    @Test
+    void getBookingsByBookerIdAfterCursorReturnsNextCursorHeader() {
+        when(bookingService.getBookingsByBookerIdAfterCursor(1L, BookingState.ALL, "", 3L))
+                .thenReturn(new BookingSliceResponseDto(List.of(), "next"));
+
+        mockMvc.perform(get("/bookings")
+                        .header("X-Sharer-User-Id", "1")
+                        .param("state", "ALL")
+                        .param("cursor", "")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(BookingController.NEXT_CURSOR_HEADER, "next"));
+
+        verify(bookingService, never()).getBookingsByBookerId(anyLong(), any(BookingState.class), anyLong(), anyLong());
+    }
+
+    @SneakyThrows
+    @Test
+    void getBookingsByOwnerIdAfterCursorOnLastPage() {
+        when(bookingService.getBookingsByOwnerIdAfterCursor(1L, BookingState.ALL, "abc", 3L))
+                .thenReturn(new BookingSliceResponseDto(List.of(), null));
+
+        mockMvc.perform(get("/bookings/owner")
+                        .header("X-Sharer-User-Id", "1")
+                        .param("cursor", "abc")
+                        .param("size", "3"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(BookingController.NEXT_CURSOR_HEADER));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookingIntervalTreeTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    @Test
+    void findOverlappingHalfOpenIntervals() {
+        BookingIntervalTree tree = new BookingIntervalTree();
+        tree.insert(1L, hour(10), hour(12));
+
+        assertEquals(Optional.of(1L), tree.findOverlapping(hour(11), hour(13)));
+        assertEquals(Optional.of(1L), tree.findOverlapping(hour(9), hour(11)));
+        assertEquals(Optional.of(1L), tree.findOverlapping(hour(9), hour(13)));
+        assertFalse(tree.findOverlapping(hour(12), hour(14)).isPresent());
+        assertFalse(tree.findOverlapping(hour(8), hour(10)).isPresent());
+    }
+
+    @Test
+    void removeFreesPeriod() {
+        BookingIntervalTree tree = new BookingIntervalTree();
+        tree.insert(1L, hour(10), hour(12));
+        tree.insert(2L, hour(14), hour(16));
+
+        tree.remove(1L);
+        tree.remove(3L);
+
+        assertEquals(1, tree.size());
+        assertFalse(tree.findOverlapping(hour(10), hour(12)).isPresent());
+        assertTrue(tree.findOverlapping(hour(15), hour(17)).isPresent());
+    }
+
+    @Test
+    void matchesBruteForceOnRandomIntervals() {
+        Random random = new Random(42);
+        BookingIntervalTree tree = new BookingIntervalTree();
+        List<long[]> intervals = new ArrayList<>();
+
+        for (long id = 1; id <= 2000; id++) {
+            long start = random.nextInt(10_000);
+            long end = start + 1 + random.nextInt(50);
+            tree.insert(id, hour(start), hour(end));
+            intervals.add(new long[]{id, start, end});
+
+            if (random.nextInt(4) == 0) {
+                long[] removed = intervals.remove(random.nextInt(intervals.size()));
+                tree.remove(removed[0]);
+            }
+        }
+
+        assertEquals(intervals.size(), tree.size());
+
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt(10_000);
+            long end = start + 1 + random.nextInt(50);
+            boolean expected = intervals.stream().anyMatch(interval -> interval[1] < end && interval[2] > start);
+
+            Optional<Long> found = tree.findOverlapping(hour(start), hour(end));
+
+            assertEquals(expected, found.isPresent());
+            found.ifPresent(id -> assertTrue(intervals.stream()
+                    .anyMatch(interval -> interval[0] == id && interval[1] < end && interval[2] > start)));
+        }
+    }
+
+    private LocalDateTime hour(long hours) {
+        return BASE.plusHours(hours);
+    }
+}
@@ -0,0 +1,120 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(OutputCaptureExtension.class)
+class ItemBookingTimelineCacheTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+    private final ItemBookingVersions versions = new ItemBookingVersions();
+    private final List<Long> loaded = new ArrayList<>();
+
+    @Test
+    void lastAndNextAreNeighboursOfDatePoint() {
+        ItemBookingTimeline timeline = new ItemBookingTimeline("tag",
+                List.of(booking(1L, 1L, 10), booking(2L, 1L, 20), booking(3L, 1L, 30)));
+
+        assertEquals(2L, timeline.last(hour(25)).getId());
+        assertEquals(3L, timeline.next(hour(25)).getId());
+        assertEquals(1L, timeline.last(hour(20)).getId());
+        assertEquals(3L, timeline.next(hour(20)).getId());
+        assertNull(timeline.last(hour(10)));
+        assertNull(timeline.next(hour(30)));
+    }
+
+    @Test
+    void getLoadsOnceUntilVersionChanges() {
+        ItemBookingTimelineCache cache = new ItemBookingTimelineCache(versions, 100);
+
+        cache.get(1L, loader(2));
+        cache.get(1L, loader(2));
+        versions.changed(1L);
+        cache.get(1L, loader(2));
+
+        assertEquals(List.of(1L, 1L), loaded);
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(3, cache.cachedBookings());
+    }
+
+    @Test
+    void logStatsWritesCountersOnlyAfterRequests(CapturedOutput output) {
+        ItemBookingTimelineCache cache = new ItemBookingTimelineCache(versions, 100);
+
+        cache.logStats();
+        assertThat(output.getOut()).doesNotContain("ItemBookingTimelineCache");
+
+        cache.get(1L, loader(2));
+        cache.get(1L, loader(2));
+        cache.logStats();
+        cache.logStats();
+
+        assertThat(output.getOut()).containsOnlyOnce("ItemBookingTimelineCache").contains(" 2, ", " 1 (50%), ");
+    }
+
+    @Test
+    void getEvictsLeastRecentlyUsedOverLimit() {
+        ItemBookingTimelineCache cache = new ItemBookingTimelineCache(versions, 9);
+
+        cache.get(1L, loader(2));
+        cache.get(2L, loader(2));
+        cache.get(3L, loader(2));
+        cache.get(1L, loader(2));
+        cache.get(4L, loader(2));
+
+        assertEquals(1, cache.evictions());
+        assertEquals(9, cache.cachedBookings());
+
+        loaded.clear();
+        cache.get(1L, loader(2));
+        cache.get(2L, loader(2));
+
+        assertEquals(List.of(2L), loaded);
+    }
+
+    @Test
+    void getDoesNotCacheTimelineOverLimit() {
+        ItemBookingTimelineCache cache = new ItemBookingTimelineCache(versions, 3);
+
+        assertEquals(1L, cache.get(1L, loader(5)).next(BASE).getId());
+        cache.get(1L, loader(5));
+
+        assertEquals(2, cache.misses());
+        assertEquals(0, cache.cachedBookings());
+    }
+
+    private Function<Long, Collection<ShortBooking>> loader(int count) {
+        return itemId -> {
+            loaded.add(itemId);
+            List<ShortBooking> bookings = new ArrayList<>();
+
+            for (int i = 1; i <= count; i++) {
+                bookings.add(booking((long) i, itemId, i * 10));
+            }
+
+            return bookings;
+        };
+    }
+
+    private ShortBooking booking(Long id, Long itemId, int startHour) {
+        return new ShortBooking(id, 100L, hour(startHour), hour(startHour + 1), itemId);
+    }
+
+    private LocalDateTime hour(int hour) {
+        return BASE.plusHours(hour);
+    }
+}
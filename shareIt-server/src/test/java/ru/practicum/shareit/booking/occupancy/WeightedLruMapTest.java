@@ -0,0 +1,49 @@
+package ru.practicum.shareit.booking.occupancy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WeightedLruMapTest {
+    private final AtomicInteger evictions = new AtomicInteger();
+    private final WeightedLruMap<Long, List<Integer>> map = new WeightedLruMap<>(6, List::size,
+            evictions::incrementAndGet);
+
+    @Test
+    void evictsLeastRecentlyUsedOverWeight() {
+        map.put(1L, List.of(1, 2));
+        map.put(2L, List.of(1, 2));
+        map.get(1L);
+        map.put(3L, List.of(1, 2));
+
+        assertTrue(map.containsKey(1L));
+        assertFalse(map.containsKey(2L));
+        assertTrue(map.containsKey(3L));
+        assertEquals(6, map.weight());
+        assertEquals(1, evictions.get());
+    }
+
+    @Test
+    void replacingValueKeepsWeightExact() {
+        map.put(1L, List.of(1, 2, 3));
+        map.put(1L, List.of());
+
+        assertEquals(1, map.size());
+        assertEquals(1, map.weight());
+        assertEquals(0, evictions.get());
+    }
+
+    @Test
+    void skipsValueHeavierThanLimitAndDropsPrevious() {
+        map.put(1L, List.of(1));
+
+        assertFalse(map.put(1L, List.of(1, 2, 3, 4, 5, 6)));
+        assertFalse(map.containsKey(1L));
+        assertEquals(0, map.weight());
+    }
+}
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.booking.outbox;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.model.BookingOutboxEvent;
+import ru.practicum.shareit.booking.repository.JpaBookingOutboxRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingOutboxDispatcherTest {
+    @Mock
+    JpaBookingOutboxRepository outboxRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    private final List<Long> published = new ArrayList<>();
+    private BookingOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        BookingEventSink sink = event -> {
+            if (event.getId() == 1L) {
+                throw new IllegalStateException("приемник недоступен");
+            }
+            published.add(event.getId());
+        };
+        dispatcher = new BookingOutboxDispatcher(outboxRepository, List.of(sink), transactionManager);
+    }
+
+    @Test
+    void dispatchSkipsLaterEventsOfBookingWithFailedEvent() {
+        when(outboxRepository.lockAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(event(1L, 10L, BookingEventType.CREATED),
+                        event(2L, 20L, BookingEventType.CREATED),
+                        event(3L, 10L, BookingEventType.APPROVED),
+                        event(4L, 20L, BookingEventType.REJECTED)));
+
+        assertEquals(2, dispatcher.dispatch());
+
+        assertEquals(List.of(2L, 4L), published);
+        verify(outboxRepository).deleteDispatched(List.of(2L, 4L));
+        assertEquals(2, dispatcher.dispatched());
+        assertEquals(1, dispatcher.failed());
+    }
+
+    @Test
+    void dispatchPagesPastChunkOfFailingBooking() {
+        List<BookingOutboxEvent> blocked = new ArrayList<>();
+        for (long id = 1; id <= 200; id++) {
+            blocked.add(event(id, 10L, BookingEventType.CREATED));
+        }
+        when(outboxRepository.lockAfter(eq(0L), any(Pageable.class)))
+                .thenReturn(blocked);
+        when(outboxRepository.lockAfter(eq(200L), any(Pageable.class)))
+                .thenReturn(List.of(event(201L, 10L, BookingEventType.APPROVED),
+                        event(202L, 20L, BookingEventType.CREATED)));
+
+        assertEquals(1, dispatcher.dispatch());
+
+        assertEquals(List.of(202L), published);
+        verify(outboxRepository).deleteDispatched(List.of(202L));
+        assertEquals(1, dispatcher.failed());
+    }
+
+    @Test
+    void pendingLagIsZeroForEmptyOutbox() {
+        when(outboxRepository.findOldestCreated()).thenReturn(Optional.empty());
+
+        assertEquals(0, dispatcher.pendingLagMillis());
+    }
+
+    private BookingOutboxEvent event(Long id, Long bookingId, BookingEventType type) {
+        LocalDateTime now = LocalDateTime.now();
+        return new BookingOutboxEvent(id, bookingId, type, 1L, 2L, now.plusDays(1), now.plusDays(2), now);
+    }
+}
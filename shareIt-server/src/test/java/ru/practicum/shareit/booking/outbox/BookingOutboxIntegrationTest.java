@@ -0,0 +1,128 @@
+package ru.practicum.shareit.booking.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.PayloadApplicationEvent;
+import org.springframework.context.event.ApplicationEventMulticaster;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.dto.BookingRequestDto;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.booking.repository.JpaBookingOutboxRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemOnlyResponseDto;
+import ru.practicum.shareit.item.repository.JpaItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserRequestDto;
+import ru.practicum.shareit.user.dto.UserResponseDto;
+import ru.practicum.shareit.user.repository.JpaUserRepository;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class BookingOutboxIntegrationTest {
+    @Autowired
+    BookingOutboxDispatcher dispatcher;
+    @Autowired
+    BookingService bookingService;
+    @Autowired
+    UserService userService;
+    @Autowired
+    ItemService itemService;
+    @Autowired
+    ConfigurableApplicationContext applicationContext;
+
+    @Autowired
+    JpaUserRepository userRepository;
+    @Autowired
+    JpaItemRepository itemRepository;
+    @Autowired
+    JpaBookingRepository bookingRepository;
+    @Autowired
+    JpaBookingOutboxRepository outboxRepository;
+
+    private UserResponseDto owner;
+    private UserResponseDto tenant;
+    private ItemOnlyResponseDto item;
+    private final List<BookingEvent> events = new CopyOnWriteArrayList<>();
+    private final ApplicationListener<ApplicationEvent> listener = event -> {
+        if (event instanceof PayloadApplicationEvent
+                && ((PayloadApplicationEvent<?>) event).getPayload() instanceof BookingEvent) {
+            events.add((BookingEvent) ((PayloadApplicationEvent<?>) event).getPayload());
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        dispatcher.dispatch();
+        applicationContext.addApplicationListener(listener);
+
+        owner = userService.create(new UserRequestDto("owner@mail.com", "owner"));
+        tenant = userService.create(new UserRequestDto("tenant@mail.com", "tenant"));
+        item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item").description("item description").available(true).build());
+    }
+
+    @Test
+    void dispatch_deliversLifecycleEventsInOrder() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+        Long approved = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start, start.plusDays(1))).getId();
+        Long rejected = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start.plusDays(2), start.plusDays(3))).getId();
+        bookingService.updateApprove(owner.getId(), approved, true);
+        bookingService.updateApproveAll(owner.getId(), List.of(rejected), false);
+
+        // плановый проход мог доставить часть событий раньше, dispatch дожидается его и доставляет остальное
+        dispatcher.dispatch();
+
+        assertThat(events).extracting(BookingEvent::getBookingId, BookingEvent::getType)
+                .containsExactly(
+                        tuple(approved, BookingEventType.CREATED),
+                        tuple(rejected, BookingEventType.CREATED),
+                        tuple(approved, BookingEventType.APPROVED),
+                        tuple(rejected, BookingEventType.REJECTED));
+        assertThat(events.get(0).getStart()).isEqualTo(start);
+        assertThat(outboxRepository.count()).isZero();
+        assertThat(dispatcher.pendingLagMillis()).isZero();
+        assertThat(dispatcher.lastLagMillis()).isGreaterThanOrEqualTo(0);
+    }
+
+    @Test
+    void failedChange_writesNoEvent() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        Long bookingId = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start, start.plusDays(1))).getId();
+        bookingService.updateApprove(owner.getId(), bookingId, true);
+
+        assertThrows(BadRequestException.class, () -> bookingService.updateApprove(owner.getId(), bookingId, false));
+        dispatcher.dispatch();
+
+        assertThat(events).extracting(BookingEvent::getType)
+                .containsExactly(BookingEventType.CREATED, BookingEventType.APPROVED);
+    }
+
+    @AfterEach
+    void clear() {
+        applicationContext.getBean(ApplicationEventMulticaster.class).removeApplicationListener(listener);
+        outboxRepository.deleteAll();
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.shareit.booking.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingEventType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileBookingEventSinkTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void publishAppendsJsonLines() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Path file = directory.resolve("events.jsonl");
+        FileBookingEventSink sink = new FileBookingEventSink(file, objectMapper);
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+        BookingEvent created = new BookingEvent(1L, 10L, BookingEventType.CREATED, 2L, 3L,
+                start, start.plusDays(1), start.minusDays(1));
+        BookingEvent approved = new BookingEvent(2L, 10L, BookingEventType.APPROVED, 2L, 3L,
+                start, start.plusDays(1), start.minusDays(1));
+        sink.publish(created);
+        sink.publish(approved);
+
+        List<String> lines = Files.readAllLines(file);
+
+        assertEquals(2, lines.size());
+        assertEquals(created, objectMapper.readValue(lines.get(0), BookingEvent.class));
+        assertEquals(approved, objectMapper.readValue(lines.get(1), BookingEvent.class));
+    }
+}
@@ -0,0 +1,83 @@
+package ru.practicum.shareit.booking.partition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Секционирование booking на настоящем PostgreSQL. Без Docker тесты пропускаются.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class BookingPartitionMaintainerPostgresTest {
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:14.5-alpine");
+
+    JdbcTemplate jdbcTemplate;
+    BookingPartitionMaintainer maintainer;
+
+    // schema-postgresql.sql пересоздает booking вместе со всеми секциями
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(),
+                POSTGRES.getUsername(), POSTGRES.getPassword());
+
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"),
+                new ClassPathResource("schema-postgresql.sql")).execute(dataSource);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        maintainer = new BookingPartitionMaintainer(jdbcTemplate, new DataSourceTransactionManager(dataSource), 3);
+
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@email.com')");
+        jdbcTemplate.update("insert into items (id, name, description, available, owner_id) " +
+                "values (1, 'Дрель', 'Ударная', true, 1)");
+    }
+
+    @Test
+    void createPartitionsRoutesNewRowsToMonth() {
+        assertEquals(4, maintainer.createPartitions(YearMonth.of(2030, 1)));
+        assertEquals(0, maintainer.createPartitions(YearMonth.of(2030, 1)));
+
+        insertBooking(LocalDateTime.of(2030, 2, 10, 12, 0));
+
+        assertEquals(List.of("booking_p203002"), partitionsOfBookings());
+    }
+
+    @Test
+    void createPartitionsMovesRowsOutOfDefault() {
+        maintainer.createPartitions(YearMonth.of(2030, 1));
+        insertBooking(LocalDateTime.of(2030, 7, 1, 0, 0));
+        insertBooking(LocalDateTime.of(2030, 8, 31, 23, 59));
+        insertBooking(LocalDateTime.of(2031, 1, 15, 10, 0));
+
+        assertEquals(List.of("booking_default", "booking_default", "booking_default"), partitionsOfBookings());
+
+        assertEquals(4, maintainer.createPartitions(YearMonth.of(2030, 5)));
+
+        assertEquals(List.of("booking_p203007", "booking_p203008", "booking_default"), partitionsOfBookings());
+        assertEquals(1, jdbcTemplate.queryForObject("select count(*) from pg_inherits where " +
+                "inhrelid = to_regclass('booking_default') and inhparent = to_regclass('booking')", Integer.class));
+        assertEquals(0, maintainer.createPartitions(YearMonth.of(2030, 5)));
+    }
+
+    private void insertBooking(LocalDateTime start) {
+        jdbcTemplate.update("insert into booking (start_time, end_time, status, item_id, booker_id, phase) " +
+                "values (?, ?, 'APPROVED', 1, 1, 'FUTURE')", start, start.plusHours(1));
+    }
+
+    private List<String> partitionsOfBookings() {
+        return jdbcTemplate.queryForList("select tableoid::regclass::text from booking order by start_time",
+                String.class);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.booking.partition;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JdbcTest
+class BookingPartitionMaintainerTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Test
+    void partitionDdlCoversWholeMonth() {
+        assertEquals("CREATE TABLE IF NOT EXISTS booking_p202612 PARTITION OF booking " +
+                        "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')",
+                BookingPartitionMaintainer.partitionDdl(YearMonth.of(2026, 12)));
+    }
+
+    @Test
+    void createPartitionsSkipsNotPartitionedBooking() {
+        BookingPartitionMaintainer maintainer = new BookingPartitionMaintainer(jdbcTemplate, transactionManager, 3);
+
+        assertEquals(0, maintainer.createPartitions(YearMonth.now()));
+    }
+}
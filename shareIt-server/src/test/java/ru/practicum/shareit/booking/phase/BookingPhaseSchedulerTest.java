@@ -0,0 +1,162 @@
+package ru.practicum.shareit.booking.phase;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.repository.JpaOwnerBookingStatsRepository;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class BookingPhaseSchedulerTest {
+    @Autowired
+    JpaBookingRepository bookingRepository;
+    @Autowired
+    TestEntityManager entityManager;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    JpaOwnerBookingStatsRepository statsRepository;
+    @Autowired
+    JpaBookingArchiveRepository archiveRepository;
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    LocalDateTime now;
+    BookingPhaseScheduler scheduler;
+    OwnerBookingStatsService statsService;
+    User owner;
+    User booker;
+    Item item;
+
+    @BeforeEach
+    void setUp() {
+        now = LocalDateTime.now();
+        statsService = new OwnerBookingStatsService(statsRepository, bookingRepository, archiveRepository,
+                transactionManager);
+        scheduler = new BookingPhaseScheduler(bookingRepository, statsService, transactionManager, 1000);
+
+        owner = entityManager.persist(User.builder().name("owner").email("owner@email.com").build());
+        booker = entityManager.persist(User.builder().name("booker").email("booker@email.com").build());
+        item = entityManager.persist(Item.builder()
+                .name("item")
+                .description("item description")
+                .ownerId(owner.getId())
+                .available(true)
+                .build());
+    }
+
+    @Test
+    void newBookingGetsPhaseOnInsert() {
+        assertEquals(BookingPhase.PAST, phase(persist(now.minusDays(2), now.minusDays(1))));
+        assertEquals(BookingPhase.CURRENT, phase(persist(now.minusHours(1), now.plusHours(1))));
+        assertEquals(BookingPhase.FUTURE, phase(persist(now.plusDays(1), now.plusDays(2))));
+    }
+
+    @Test
+    void recoverCatchesUpPhasesMissedWhileStopped() {
+        Long finished = persist(now.minusDays(2), now.minusDays(1));
+        Long started = persist(now.minusHours(1), now.plusHours(1));
+        Long upcoming = persist(now.plusDays(1), now.plusDays(2));
+        jdbcTemplate.update("update booking set phase = 'FUTURE'");
+        jdbcTemplate.update("update booking set phase = 'PAST' where id = ?", upcoming);
+
+        scheduler.recover(now);
+
+        assertEquals(BookingPhase.PAST, phase(finished));
+        assertEquals(BookingPhase.CURRENT, phase(started));
+        assertEquals(BookingPhase.FUTURE, phase(upcoming));
+    }
+
+    @Test
+    void advanceFlipsPhasesAtBoundaries() {
+        Long booking = persist(now.plusHours(2), now.plusHours(4));
+        Long other = persist(now.plusHours(3), now.plusHours(5));
+        scheduler.recover(now);
+
+        scheduler.advance(now.plusHours(2).minusSeconds(2));
+        assertEquals(BookingPhase.FUTURE, phase(booking));
+
+        scheduler.advance(now.plusHours(2).plusSeconds(1));
+        assertEquals(BookingPhase.CURRENT, phase(booking));
+        assertEquals(BookingPhase.FUTURE, phase(other));
+
+        scheduler.advance(now.plusHours(4).plusSeconds(1));
+        assertEquals(BookingPhase.PAST, phase(booking));
+        assertEquals(BookingPhase.CURRENT, phase(other));
+    }
+
+    @Test
+    void advanceMovesOwnerCountersWithPhases() {
+        persist(now.plusHours(2), now.plusHours(4));
+        persist(now.plusHours(2), now.plusHours(2).plusMinutes(30));
+        statsService.reconcile();
+        scheduler.recover(now);
+
+        scheduler.advance(now.plusHours(2).plusSeconds(1));
+        assertEquals(List.of(0L, 2L, 0L), phaseCounts());
+
+        scheduler.advance(now.plusHours(3));
+        assertEquals(List.of(0L, 1L, 1L), phaseCounts());
+
+        scheduler.advance(now.plusHours(4).plusSeconds(1));
+        assertEquals(List.of(0L, 0L, 2L), phaseCounts());
+    }
+
+    @Test
+    void scheduleAddsBoundariesOfNewBookingAfterCommit() {
+        scheduler.recover(now);
+        Long booking = persist(now.plusMinutes(10), now.plusMinutes(20));
+        scheduler.schedule(entityManager.find(Booking.class, booking));
+
+        scheduler.advance(now.plusMinutes(10).plusSeconds(1));
+        assertEquals(BookingPhase.FUTURE, phase(booking));
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+        try {
+            scheduler.advance(now.plusMinutes(10).plusSeconds(2));
+            assertEquals(BookingPhase.CURRENT, phase(booking));
+        } finally {
+            jdbcTemplate.update("delete from users");
+        }
+    }
+
+    private Long persist(LocalDateTime start, LocalDateTime end) {
+        Booking booking = entityManager.persistAndFlush(Booking.builder()
+                .start(start)
+                .end(end)
+                .status(BookingStatus.WAITING)
+                .item(item)
+                .booker(booker)
+                .build());
+        return booking.getId();
+    }
+
+    private List<Long> phaseCounts() {
+        return jdbcTemplate.queryForObject(
+                "select future_count, current_count, past_count from owner_booking_stats where owner_id = ?",
+                (rs, rowNum) -> List.of(rs.getLong(1), rs.getLong(2), rs.getLong(3)), owner.getId());
+    }
+
+    private BookingPhase phase(Long bookingId) {
+        return BookingPhase.valueOf(
+                jdbcTemplate.queryForObject("select phase from booking where id = ?", String.class, bookingId));
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.shareit.booking.phase;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimerWheelTest {
+    private static final long TICK = 1000;
+
+    @Test
+    void firesExactlyAtDeadlineTick() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0);
+        wheel.schedule(5_000, "a");
+        wheel.schedule(5_500, "b");
+
+        assertTrue(wheel.advance(4_999).isEmpty());
+        assertEquals(List.of("a"), wheel.advance(5_000));
+        assertTrue(wheel.advance(5_999).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(6_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextAdvance() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 10_000);
+        wheel.schedule(1_000, "late");
+
+        assertEquals(List.of("late"), wheel.advance(10_000));
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0);
+        long hour = 3_600_000;
+        wheel.schedule(5_000, "a");
+        wheel.schedule(hour, "a");
+        wheel.schedule(hour, "b");
+
+        wheel.cancel(Set.of("a"));
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(hour - 1).isEmpty());
+        assertEquals(List.of("b"), wheel.advance(hour));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cascadesFromUpperLevels() {
+        HierarchicalTimerWheel<String> wheel = new HierarchicalTimerWheel<>(TICK, 0);
+        long hour = 3_600_000;
+        long month = 30L * 24 * hour;
+        wheel.schedule(month, "month");
+        wheel.schedule(hour, "hour");
+        wheel.schedule(64_000, "level1 boundary");
+
+        assertEquals(List.of("level1 boundary"), wheel.advance(64_000));
+        assertTrue(wheel.advance(hour - 1).isEmpty());
+        assertEquals(List.of("hour"), wheel.advance(hour));
+        assertTrue(wheel.advance(month - 1).isEmpty());
+        assertEquals(List.of("month"), wheel.advance(month));
+    }
+
+    @Test
+    void neverFiresEarlyOrLateOnRandomDeadlines() {
+        Random random = new Random(7);
+        long start = 1_700_000_000_000L;
+        HierarchicalTimerWheel<Long> wheel = new HierarchicalTimerWheel<>(TICK, start);
+        List<Long> deadlines = new ArrayList<>();
+
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = start + (long) (random.nextDouble() * 3 * 24 * 3_600_000L);
+            deadlines.add(deadline);
+            wheel.schedule(deadline, deadline);
+        }
+
+        int fired = 0;
+        for (long now = start; now <= start + 3 * 24 * 3_600_000L + TICK; now += 7 * TICK) {
+            for (Long deadline : wheel.advance(now)) {
+                assertTrue(deadline <= now);
+                assertTrue(now - deadline < 8 * TICK);
+                fired++;
+            }
+        }
+
+        assertEquals(deadlines.size(), fired);
+        assertEquals(0, wheel.size());
+    }
+}
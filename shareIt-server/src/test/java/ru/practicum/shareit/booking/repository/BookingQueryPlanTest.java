@@ -0,0 +1,171 @@
+package ru.practicum.shareit.booking.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.model.BookingPhase;
+import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.item.repository.JpaItemRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.booking.repository.BookingQueryPlanTest$SqlCapture")
+class BookingQueryPlanTest {
+    private static final Pattern FULL_INDEX_SCAN = Pattern.compile("/\\* PUBLIC\\.\\w+ \\*/");
+
+    @Autowired
+    JpaBookingRepository bookingRepository;
+    @Autowired
+    JpaBookingArchiveRepository archiveRepository;
+    @Autowired
+    JpaItemRepository itemRepository;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void dropForeignKeyIndexes() {
+        // H2 сам индексирует внешние ключи, PostgreSQL - нет; план должен опираться только на индексы из schema.sql
+        jdbcTemplate.execute("ALTER TABLE booking DROP CONSTRAINT IF EXISTS fk_booking_items");
+        jdbcTemplate.execute("ALTER TABLE booking DROP CONSTRAINT IF EXISTS fk_booking_users");
+        jdbcTemplate.execute("ALTER TABLE items DROP CONSTRAINT IF EXISTS fk_items_users");
+    }
+
+    @Test
+    void findBookerBookingsUsesIndexForEveryState() {
+        for (BookingState state : BookingState.values()) {
+            assertUsesIndexes(() -> bookingRepository.findBookerBookings(1L, state, 0, 10));
+        }
+    }
+
+    @Test
+    void findOwnerBookingsUsesIndexForEveryState() {
+        for (BookingState state : BookingState.values()) {
+            assertUsesIndexes(() -> bookingRepository.findOwnerBookings(1L, state, 0, 10));
+        }
+    }
+
+    @Test
+    void findBookingsAfterCursorUsesIndex() {
+        BookingCursor cursor = new BookingCursor(LocalDateTime.now(), 10L);
+
+        assertUsesIndexes(() -> bookingRepository.findBookerBookingsAfter(1L, BookingState.ALL, cursor, 10));
+        assertUsesIndexes(() -> bookingRepository.findOwnerBookingsAfter(1L, BookingState.ALL, cursor, 10));
+    }
+
+    @Test
+    void getShortBookingsUsesIndex() {
+        assertUsesIndexes(() -> bookingRepository.getShortBookingsByItemId(1L, BookingStatus.APPROVED));
+        assertUsesIndexes(() -> bookingRepository.findLastAndNextApprovedBookings(List.of(1L, 2L),
+                LocalDateTime.now()));
+    }
+
+    @Test
+    void existsApprovedBookingUsesIndex() {
+        assertUsesIndexes(() -> bookingRepository.existsApprovedBookingEndedBefore(1L, 1L, LocalDateTime.now()));
+    }
+
+    @Test
+    void availabilityQueriesUseIndex() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertUsesIndexes(() -> bookingRepository.findBookedItemIds(List.of(1L, 2L), BookingStatus.APPROVED,
+                now, now.plusDays(1)));
+        assertUsesIndexes(() -> bookingRepository.getShortBookingsInRange(1L,
+                EnumSet.of(BookingStatus.APPROVED, BookingStatus.WAITING), now, now.plusDays(1)));
+        assertUsesIndexes(() -> itemRepository.findFreeIds(List.of(1L, 2L), BookingStatus.APPROVED,
+                now, now.plusDays(1), PageRequest.ofSize(10)));
+    }
+
+    @Test
+    void findVisibleBookingUsesIndex() {
+        assertUsesIndexes(() -> bookingRepository.findVisibleBooking(1L, 1L));
+        assertUsesIndexes(() -> archiveRepository.findVisibleBooking(1L, 1L));
+    }
+
+    @Test
+    void archiveShortBookingsUseIndex() {
+        assertUsesIndexes(() -> archiveRepository.getShortBookingsByItemId(1L, BookingStatus.APPROVED));
+        assertUsesIndexes(() -> archiveRepository.getShortBookingsByBookerId(1L));
+    }
+
+    @Test
+    void lockEndedBeforeUsesIndex() {
+        assertUsesIndexes(() -> bookingRepository.lockEndedBefore(LocalDateTime.now(), PageRequest.ofSize(100)));
+    }
+
+    @Test
+    void phaseUpdatesUseIndex() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertUsesIndexes(() -> bookingRepository.updatePhaseToPast(1L, 501L, now));
+        assertUsesIndexes(() -> bookingRepository.updatePhaseToCurrent(1L, 501L, now));
+        assertUsesIndexes(() -> bookingRepository.updatePhaseToFuture(1L, 501L, now));
+        assertUsesIndexes(() -> bookingRepository.getShortBookingsByPhaseNot(BookingPhase.PAST, 1L, 501L));
+        assertUsesIndexes(() -> bookingRepository.updatePhaseToPast(List.of(1L, 2L), now));
+        assertUsesIndexes(() -> bookingRepository.updatePhaseToCurrent(List.of(1L, 2L), now));
+        assertUsesIndexes(() -> bookingRepository.countPhaseShiftsToPast(List.of(1L, 2L), now));
+        assertUsesIndexes(() -> bookingRepository.countPhaseShiftsToCurrent(List.of(1L, 2L), now));
+    }
+
+    @Test
+    void batchDecisionQueriesUseIndex() {
+        assertUsesIndexes(() -> bookingRepository.lockOwnerBookings(List.of(1L, 2L), 1L));
+        assertUsesIndexes(() -> bookingRepository.updateWaitingStatus(BookingStatus.APPROVED, List.of(1L, 2L), 1L));
+    }
+
+    private void assertUsesIndexes(Runnable repositoryCall) {
+        SqlCapture.STATEMENTS.clear();
+        repositoryCall.run();
+
+        assertFalse(SqlCapture.STATEMENTS.isEmpty());
+
+        for (String sql : SqlCapture.STATEMENTS) {
+            String plan = explain(sql);
+            assertTrue(plan.contains("/* PUBLIC."), plan);
+            assertFalse(plan.contains("tableScan"), plan);
+            // индекс без условия - тоже просмотр всей таблицы, только в порядке индекса
+            assertFalse(FULL_INDEX_SCAN.matcher(plan).find(), plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 1; i <= statement.getParameterMetaData().getParameterCount(); i++) {
+                    statement.setObject(i, null);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    public static class SqlCapture implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
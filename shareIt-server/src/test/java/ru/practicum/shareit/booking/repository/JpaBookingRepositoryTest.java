@@ -1,12 +1,20 @@
 package ru.practicum.shareit.booking.repository;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingCursor;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.dto.ShortBooking;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.JpaItemRepository;
@@ -15,11 +23,15 @@ import ru.practicum.shareit.user.repository.JpaUserRepository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class JpaBookingRepositoryTest {
     @Autowired
     JpaBookingRepository bookingRepository;
@@ -27,6 +39,8 @@ class JpaBookingRepositoryTest {
     JpaUserRepository userRepository;
     @Autowired
     JpaItemRepository itemRepository;
+    @Autowired
+    TestEntityManager entityManager;
 
     User userItemsOwner1;
     Item item1Owner1;
@@ -146,29 +160,227 @@ class JpaBookingRepositoryTest {
     }
 
     @Test
-    void getShortBookingsByItemsOwnerIdWithBookingsStatusApproved() {
-        List<ShortBooking> result =
-                bookingRepository.getShortBookingsByItemsOwnerId(userItemsOwner1.getId(), BookingStatus.APPROVED);
+    void findLastAndNextApprovedBookingsKeepsOneBookingPerSide() {
+        Map<Long, List<ShortBooking>> result = bookingRepository.findLastAndNextApprovedBookings(
+                        List.of(item1Owner1.getId(), item2Owner1.getId()), LocalDateTime.now()).stream()
+                .collect(Collectors.groupingBy(ShortBooking::getItemId));
 
-        assertEquals(4, result.size());
+        assertEquals(List.of(booking1Item1Booker2.getId()), shortIds(result.get(item1Owner1.getId())));
+        assertEquals(List.of(booking2Item2Booker2.getId()), shortIds(result.get(item2Owner1.getId())));
     }
 
     @Test
-    void getShortBookingsByItemsOwnerIdWithBookingsStatusWaiting() {
+    void findLastAndNextApprovedBookingsOnlyForGivenItems() {
         List<ShortBooking> result =
-                bookingRepository.getShortBookingsByItemsOwnerId(userItemsOwner1.getId(), BookingStatus.WAITING);
+                bookingRepository.findLastAndNextApprovedBookings(List.of(item2Owner1.getId()), LocalDateTime.now());
 
-        assertEquals(1, result.size());
+        assertEquals(List.of(booking2Item2Booker2.getId()), shortIds(result));
     }
 
     @Test
-    void getShortBookingsByItemsOwnerIdWithoutBookings() {
+    void findLastAndNextApprovedBookingsWithoutBookings() {
         bookingRepository.deleteAll();
 
-        List<ShortBooking> result =
-                bookingRepository.getShortBookingsByItemsOwnerId(userItemsOwner1.getId(), BookingStatus.WAITING);
+        assertTrue(bookingRepository.findLastAndNextApprovedBookings(List.of(item1Owner1.getId()),
+                LocalDateTime.now()).isEmpty());
+        assertTrue(bookingRepository.findLastAndNextApprovedBookings(List.of(), LocalDateTime.now()).isEmpty());
+    }
+
+    @Test
+    void existsApprovedBookingEndedBeforeOnlyForFinishedBookings() {
+        LocalDateTime now = LocalDateTime.now();
+
+        assertTrue(bookingRepository.existsApprovedBookingEndedBefore(userBooker2.getId(), item2Owner1.getId(), now));
+        assertFalse(bookingRepository.existsApprovedBookingEndedBefore(userBooker2.getId(), item1Owner1.getId(), now));
+        assertFalse(bookingRepository.existsApprovedBookingEndedBefore(userBooker3.getId(), item1Owner1.getId(), now));
+    }
+
+    @Test
+    void findOwnerBookingsAfterWalksAllPagesByCursor() {
+        entityManager.clear();
+
+        Slice<BookingResponseDto> firstPage = bookingRepository.findOwnerBookingsAfter(userItemsOwner1.getId(),
+                BookingState.ALL, null, 2);
+
+        assertEquals(List.of(booking5Item1Booker3.getId(), booking3Item1Booker3.getId()), ids(firstPage.getContent()));
+        assertTrue(firstPage.hasNext());
+
+        Slice<BookingResponseDto> secondPage = bookingRepository.findOwnerBookingsAfter(userItemsOwner1.getId(),
+                BookingState.ALL, BookingCursor.of(firstPage.getContent().get(1)), 2);
+
+        assertEquals(List.of(booking1Item1Booker2.getId(), booking2Item2Booker2.getId()),
+                ids(secondPage.getContent()));
+        assertTrue(secondPage.hasNext());
+
+        Slice<BookingResponseDto> thirdPage = bookingRepository.findOwnerBookingsAfter(userItemsOwner1.getId(),
+                BookingState.ALL, BookingCursor.of(secondPage.getContent().get(1)), 2);
+
+        assertEquals(List.of(booking4Item2Booker3.getId()), ids(thirdPage.getContent()));
+        assertFalse(thirdPage.hasNext());
+    }
+
+    @Test
+    void findBookerBookingsAfterWithStateFuture() {
+        Slice<BookingResponseDto> result = bookingRepository.findBookerBookingsAfter(userBooker3.getId(),
+                BookingState.FUTURE, null, 5);
+
+        assertEquals(List.of(booking5Item1Booker3.getId(), booking3Item1Booker3.getId()), ids(result.getContent()));
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void findBookerBookingsAfterBreaksTiesOnSameStartById() {
+        Booking sameStart = bookingRepository.save(booking3Item1Booker3.toBuilder().id(null).build());
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BookingResponseDto> all = bookingRepository.findBookerBookings(userBooker3.getId(),
+                BookingState.ALL, 0, 5);
+
+        Slice<BookingResponseDto> firstPage = bookingRepository.findBookerBookingsAfter(userBooker3.getId(),
+                BookingState.ALL, BookingCursor.of(all.get(0)), 1);
+
+        assertEquals(List.of(sameStart.getId()), ids(firstPage.getContent()));
+
+        Slice<BookingResponseDto> secondPage = bookingRepository.findBookerBookingsAfter(userBooker3.getId(),
+                BookingState.ALL, BookingCursor.of(firstPage.getContent().get(0)), 1);
+
+        assertEquals(List.of(booking3Item1Booker3.getId()), ids(secondPage.getContent()));
+    }
+
+    @Test
+    void findBookerBookingsWithEveryState() {
+        Long bookerId = userBooker3.getId();
+
+        assertEquals(List.of(booking5Item1Booker3.getId(), booking3Item1Booker3.getId(),
+                        booking4Item2Booker3.getId()),
+                ids(bookingRepository.findBookerBookings(bookerId, BookingState.ALL, 0, 10)));
+        assertEquals(List.of(booking4Item2Booker3.getId()),
+                ids(bookingRepository.findBookerBookings(bookerId, BookingState.PAST, 0, 10)));
+        assertEquals(List.of(booking5Item1Booker3.getId(), booking3Item1Booker3.getId()),
+                ids(bookingRepository.findBookerBookings(bookerId, BookingState.FUTURE, 0, 10)));
+        assertEquals(List.of(booking5Item1Booker3.getId()),
+                ids(bookingRepository.findBookerBookings(bookerId, BookingState.WAITING, 0, 10)));
+        assertTrue(bookingRepository.findBookerBookings(bookerId, BookingState.CURRENT, 0, 10).isEmpty());
+        assertTrue(bookingRepository.findBookerBookings(bookerId, BookingState.REJECTED, 0, 10).isEmpty());
+    }
+
+    @Test
+    void findOwnerBookingsWithStateCurrentAndOffset() {
+        Booking current = bookingRepository.save(booking1Item1Booker2.toBuilder()
+                .id(null)
+                .start(LocalDateTime.now().minusHours(1))
+                .end(LocalDateTime.now().plusHours(1))
+                .build());
+
+        assertEquals(List.of(current.getId()), ids(bookingRepository.findOwnerBookings(userItemsOwner1.getId(),
+                BookingState.CURRENT, 0, 10)));
+        assertEquals(List.of(booking4Item2Booker3.getId()), ids(bookingRepository.findOwnerBookings(
+                userItemsOwner1.getId(), BookingState.ALL, 5, 5)));
+    }
+
+    @Test
+    void findOwnerBookingsProjectsResponseDto() {
+        entityManager.clear();
+
+        BookingResponseDto booking = bookingRepository.findOwnerBookings(userItemsOwner1.getId(),
+                BookingState.WAITING, 0, 10).get(0);
+
+        assertEquals(booking5Item1Booker3.getId(), booking.getId());
+        assertEquals(BookingStatus.WAITING, booking.getStatus());
+        assertEquals(userBooker3.getId(), booking.getBooker().getId());
+        assertEquals(item1Owner1.getId(), booking.getItem().getId());
+        assertEquals("item1", booking.getItem().getName());
+    }
+
+    @Test
+    void findBookingsSkipsArchiveWhileNothingArchived() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        for (BookingState state : BookingState.values()) {
+            statistics.clear();
+            bookingRepository.findOwnerBookings(userItemsOwner1.getId(), state, 0, 10);
+            assertEquals(1, statistics.getPrepareStatementCount(), "owner " + state);
+
+            statistics.clear();
+            bookingRepository.findBookerBookingsAfter(userBooker3.getId(), state, null, 10);
+            assertEquals(1, statistics.getPrepareStatementCount(), "booker " + state);
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    void findBookingsProbesArchiveOnlyForShortPagesOfArchivedStates() {
+        bookingRepository.publishArchiveBoundary(LocalDateTime.now().minusDays(90));
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        for (BookingState state : BookingState.values()) {
+            // неполная страница состояния, в которое попадает архив, дополнительно проверяет архив
+            long expected = state == BookingState.CURRENT || state == BookingState.FUTURE ? 1 : 2;
+
+            statistics.clear();
+            bookingRepository.findOwnerBookings(userItemsOwner1.getId(), state, 0, 10);
+            assertEquals(expected, statistics.getPrepareStatementCount(), "owner " + state);
+
+            statistics.clear();
+            bookingRepository.findBookerBookingsAfter(userBooker3.getId(), state, null, 10);
+            assertEquals(expected, statistics.getPrepareStatementCount(), "booker " + state);
+        }
+    }
+
+    @Test
+    void findBookingsFullRecentPageSkipsArchive() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BookingResponseDto> page = bookingRepository.findOwnerBookings(userItemsOwner1.getId(),
+                BookingState.ALL, 0, 1);
+
+        assertEquals(1, page.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findVisibleBookingOnlyForBookerAndOwnerInSingleStatement() {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Optional<BookingResponseDto> byBooker =
+                bookingRepository.findVisibleBooking(booking1Item1Booker2.getId(), userBooker2.getId());
+
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertTrue(byBooker.isPresent());
+        assertEquals(item1Owner1.getName(), byBooker.get().getItem().getName());
+        assertEquals(userBooker2.getId(), byBooker.get().getBooker().getId());
+        assertTrue(bookingRepository.findVisibleBooking(booking1Item1Booker2.getId(), userItemsOwner1.getId())
+                .isPresent());
+        assertFalse(bookingRepository.findVisibleBooking(booking1Item1Booker2.getId(), userBooker3.getId())
+                .isPresent());
+        assertFalse(bookingRepository.findVisibleBooking(100500L, userBooker2.getId()).isPresent());
+    }
+
+    private List<Long> shortIds(List<ShortBooking> bookings) {
+        return bookings.stream()
+                .map(ShortBooking::getId)
+                .collect(Collectors.toList());
+    }
 
-        assertTrue(result.isEmpty());
+    private List<Long> ids(List<BookingResponseDto> bookings) {
+        return bookings.stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
     }
 
     @AfterEach
@@ -1,17 +1,29 @@
 package ru.practicum.shareit.booking.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionResultDto;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
 import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+import ru.practicum.shareit.exception.AvailabilityException;
+import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
 import ru.practicum.shareit.item.dto.ItemOnlyResponseDto;
 import ru.practicum.shareit.item.repository.JpaItemRepository;
 import ru.practicum.shareit.item.service.ItemService;
@@ -20,8 +32,22 @@ import ru.practicum.shareit.user.dto.UserResponseDto;
 import ru.practicum.shareit.user.repository.JpaUserRepository;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -40,6 +66,14 @@ class BookingServiceImplIntegrationTest {
     JpaItemRepository itemRepository;
     @Autowired
     JpaBookingRepository bookingRepository;
+    @Autowired
+    OwnerBookingStatsService statsService;
+    @Autowired
+    ItemBookingVersions itemBookingVersions;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    ObjectMapper objectMapper;
 
     private UserResponseDto owner;
     private UserResponseDto tenant;
@@ -84,6 +118,353 @@ class BookingServiceImplIntegrationTest {
                 () -> bookingService.getBookingsByOwnerId(100500L, BookingState.ALL, 0L, 5L));
     }
 
+    @Test
+    void createBatch_mixedEntries() {
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+        ItemOnlyResponseDto unavailable = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item4").description("item4 description").available(false).build());
+        LocalDateTime start = LocalDateTime.now().plusDays(5);
+
+        List<BookingBatchResultDto> results = bookingService.createBatch(tenant.getId(), List.of(
+                new BookingRequestDto(item.getId(), start, start.plusDays(1)),
+                new BookingRequestDto(item.getId(), start.plusHours(12), start.plusDays(2)),
+                new BookingRequestDto(item.getId(), start.plusDays(1), start.plusDays(2)),
+                new BookingRequestDto(unavailable.getId(), start, start.plusDays(1)),
+                new BookingRequestDto(100500L, start, start.plusDays(1))));
+
+        assertThat(results).extracting(BookingBatchResultDto::getStatus)
+                .containsExactly(200, 409, 200, 400, 404);
+        assertThat(results.get(1).getError())
+                .isEqualTo("период пересекается с бронированием " + results.get(0).getBooking().getId());
+
+        List<BookingResponseDto> saved = bookingService.getBookingsByBookerId(tenant.getId(), BookingState.ALL, 0L, 10L);
+
+        assertThat(saved).extracting(BookingResponseDto::getId)
+                .contains(results.get(0).getBooking().getId(), results.get(2).getBooking().getId());
+        assertThat(saved).hasSize(4);
+        Assertions.assertThrows(AvailabilityException.class, () -> bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start.plusHours(1), start.plusHours(2))));
+    }
+
+    @Test
+    void updateApproveAll_onlyWaitingBookingsChange() {
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+        LocalDateTime start = LocalDateTime.now().plusDays(5);
+        BookingResponseDto first = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start, start.plusDays(1)));
+        BookingResponseDto second = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start.plusDays(1), start.plusDays(2)));
+        BookingResponseDto third = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start.plusDays(2), start.plusDays(3)));
+        bookingService.updateApprove(owner.getId(), first.getId(), true);
+
+        BookingDecisionResultDto result = bookingService.updateApproveAll(owner.getId(),
+                List.of(first.getId(), second.getId(), third.getId()), false);
+
+        assertThat(result.getUpdated()).containsExactly(second.getId(), third.getId());
+        assertThat(result.getSkipped()).containsExactly(first.getId());
+        assertThat(bookingService.getBookingById(owner.getId(), first.getId()).getStatus())
+                .isEqualTo(BookingStatus.APPROVED);
+        assertThat(bookingService.getBookingById(owner.getId(), second.getId()).getStatus())
+                .isEqualTo(BookingStatus.REJECTED);
+        assertThat(bookingService.getBookingById(owner.getId(), third.getId()).getStatus())
+                .isEqualTo(BookingStatus.REJECTED);
+        Assertions.assertDoesNotThrow(() -> bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), start.plusDays(1), start.plusDays(3))));
+    }
+
+    @Test
+    void getAvailability_followsApprovedBookingsAndChangesTag() {
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+        LocalDateTime from = LocalDateTime.now().plusDays(10).withNano(0);
+        LocalDateTime to = from.plusDays(10);
+        BookingResponseDto first = bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), from.plusDays(2), from.plusDays(4)));
+        bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), from.plusDays(6), from.plusDays(7)));
+
+        assertThat(itemService.getAvailability(item.getId(), from, to, false).getFree())
+                .containsExactly(new ItemAvailabilityDto.FreePeriod(from, to));
+        assertThat(itemService.getAvailability(item.getId(), from, to, true).getFree()).containsExactly(
+                new ItemAvailabilityDto.FreePeriod(from, from.plusDays(2)),
+                new ItemAvailabilityDto.FreePeriod(from.plusDays(4), from.plusDays(6)),
+                new ItemAvailabilityDto.FreePeriod(from.plusDays(7), to));
+
+        String tag = itemService.getAvailabilityTag(item.getId());
+        bookingService.updateApprove(owner.getId(), first.getId(), true);
+
+        assertThat(itemService.getAvailabilityTag(item.getId())).isNotEqualTo(tag);
+        assertThat(itemService.getAvailability(item.getId(), from, to, false).getFree()).containsExactly(
+                new ItemAvailabilityDto.FreePeriod(from, from.plusDays(2)),
+                new ItemAvailabilityDto.FreePeriod(from.plusDays(4), to));
+    }
+
+    @Test
+    void updateApproveAll_foreignBooking() {
+        List<Long> ids = bookingService.getBookingsByBookerId(tenant.getId(), BookingState.ALL, 0L, 10L).stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
+
+        Assertions.assertThrows(ObjectNotFoundException.class,
+                () -> bookingService.updateApproveAll(tenant.getId(), ids, true));
+        Assertions.assertThrows(ObjectNotFoundException.class,
+                () -> bookingService.updateApproveAll(owner.getId(), List.of(ids.get(0), 100500L), true));
+        assertThat(bookingService.getBookingsByOwnerId(owner.getId(), BookingState.WAITING, 0L, 10L)).hasSize(2);
+    }
+
+    @Test
+    void getOwnerStats_countersFollowBookingChanges() {
+        List<Long> ids = bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 10L).stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+
+        bookingService.updateApprove(owner.getId(), ids.get(0), true);
+        bookingService.updateApproveAll(owner.getId(), List.of(ids.get(1)), false);
+        bookingService.createBatch(tenant.getId(), List.of(
+                new BookingRequestDto(item.getId(), LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1)),
+                new BookingRequestDto(item.getId(), LocalDateTime.now().minusHours(1), LocalDateTime.now().plusHours(1))));
+
+        Map<BookingState, Long> expected = Map.of(BookingState.ALL, 4L, BookingState.WAITING, 2L,
+                BookingState.REJECTED, 1L, BookingState.FUTURE, 2L, BookingState.CURRENT, 1L, BookingState.PAST, 1L);
+        assertThat(bookingService.getOwnerStats(owner.getId())).isEqualTo(expected);
+        assertThat(bookingService.getOwnerStats(tenant.getId())).containsEntry(BookingState.ALL, 0L);
+
+        jdbcTemplate.update("update owner_booking_stats set all_count = 100, waiting_count = 0 where owner_id = ?",
+                owner.getId());
+        statsService.reconcile();
+
+        assertThat(bookingService.getOwnerStats(owner.getId())).isEqualTo(expected);
+    }
+
+    @Test
+    void exportOwnerBookings_writesOneJsonPerLine() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        bookingService.exportOwnerBookings(owner.getId()).writeTo(outputStream);
+
+        List<BookingResponseDto> expected =
+                bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 10L);
+        String[] lines = outputStream.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2).allMatch(line -> line.startsWith("{"));
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode booking = objectMapper.readTree(lines[i]);
+            assertThat(booking.get("id").asLong()).isEqualTo(expected.get(i).getId());
+            assertThat(booking.at("/item/name").asText()).isEqualTo(expected.get(i).getItem().getName());
+        }
+        Assertions.assertThrows(ObjectNotFoundException.class, () -> bookingService.exportOwnerBookings(100500L));
+    }
+
+    @Test
+    void updateApprove_concurrentDecisionsOnlyOneWins() throws InterruptedException {
+        Long bookingId = bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 1L).get(0).getId();
+        int threads = 16;
+        AtomicInteger approved = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger rejectedAsDecided = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                startLatch.await();
+                try {
+                    bookingService.updateApprove(owner.getId(), bookingId, true);
+                    approved.incrementAndGet();
+                } catch (AvailabilityException e) {
+                    conflicts.incrementAndGet();
+                } catch (BadRequestException e) {
+                    rejectedAsDecided.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        startLatch.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(approved.get()).isEqualTo(1);
+        assertThat(conflicts.get() + rejectedAsDecided.get()).isEqualTo(threads - 1);
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+        assertThat(booking.getStatus()).isEqualTo(BookingStatus.APPROVED);
+        assertThat(booking.getVersion()).isEqualTo(1L);
+        assertThat(bookingService.getOwnerStats(owner.getId())).containsEntry(BookingState.WAITING, 1L);
+    }
+
+    @Test
+    void create_concurrentOverlappingBookings() throws InterruptedException {
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+        LocalDateTime base = LocalDateTime.now().plusDays(1).truncatedTo(ChronoUnit.HOURS);
+        int threads = 16;
+        int attempts = 25;
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            executor.submit(() -> {
+                Random random = new Random(seed);
+                startLatch.await();
+
+                for (int i = 0; i < attempts; i++) {
+                    LocalDateTime start = base.plusHours(random.nextInt(100));
+                    try {
+                        bookingService.create(tenant.getId(), new BookingRequestDto(item.getId(), start,
+                                start.plusHours(1 + random.nextInt(5))));
+                        created.incrementAndGet();
+                    } catch (AvailabilityException e) {
+                        conflicts.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        startLatch.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        List<Booking> bookings = bookingRepository.findAll().stream()
+                .filter(booking -> booking.getItem().getId().equals(item.getId()))
+                .sorted(Comparator.comparing(Booking::getStart))
+                .collect(Collectors.toList());
+
+        assertThat(created.get() + conflicts.get()).isEqualTo(threads * attempts);
+        assertThat(conflicts.get()).isPositive();
+        assertThat(bookings).hasSize(created.get());
+
+        for (int i = 1; i < bookings.size(); i++) {
+            assertThat(bookings.get(i).getStart()).isAfterOrEqualTo(bookings.get(i - 1).getEnd());
+        }
+
+        assertThat(bookingService.getOwnerStats(owner.getId()))
+                .containsEntry(BookingState.ALL, created.get() + 2L)
+                .containsEntry(BookingState.WAITING, created.get() + 2L);
+    }
+
+    @Test
+    void updateApproveAll_concurrentWithSingleDecisionsKeepsCounters() throws InterruptedException {
+        List<Long> ids = bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 10L).stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
+        int threads = 8;
+        AtomicInteger unexpected = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (int t = 0; t < threads; t++) {
+            boolean batch = t % 2 == 0;
+            Long bookingId = ids.get(t % ids.size());
+            executor.submit(() -> {
+                startLatch.await();
+                try {
+                    if (batch) {
+                        bookingService.updateApproveAll(owner.getId(), ids, false);
+                    } else {
+                        bookingService.updateApprove(owner.getId(), bookingId, true);
+                    }
+                } catch (AvailabilityException | BadRequestException e) {
+                    // решение уже принято параллельным запросом
+                } catch (RuntimeException e) {
+                    unexpected.incrementAndGet();
+                }
+                return null;
+            });
+        }
+
+        startLatch.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(unexpected.get()).isZero();
+        Map<BookingState, Long> counters = bookingService.getOwnerStats(owner.getId());
+        Map<BookingStatus, Long> statuses = bookingRepository.findAllById(ids).stream()
+                .collect(Collectors.groupingBy(Booking::getStatus, Collectors.counting()));
+        assertThat(counters)
+                .containsEntry(BookingState.WAITING, statuses.getOrDefault(BookingStatus.WAITING, 0L))
+                .containsEntry(BookingState.REJECTED, statuses.getOrDefault(BookingStatus.REJECTED, 0L));
+    }
+
+    @Test
+    void create_concurrentBookingsOfNewOwner() throws InterruptedException {
+        UserResponseDto newOwner = userService.create(new UserRequestDto("user3@mail.com", "user3"));
+        int threads = 16;
+        List<ItemOnlyResponseDto> items = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            items.add(itemService.create(newOwner.getId(), CreateItemRequestDto.builder()
+                    .name("new item " + t).description("new item description").available(true).build()));
+        }
+        AtomicInteger created = new AtomicInteger();
+        CountDownLatch startLatch = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        for (ItemOnlyResponseDto item : items) {
+            executor.submit(() -> {
+                startLatch.await();
+                bookingService.create(tenant.getId(), new BookingRequestDto(item.getId(),
+                        LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2)));
+                created.incrementAndGet();
+                return null;
+            });
+        }
+
+        startLatch.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertThat(created.get()).isEqualTo(threads);
+        assertThat(bookingService.getOwnerStats(newOwner.getId()))
+                .containsEntry(BookingState.ALL, (long) threads)
+                .containsEntry(BookingState.WAITING, (long) threads)
+                .containsEntry(BookingState.FUTURE, (long) threads);
+    }
+
+    @Test
+    void create_ownerWithoutCountersRowGetsItOnReconcile() {
+        jdbcTemplate.update("delete from owner_booking_stats where owner_id = ?", owner.getId());
+        ItemOnlyResponseDto item = itemService.create(owner.getId(),
+                CreateItemRequestDto.builder().name("item3").description("item3 description").available(true).build());
+
+        bookingService.create(tenant.getId(),
+                new BookingRequestDto(item.getId(), LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2)));
+
+        assertThat(bookingService.getOwnerStats(owner.getId())).containsEntry(BookingState.ALL, 3L);
+        statsService.reconcile();
+        assertThat(jdbcTemplate.queryForObject("select all_count from owner_booking_stats where owner_id = ?",
+                Long.class, owner.getId())).isEqualTo(3L);
+    }
+
+    @Test
+    void deleteBooker_releasesPeriodsVersionsAndCounters() {
+        BookingResponseDto booked = bookingService.getBookingsByOwnerId(owner.getId(), BookingState.ALL, 0L, 10L)
+                .get(0);
+        Long itemId = booked.getItem().getId();
+        String tag = itemBookingVersions.tag(itemId);
+        UserResponseDto other = userService.create(new UserRequestDto("user3@mail.com", "user3"));
+
+        userService.delete(tenant.getId());
+
+        assertThat(itemBookingVersions.tag(itemId)).isNotEqualTo(tag);
+        assertThat(bookingService.getOwnerStats(owner.getId()))
+                .containsEntry(BookingState.ALL, 0L)
+                .containsEntry(BookingState.WAITING, 0L)
+                .containsEntry(BookingState.FUTURE, 0L);
+
+        BookingResponseDto rebooked = bookingService.create(other.getId(),
+                new BookingRequestDto(itemId, booked.getStart(), booked.getEnd()));
+
+        assertThat(rebooked.getStatus()).isEqualTo(BookingStatus.WAITING);
+        assertThat(bookingService.getOwnerStats(owner.getId())).containsEntry(BookingState.ALL, 1L);
+    }
+
     @AfterEach
     public void clear() {
         bookingRepository.deleteAll();
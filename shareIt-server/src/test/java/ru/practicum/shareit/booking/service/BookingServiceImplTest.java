@@ -5,16 +5,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingCursor;
 import ru.practicum.shareit.booking.dto.BookingRequestDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.dto.BookingSliceResponseDto;
+import ru.practicum.shareit.booking.export.OwnerBookingExporter;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.BookingOccupancyIndex;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.outbox.BookingOutbox;
+import ru.practicum.shareit.booking.phase.BookingPhaseScheduler;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
 import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.stats.OwnerBookingStatsService;
+import ru.practicum.shareit.exception.AvailabilityException;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.model.Item;
@@ -29,7 +40,11 @@ import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,13 +55,28 @@ class BookingServiceImplTest {
     @Mock
     JpaBookingRepository bookingRepository;
     @Mock
+    JpaBookingArchiveRepository archiveRepository;
+    @Mock
     ItemService itemService;
     @Mock
     UserService userService;
+    @Mock
+    BookingPhaseScheduler phaseScheduler;
+    @Mock
+    OwnerBookingStatsService statsService;
+    @Mock
+    OwnerBookingExporter bookingExporter;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    @Mock
+    BookingOutbox bookingOutbox;
 
     @BeforeEach
     public void setUp() {
-        bookingService = new BookingServiceImpl(bookingRepository, itemService, userService);
+        bookingService = new BookingServiceImpl(bookingRepository, itemService, userService,
+                new BookingOccupancyIndex(bookingRepository), phaseScheduler, statsService, bookingExporter,
+                new TransactionTemplate(transactionManager), new ItemBookingVersions(), archiveRepository,
+                bookingOutbox);
     }
 
     @Test
@@ -103,20 +133,70 @@ class BookingServiceImplTest {
         LocalDateTime start = LocalDateTime.now().plusDays(2);
         LocalDateTime end = start.plusDays(1);
         when(bookingRepository.save(any(Booking.class)))
-                .thenReturn(new Booking(1L, start, end, BookingStatus.WAITING, item, user));
+                .thenReturn(new Booking(1L, start, end, BookingStatus.WAITING, item, user, null, null));
 
         BookingRequestDto bookingRequestDto =
                 new BookingRequestDto(2L, start, end);
 
         BookingResponseDto bookingAnswer = bookingService.create(3L, bookingRequestDto);
 
-        verify(bookingRepository).save(new Booking(null, start, end, BookingStatus.WAITING, item, user));
+        verify(bookingRepository).save(new Booking(null, start, end, BookingStatus.WAITING, item, user, null, null));
 
         assertEquals(1L, bookingAnswer.getId());
         assertEquals("item", bookingAnswer.getItem().getName());
         assertEquals(3L, bookingAnswer.getBooker().getId());
     }
 
+    @Test
+    void createOverlappingPeriod() {
+        User user = new User(3L, "user@mail.com", "user");
+        when(userService.getUserById(anyLong()))
+                .thenReturn(user);
+        Item item =
+                new Item(2L, "item", "item description", true, 1L, null);
+        when(itemService.getItemById(anyLong()))
+                .thenReturn(item);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(2);
+        LocalDateTime end = start.plusDays(2);
+        when(bookingRepository.save(any(Booking.class)))
+                .thenReturn(new Booking(1L, start, end, BookingStatus.WAITING, item, user, null, null));
+
+        bookingService.create(3L, new BookingRequestDto(2L, start, end));
+
+        AvailabilityException exception = assertThrows(AvailabilityException.class,
+                () -> bookingService.create(3L, new BookingRequestDto(2L, start.plusDays(1), end.plusDays(1))));
+
+        assertEquals("период пересекается с бронированием 1", exception.getMessage());
+        verify(bookingRepository, times(1)).save(any(Booking.class));
+    }
+
+    @Test
+    void createAfterRejectedPeriod() {
+        User user = new User(3L, "user@mail.com", "user");
+        when(userService.getUserById(anyLong()))
+                .thenReturn(user);
+        Item item =
+                new Item(2L, "item", "item description", true, 1L, null);
+        when(itemService.getItemById(anyLong()))
+                .thenReturn(item);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(2);
+        LocalDateTime end = start.plusDays(2);
+        Booking booking = new Booking(1L, start, end, BookingStatus.WAITING, item, user, null, null);
+        when(bookingRepository.save(any(Booking.class)))
+                .thenReturn(booking);
+        when(bookingRepository.findById(1L))
+                .thenReturn(Optional.of(booking.toBuilder().build()));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenReturn(booking.toBuilder().status(BookingStatus.REJECTED).build());
+
+        bookingService.create(3L, new BookingRequestDto(2L, start, end));
+        bookingService.updateApprove(1L, 1L, false);
+
+        assertDoesNotThrow(() -> bookingService.create(3L, new BookingRequestDto(2L, start, end)));
+    }
+
     @Test
     void updateApproveWithNoBookingById() {
         when(bookingRepository.findById(anyLong()))
@@ -157,7 +237,7 @@ class BookingServiceImplTest {
     @Test
     void updateApproveCorrect() {
         Booking booking = Booking.builder().status(BookingStatus.WAITING)
-                .item(Item.builder().ownerId(1L).build()).build();
+                .item(Item.builder().id(2L).ownerId(1L).build()).build();
 
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
@@ -166,18 +246,69 @@ class BookingServiceImplTest {
         bookingApproved.setBooker(new User(1L, null, "NAME"));
         bookingApproved.setItem(Item.builder().id(2L).name("name").build());
 
-        when(bookingRepository.save(any(Booking.class)))
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
                 .thenReturn(bookingApproved);
 
         BookingResponseDto bookingResponseDto = bookingService.updateApprove(1L, 1L, true);
 
-        verify(bookingRepository).save(booking);
+        verify(bookingRepository).saveAndFlush(booking);
 
         assertEquals(BookingStatus.APPROVED, bookingResponseDto.getStatus());
     }
 
+    @Test
+    void updateApproveRetriesVersionConflictWithUnchangedStatus() {
+        Booking booking = Booking.builder().status(BookingStatus.WAITING)
+                .booker(new User(2L, null, "booker"))
+                .item(Item.builder().id(2L).ownerId(1L).name("name").build()).build();
+
+        when(bookingRepository.findById(anyLong()))
+                .thenReturn(Optional.of(booking.toBuilder().build()), Optional.of(booking.toBuilder().build()));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1L))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        BookingResponseDto bookingResponseDto = bookingService.updateApprove(1L, 1L, true);
+
+        assertEquals(BookingStatus.APPROVED, bookingResponseDto.getStatus());
+        verify(bookingRepository, times(2)).saveAndFlush(any(Booking.class));
+    }
+
+    @Test
+    void updateApproveConflictWithConcurrentDecision() {
+        Booking booking = Booking.builder().status(BookingStatus.WAITING)
+                .item(Item.builder().id(2L).ownerId(1L).build()).build();
+
+        when(bookingRepository.findById(anyLong()))
+                .thenReturn(Optional.of(booking.toBuilder().build()),
+                        Optional.of(booking.toBuilder().status(BookingStatus.REJECTED).build()));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1L));
+
+        AvailabilityException exception = assertThrows(AvailabilityException.class,
+                () -> bookingService.updateApprove(1L, 1L, true));
+
+        assertEquals("решение по бронированию 1 уже принято другим запросом", exception.getMessage());
+    }
+
+    @Test
+    void updateApproveGivesUpAfterBoundedAttempts() {
+        Booking booking = Booking.builder().status(BookingStatus.WAITING)
+                .item(Item.builder().id(2L).ownerId(1L).build()).build();
+
+        when(bookingRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.of(booking.toBuilder().build()));
+        when(bookingRepository.saveAndFlush(any(Booking.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Booking.class, 1L));
+
+        assertThrows(AvailabilityException.class, () -> bookingService.updateApprove(1L, 1L, true));
+        verify(bookingRepository, times(3)).saveAndFlush(any(Booking.class));
+    }
+
     @Test
     void getBookingByIdWithNoUserById() {
+        when(bookingRepository.findVisibleBooking(anyLong(), anyLong()))
+                .thenReturn(Optional.empty());
         when(userService.isPresent(anyLong()))
                 .thenReturn(false);
 
@@ -189,6 +320,8 @@ class BookingServiceImplTest {
 
     @Test
     void getBookingByIdWithNoBookingById() {
+        when(bookingRepository.findVisibleBooking(anyLong(), anyLong()))
+                .thenReturn(Optional.empty());
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
         when(bookingRepository.existsById(anyLong()))
@@ -202,20 +335,13 @@ class BookingServiceImplTest {
 
     @Test
     void getBookingByIdWithUserNotEqualsTenantOrOwner() {
+        when(bookingRepository.findVisibleBooking(anyLong(), anyLong()))
+                .thenReturn(Optional.empty());
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
         when(bookingRepository.existsById(anyLong()))
                 .thenReturn(true);
 
-        Booking booking = Booking.builder()
-                .id(1L)
-                .item(Item.builder().ownerId(3L).build())
-                .booker(User.builder().id(2L).build())
-                .build();
-
-        when(bookingRepository.findById(anyLong()))
-                .thenReturn(Optional.of(booking));
-
         ObjectNotFoundException exception = assertThrows(ObjectNotFoundException.class,
                 () -> bookingService.getBookingById(1L, 1L));
 
@@ -224,21 +350,14 @@ class BookingServiceImplTest {
 
     @Test
     void getBookingByIdCorrect() {
-        when(userService.isPresent(anyLong()))
-                .thenReturn(true);
-        when(bookingRepository.existsById(anyLong()))
-                .thenReturn(true);
-
-        Booking booking = Booking.builder()
-                .id(1L)
-                .item(Item.builder().ownerId(1L).build())
-                .booker(User.builder().id(2L).build())
-                .build();
-
-        when(bookingRepository.findById(anyLong()))
+        BookingResponseDto booking = new BookingResponseDto(1L, LocalDateTime.now(), LocalDateTime.now().plusDays(1),
+                BookingStatus.WAITING, 2L, 3L, "item");
+        when(bookingRepository.findVisibleBooking(1L, 1L))
                 .thenReturn(Optional.of(booking));
 
-        bookingService.getBookingById(1L, 1L);
+        assertEquals(booking, bookingService.getBookingById(1L, 1L));
+        verify(userService, times(0)).isPresent(anyLong());
+        verify(bookingRepository, times(0)).existsById(anyLong());
     }
 
     @Test
@@ -257,14 +376,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByBooker_Id(anyLong(), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.ALL), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
-        bookingService.getBookingsByBookerId(1L, BookingState.ALL, 0L, 1L);
+        assertDoesNotThrow(() -> bookingService
+                .getBookingsByBookerId(1L, BookingState.ALL, 0L, 1L));
 
-        verify(bookingRepository).getBookingByBooker_Id(1L, pageable);
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.ALL), eq(0L), eq(1));
     }
 
     @Test
@@ -272,16 +390,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByBooker_IdAndStartBeforeAndEndAfter(anyLong(),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.CURRENT), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByBookerId(1L, BookingState.CURRENT, 0L, 1L));
+
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.CURRENT), eq(0L), eq(1));
     }
 
     @Test
@@ -289,14 +404,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.PAST), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
-        when(bookingRepository.getBookingByBooker_IdAndEndBefore(anyLong(),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        assertDoesNotThrow(() -> bookingService
+                .getBookingsByBookerId(1L, BookingState.PAST, 0L, 1L));
 
-        assertDoesNotThrow(() -> bookingService.getBookingsByBookerId(1L, BookingState.PAST, 0L, 1L));
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.PAST), eq(0L), eq(1));
     }
 
     @Test
@@ -304,16 +418,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByBooker_IdAndStartAfterAndEndAfter(anyLong(),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.FUTURE), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByBookerId(1L, BookingState.FUTURE, 0L, 1L));
+
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.FUTURE), eq(0L), eq(1));
     }
 
     @Test
@@ -321,15 +432,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByBooker_IdAndStatus(anyLong(),
-                any(BookingStatus.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.WAITING), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByBookerId(1L, BookingState.WAITING, 0L, 1L));
+
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.WAITING), eq(0L), eq(1));
     }
 
     @Test
@@ -337,15 +446,23 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByBooker_IdAndStatus(anyLong(),
-                any(BookingStatus.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findBookerBookings(eq(1L), eq(BookingState.REJECTED), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByBookerId(1L, BookingState.REJECTED, 0L, 1L));
+
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.REJECTED), eq(0L), eq(1));
+    }
+
+    @Test
+    void getBookingsByBookerIdUsesOffsetOfWholePage() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+
+        bookingService.getBookingsByBookerId(1L, BookingState.ALL, 7L, 5L);
+
+        verify(bookingRepository).findBookerBookings(eq(1L), eq(BookingState.ALL), eq(5L), eq(5));
     }
 
     @Test
@@ -364,14 +481,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.ALL), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
-        when(bookingRepository.getBookingByItem_OwnerId(anyLong(), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
-
-        bookingService.getBookingsByOwnerId(1L, BookingState.ALL, 0L, 1L);
+        assertDoesNotThrow(() -> bookingService
+                .getBookingsByOwnerId(1L, BookingState.ALL, 0L, 1L));
 
-        verify(bookingRepository).getBookingByItem_OwnerId(1L, pageable);
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.ALL), eq(0L), eq(1));
     }
 
     @Test
@@ -379,16 +495,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByItem_OwnerIdAndStartBeforeAndEndAfter(anyLong(),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.CURRENT), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByOwnerId(1L, BookingState.CURRENT, 0L, 1L));
+
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.CURRENT), eq(0L), eq(1));
     }
 
     @Test
@@ -396,14 +509,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.PAST), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
-        when(bookingRepository.getBookingByItem_OwnerIdAndEndBefore(anyLong(),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        assertDoesNotThrow(() -> bookingService
+                .getBookingsByOwnerId(1L, BookingState.PAST, 0L, 1L));
 
-        assertDoesNotThrow(() -> bookingService.getBookingsByOwnerId(1L, BookingState.PAST, 0L, 1L));
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.PAST), eq(0L), eq(1));
     }
 
     @Test
@@ -411,16 +523,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByItem_OwnerIdAndStartAfterAndEndAfter(anyLong(),
-                any(LocalDateTime.class),
-                any(LocalDateTime.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.FUTURE), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByOwnerId(1L, BookingState.FUTURE, 0L, 1L));
+
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.FUTURE), eq(0L), eq(1));
     }
 
     @Test
@@ -428,15 +537,13 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByItem_OwnerIdAndStatus(anyLong(),
-                any(BookingStatus.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.WAITING), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByOwnerId(1L, BookingState.WAITING, 0L, 1L));
+
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.WAITING), eq(0L), eq(1));
     }
 
     @Test
@@ -444,14 +551,76 @@ class BookingServiceImplTest {
         when(userService.isPresent(anyLong()))
                 .thenReturn(true);
 
-        Pageable pageable = PageRequest.of(0, 1, Sort.by(Sort.Direction.DESC, "start"));
-
-        when(bookingRepository.getBookingByItem_OwnerIdAndStatus(anyLong(),
-                any(BookingStatus.class),
-                any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(), pageable, 0));
+        when(bookingRepository.findOwnerBookings(eq(1L), eq(BookingState.REJECTED), eq(0L), eq(1)))
+                .thenReturn(List.of());
 
         assertDoesNotThrow(() -> bookingService
                 .getBookingsByOwnerId(1L, BookingState.REJECTED, 0L, 1L));
+
+        verify(bookingRepository).findOwnerBookings(eq(1L), eq(BookingState.REJECTED), eq(0L), eq(1));
+    }
+
+    @Test
+    void getBookingsByBookerIdAfterCursorReturnsCursorOfLastBooking() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 12, 0);
+        BookingResponseDto booking =
+                new BookingResponseDto(7L, start, start.plusDays(1), BookingStatus.WAITING, 1L, 2L, "item");
+
+        when(bookingRepository.findBookerBookingsAfter(eq(1L), eq(BookingState.ALL), isNull(), eq(1)))
+                .thenReturn(new SliceImpl<>(List.of(booking), PageRequest.ofSize(1), true));
+
+        BookingSliceResponseDto result = bookingService.getBookingsByBookerIdAfterCursor(1L, BookingState.ALL, "", 1L);
+
+        assertEquals(1, result.getBookings().size());
+        BookingCursor nextCursor = BookingCursor.decode(result.getNextCursor());
+        assertEquals(start, nextCursor.getStart());
+        assertEquals(7L, nextCursor.getId());
+    }
+
+    @Test
+    void getBookingsByOwnerIdAfterCursorOnLastPage() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+
+        BookingCursor cursor = new BookingCursor(LocalDateTime.of(2030, 1, 1, 12, 0), 7L);
+
+        when(bookingRepository.findOwnerBookingsAfter(eq(1L), eq(BookingState.PAST), any(BookingCursor.class), eq(5)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(5), false));
+
+        BookingSliceResponseDto result =
+                bookingService.getBookingsByOwnerIdAfterCursor(1L, BookingState.PAST, cursor.encode(), 5L);
+
+        assertTrue(result.getBookings().isEmpty());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getBookingsByOwnerIdAfterCursorWithBrokenCursor() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+
+        BadRequestException exception = assertThrows(BadRequestException.class,
+                () -> bookingService.getBookingsByOwnerIdAfterCursor(1L, BookingState.ALL, "not-a-cursor", 5L));
+
+        assertEquals("некорректный курсор", exception.getMessage());
+    }
+
+    @Test
+    void updateApproveAllFailsWhenParallelDecisionChangedPartOfBookings() {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        when(bookingRepository.lockOwnerBookings(any(), eq(1L)))
+                .thenReturn(List.of(
+                        new BookingResponseDto(5L, start, start.plusDays(1), BookingStatus.WAITING, 3L, 2L, "item"),
+                        new BookingResponseDto(6L, start, start.plusDays(1), BookingStatus.WAITING, 3L, 2L, "item")));
+        when(bookingRepository.updateWaitingStatus(eq(BookingStatus.APPROVED), any(), eq(1L)))
+                .thenReturn(1);
+
+        assertThrows(AvailabilityException.class,
+                () -> bookingService.updateApproveAll(1L, List.of(5L, 6L), true));
+
+        verifyNoInteractions(statsService, bookingOutbox);
     }
-}
\ No newline at end of file
+}
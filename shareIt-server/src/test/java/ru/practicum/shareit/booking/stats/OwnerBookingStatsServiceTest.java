@@ -0,0 +1,53 @@
+package ru.practicum.shareit.booking.stats;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.model.OwnerBookingStats;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
+import ru.practicum.shareit.booking.repository.JpaOwnerBookingStatsRepository;
+import ru.practicum.shareit.user.dto.UserCreatedEvent;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OwnerBookingStatsServiceTest {
+    @Mock
+    JpaOwnerBookingStatsRepository statsRepository;
+    @Mock
+    JpaBookingRepository bookingRepository;
+    @Mock
+    JpaBookingArchiveRepository archiveRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+
+    OwnerBookingStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new OwnerBookingStatsService(statsRepository, bookingRepository, archiveRepository,
+                transactionManager);
+    }
+
+    @Test
+    void onUserCreatedSavesEmptyCounters() {
+        statsService.onUserCreated(new UserCreatedEvent(1L));
+
+        verify(statsRepository).save(OwnerBookingStats.empty(1L));
+    }
+
+    @Test
+    void onUserCreatedKeepsUserWhenCountersFail() {
+        when(statsRepository.save(OwnerBookingStats.empty(1L)))
+                .thenThrow(new DataAccessResourceFailureException("нет соединения"));
+
+        assertDoesNotThrow(() -> statsService.onUserCreated(new UserCreatedEvent(1L)));
+    }
+}
@@ -8,15 +8,31 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.item.dto.CommentRequestDto;
 import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto;
+import ru.practicum.shareit.item.dto.ItemCalendarDto;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
 import ru.practicum.shareit.item.dto.UpdateItemRequestDto;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.item.service.ItemService;
 
 import java.nio.charset.StandardCharsets;
-
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ItemController.class)
@@ -153,7 +169,32 @@ class ItemControllerTest {
                         .param("size", "3"))
                 .andExpect(status().isOk());
 
-        verify(itemService).searchByText("some", 0L, 3L);
+        verify(itemService).searchByText("some", null, null, ItemSearchSort.ID, false, 0L, 3L);
+    }
+
+    @SneakyThrows
+    @Test
+    void searchByTextByRelevance() {
+        mockMvc.perform(get("/items/search")
+                        .param("text", "some")
+                        .param("sort", "RELEVANCE")
+                        .param("fuzzy", "true"))
+                .andExpect(status().isOk());
+
+        verify(itemService).searchByText("some", null, null, ItemSearchSort.RELEVANCE, true, 0L, 20L);
+    }
+
+    @SneakyThrows
+    @Test
+    void suggest() {
+        when(itemService.suggest("дре", 10))
+                .thenReturn(List.of(new ItemSuggestionDto(2L, "Дрель")));
+
+        mockMvc.perform(get("/items/suggest")
+                        .param("prefix", "дре"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].name").value("Дрель"));
     }
 
     @SneakyThrows
@@ -174,4 +215,108 @@ class ItemControllerTest {
 
         verify(itemService).addComment(1L, 1L, commentRequestDto);
     }
-}
\ No newline at end of file
+
+    @SneakyThrows
+    @Test
+    void getAvailabilityReturnsETag() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0);
+        LocalDateTime to = from.plusDays(1);
+
+        when(itemService.getAvailabilityTag(1L))
+                .thenReturn("a-1");
+        when(itemService.getAvailability(1L, from, to, false))
+                .thenReturn(new ItemAvailabilityDto(1L, from, to,
+                        List.of(new ItemAvailabilityDto.FreePeriod(from, to))));
+
+        mockMvc.perform(get("/items/{itemId}/availability", 1L)
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-02T10:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"a-1\""))
+                .andExpect(jsonPath("$.free[0].start").value("2030-01-01T10:00:00"))
+                .andExpect(jsonPath("$.free[0].end").value("2030-01-02T10:00:00"));
+    }
+
+    @SneakyThrows
+    @Test
+    void getAvailabilityNotModified() {
+        when(itemService.getAvailabilityTag(1L))
+                .thenReturn("a-1");
+
+        mockMvc.perform(get("/items/{itemId}/availability", 1L)
+                        .header("If-None-Match", "\"a-1\"")
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-02T10:00:00"))
+                .andExpect(status().isNotModified());
+
+        verify(itemService, never()).getAvailability(anyLong(), any(), any(), anyBoolean());
+    }
+
+    @SneakyThrows
+    @Test
+    void getAvailabilityOfMissingItemIsNotFoundEvenWithETag() {
+        when(itemService.getAvailabilityTag(1L))
+                .thenThrow(new ObjectNotFoundException("Вещь с id 1 не найдена"));
+
+        mockMvc.perform(get("/items/{itemId}/availability", 1L)
+                        .header("If-None-Match", "\"a-1\"")
+                        .param("from", "2030-01-01T10:00:00")
+                        .param("to", "2030-01-02T10:00:00"))
+                .andExpect(status().isNotFound());
+
+        verify(itemService, never()).getAvailability(anyLong(), any(), any(), anyBoolean());
+    }
+
+    @SneakyThrows
+    @Test
+    void getCalendarReturnsICalendarWithValidators() {
+        Instant changed = Instant.parse("2030-01-01T10:00:00Z");
+        when(itemService.getCalendarVersion(1L, 3L))
+                .thenReturn(new ItemCalendarDto("c-2", changed, null));
+        when(itemService.getCalendar(1L, 3L))
+                .thenReturn(new ItemCalendarDto("c-2", changed, "BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n"));
+
+        mockMvc.perform(get("/items/{itemId}/calendar.ics", 1L)
+                        .header("X-Sharer-User-Id", 3L))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"c-2\""))
+                .andExpect(header().dateValue("Last-Modified", changed.toEpochMilli()))
+                .andExpect(content().contentTypeCompatibleWith("text/calendar"))
+                .andExpect(content().string("BEGIN:VCALENDAR\r\nEND:VCALENDAR\r\n"));
+    }
+
+    @SneakyThrows
+    @Test
+    void getCalendarNotModified() {
+        Instant changed = Instant.parse("2030-01-01T10:00:00Z");
+        when(itemService.getCalendarVersion(1L, 3L))
+                .thenReturn(new ItemCalendarDto("c-2", changed, null));
+
+        mockMvc.perform(get("/items/{itemId}/calendar.ics", 1L)
+                        .header("X-Sharer-User-Id", 3L)
+                        .header("If-None-Match", "\"c-2\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/items/{itemId}/calendar.ics", 1L)
+                        .header("X-Sharer-User-Id", 3L)
+                        .header("If-Modified-Since", "Tue, 01 Jan 2030 10:00:00 GMT"))
+                .andExpect(status().isNotModified());
+
+        verify(itemService, never()).getCalendar(anyLong(), anyLong());
+    }
+
+    @SneakyThrows
+    @Test
+    void getCalendarRequiresOwner() {
+        when(itemService.getCalendarVersion(1L, 4L))
+                .thenThrow(new ObjectNotFoundException("Несоответствие id владельца"));
+
+        mockMvc.perform(get("/items/{itemId}/calendar.ics", 1L)
+                        .header("X-Sharer-User-Id", 4L)
+                        .header("If-None-Match", "\"c-2\""))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/items/{itemId}/calendar.ics", 1L))
+                .andExpect(status().is4xxClientError());
+
+        verify(itemService, never()).getCalendar(anyLong(), anyLong());
+    }
+}
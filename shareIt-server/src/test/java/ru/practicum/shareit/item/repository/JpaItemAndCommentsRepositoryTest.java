@@ -6,6 +6,9 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.data.domain.Pageable;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.JpaBookingRepository;
 import ru.practicum.shareit.item.dto.CommentResponseDto;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
@@ -27,6 +30,8 @@ class JpaItemAndCommentsRepositoryTest {
     JpaCommentRepository commentRepository;
     @Autowired
     JpaUserRepository userRepository;
+    @Autowired
+    JpaBookingRepository bookingRepository;
 
     Item item1;
     Item item2;
@@ -136,6 +141,36 @@ class JpaItemAndCommentsRepositoryTest {
         assertTrue(result.isEmpty());
     }
 
+    @Test
+    void findBookedItemIdsReturnsOnlyOverlappingApprovedBookings() {
+        User booker = userRepository.save(User.builder().name("booker").email("booker@email.com").build());
+        LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+
+        bookingRepository.save(Booking.builder().booker(booker).item(item1).status(BookingStatus.APPROVED)
+                .start(start.minusDays(1)).end(start.plusHours(1)).build());
+        bookingRepository.save(Booking.builder().booker(booker).item(item2).status(BookingStatus.WAITING)
+                .start(start).end(start.plusDays(1)).build());
+
+        List<Long> result = bookingRepository.findBookedItemIds(List.of(item1.getId(), item2.getId()),
+                BookingStatus.APPROVED, start, start.plusDays(1));
+
+        assertEquals(List.of(item1.getId()), result);
+    }
+
+    @Test
+    void findBookedItemIdsSkipsAdjacentApprovedBookings() {
+        User booker = userRepository.save(User.builder().name("booker").email("booker@email.com").build());
+        LocalDateTime start = LocalDateTime.now().plusDays(10).withNano(0);
+
+        bookingRepository.save(Booking.builder().booker(booker).item(item1).status(BookingStatus.APPROVED)
+                .start(start.minusDays(1)).end(start).build());
+
+        List<Long> result = bookingRepository.findBookedItemIds(List.of(item1.getId(), item2.getId()),
+                BookingStatus.APPROVED, start, start.plusDays(1));
+
+        assertTrue(result.isEmpty());
+    }
+
     @Test
     void getCommentsOutDtoByItemIdWithTwoComments() {
         Optional<List<CommentResponseDto>> optResult = commentRepository.getCommentsOutDtoByItemId(item1.getId());
@@ -0,0 +1,50 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BkTreeTest {
+    @Test
+    void distanceCountsInsertionsDeletionsAndSubstitutions() {
+        assertEquals(0, BkTree.distance("дрель", "дрель"));
+        assertEquals(1, BkTree.distance("дрель", "дрел"));
+        assertEquals(1, BkTree.distance("drill", "dril"));
+        assertEquals(2, BkTree.distance("drill", "dirll"));
+        assertEquals(5, BkTree.distance("", "дрель"));
+    }
+
+    @Test
+    void searchFindsSameWordsAsFullScan() {
+        Random random = new Random(11);
+        Set<String> words = random.ints(2000, 0, 50_000)
+                .mapToObj(Integer::toString)
+                .collect(Collectors.toSet());
+        BkTree tree = new BkTree();
+
+        words.forEach(tree::add);
+        words.forEach(tree::add);
+
+        assertEquals(words.size(), tree.size());
+        for (String query : new String[]{"1234", "777", "40000", "9"}) {
+            Map<String, Integer> expected = new TreeMap<>();
+            for (String word : words) {
+                int distance = BkTree.distance(query, word);
+                if (distance <= 2) {
+                    expected.put(word, distance);
+                }
+            }
+
+            Map<String, Integer> found = new TreeMap<>();
+            tree.search(query, 2).forEach(match -> found.put(match.word(), match.distance()));
+
+            assertEquals(expected, found);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность {@link ItemAnalyzer} в словах в секунду против голого {@link ItemTokenizer}.
+ * Запуск: mvn test -Dtest=ItemAnalyzerBenchmarkTest -Dshareit.benchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemAnalyzerBenchmarkTest {
+    private static final int TEXTS = 1_000;
+    private static final int WORDS = 12;
+    private static final String[] VOCABULARY = {
+            "Дрель", "ударная", "с", "аккумулятором", "и", "зарядкой", "для", "сверления", "бетона",
+            "пила", "ручная", "по", "дереву", "отвёртка", "крестовая", "набор", "бит", "ещё", "новый",
+            "cordless", "drill", "with", "two", "batteries", "and", "the", "charger", "saws", "blades"
+    };
+
+    private final String[] texts = new String[TEXTS];
+    private final ItemAnalyzer analyzer = ItemAnalyzer.standard();
+
+    @Setup
+    public void generateTexts() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < TEXTS; i++) {
+            StringBuilder text = new StringBuilder();
+
+            for (int j = 0; j < WORDS; j++) {
+                String separator = j == 0 ? "" : j % 4 == 0 ? ", " : " ";
+                text.append(separator).append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+            }
+            texts[i] = text.toString();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS * WORDS)
+    public void tokenizer(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(ItemTokenizer.words(text));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TEXTS * WORDS)
+    public void analyzer(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(analyzer.words(text));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+    void analyzerThroughput() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ItemAnalyzerBenchmarkTest.class.getName())
+                .build())
+                .run();
+    }
+}
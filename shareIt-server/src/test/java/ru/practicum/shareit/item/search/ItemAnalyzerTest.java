@@ -0,0 +1,57 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemAnalyzerTest {
+    private final ItemAnalyzer analyzer = ItemAnalyzer.standard();
+
+    @Test
+    void wordsAreNormalizedFoldedAndStemmed() {
+        assertEquals(List.of("дрел", "ударн", "аккумулятор"),
+                analyzer.words("Дрель ударная с аккумулятором"));
+        // ё из буквы е и комбинируемого знака U+0308 собирается в одну букву до разбиения на слова
+        assertEquals(List.of("елк", "елк"), analyzer.words("Е\u0308лка ёлки"));
+        assertEquals(List.of("file", "drill"), analyzer.words("ﬁle Drill"));
+    }
+
+    @Test
+    void stopWordsAreDropped() {
+        assertEquals(List.of(), analyzer.words("и для на the of"));
+        assertEquals(List.of("пил", "saw"), analyzer.tokenize("Пила для пилы, the saws"));
+    }
+
+    @Test
+    void customFiltersReplaceStandardPipeline() {
+        ItemAnalyzer plain = new ItemAnalyzer(List.of(token -> token.length() > 2 ? token : null));
+
+        assertEquals(List.of("дрели", "для"), plain.words("Дрели для 10 мм"));
+    }
+
+    @Test
+    void russianStemmerCutsCaseEndings() {
+        RussianLightStemmer stemmer = new RussianLightStemmer();
+
+        assertEquals("дрел", stemmer.apply("дрелями"));
+        assertEquals("пил", stemmer.apply("пилой"));
+        assertEquals("дом", stemmer.apply("дом"));
+        assertEquals("дом", stemmer.apply("дома"));
+        assertEquals("зарядн", stemmer.apply("зарядного"));
+        assertEquals("drill", stemmer.apply("drill"));
+    }
+
+    @Test
+    void englishStemmerCutsPlurals() {
+        EnglishLightStemmer stemmer = new EnglishLightStemmer();
+
+        assertEquals("drill", stemmer.apply("drills"));
+        assertEquals("battery", stemmer.apply("batteries"));
+        assertEquals("cordless", stemmer.apply("cordless"));
+        assertEquals("bus", stemmer.apply("bus"));
+        assertEquals("hammer", stemmer.apply("hammers"));
+        assertEquals("дрели", stemmer.apply("дрели"));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Время ответа и обновления {@link ItemNameSuggester} на 200 тысячах названий из трех слов.
+ * Запуск: mvn test -Dtest=ItemNameSuggesterBenchmarkTest -Dshareit.benchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ItemNameSuggesterBenchmarkTest {
+    private static final int ITEMS = 200_000;
+    private static final String[] WORDS = {
+            "дрель", "пила", "отвертка", "перфоратор", "шуруповерт", "лобзик", "рубанок", "стремянка",
+            "палатка", "велосипед", "самокат", "лыжи", "проектор", "колонка", "гитара", "мангал"
+    };
+    private static final String[] PREFIXES = {"д", "др", "пер", "шуруп", "лыжи с", "гит", "мангал п"};
+
+    private final ItemNameSuggester suggester = new ItemNameSuggester(null);
+    private final Random random = new Random(42);
+    private int next;
+
+    @Setup
+    public void fillSuggester() {
+        for (long id = 1; id <= ITEMS; id++) {
+            suggester.index(item(id, random));
+        }
+        for (int i = 0; i < ITEMS; i++) {
+            BookingEvent event = new BookingEvent();
+            event.setItemId(1L + random.nextInt(ITEMS));
+            event.setType(BookingEventType.APPROVED);
+            suggester.onBookingEvent(event);
+        }
+    }
+
+    @Benchmark
+    public List<ItemSuggestionDto> suggest() {
+        next = (next + 1) % PREFIXES.length;
+        return suggester.suggest(PREFIXES[next], 10);
+    }
+
+    @Benchmark
+    public void rename() {
+        suggester.index(item(1L + random.nextInt(ITEMS), random));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+    void suggestLatency() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ItemNameSuggesterBenchmarkTest.class.getName())
+                .build())
+                .run();
+    }
+
+    private static Item item(long id, Random random) {
+        String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " "
+                + WORDS[random.nextInt(WORDS.length)] + " " + id;
+
+        return Item.builder().id(id).name(name).description("").available(random.nextInt(10) > 0).build();
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.dto.BookingEvent;
+import ru.practicum.shareit.booking.model.BookingEventType;
+import ru.practicum.shareit.item.dto.ItemSuggestionDto;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JdbcTest
+class ItemNameSuggesterTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void suggestMatchesStartOfNameOrAnyWord() {
+        ItemNameSuggester suggester = new ItemNameSuggester(jdbcTemplate);
+
+        suggester.index(item(1L, "Дрель", true));
+        suggester.index(item(2L, "Аккумуляторная дрель", true));
+        suggester.index(item(3L, "Ёлка", true));
+        suggester.index(item(4L, "Дрель старая", false));
+
+        assertEquals(List.of(new ItemSuggestionDto(1L, "Дрель"), new ItemSuggestionDto(2L, "Аккумуляторная дрель")),
+                suggester.suggest("ДРЕ", 10));
+        assertEquals(List.of(2L), ids(suggester.suggest("аккумуляторная  др", 10)));
+        assertEquals(List.of(3L), ids(suggester.suggest("елк", 10)));
+        assertEquals(List.of(1L), ids(suggester.suggest("дре", 1)));
+        assertEquals(List.of(), ids(suggester.suggest(" , ", 10)));
+    }
+
+    @Test
+    void indexFollowsRenameAndAvailability() {
+        ItemNameSuggester suggester = new ItemNameSuggester(jdbcTemplate);
+
+        suggester.index(item(1L, "Дрель", true));
+        suggester.index(item(1L, "Перфоратор", true));
+
+        assertEquals(List.of(), ids(suggester.suggest("дре", 10)));
+        assertEquals(List.of(1L), ids(suggester.suggest("пер", 10)));
+
+        suggester.index(item(1L, "Перфоратор", false));
+        assertEquals(List.of(), ids(suggester.suggest("пер", 10)));
+
+        suggester.index(item(1L, "Перфоратор", true));
+        suggester.remove(Set.of(1L));
+        assertEquals(List.of(), ids(suggester.suggest("пер", 10)));
+    }
+
+    @Test
+    void approvedBookingsRaiseItem() {
+        ItemNameSuggester suggester = new ItemNameSuggester(jdbcTemplate);
+
+        suggester.index(item(1L, "Дрель", true));
+        suggester.index(item(2L, "Дрель ударная", true));
+        suggester.onBookingEvent(event(2L, BookingEventType.CREATED));
+
+        assertEquals(List.of(1L, 2L), ids(suggester.suggest("дрель", 10)));
+
+        suggester.onBookingEvent(event(2L, BookingEventType.APPROVED));
+
+        assertEquals(List.of(2L, 1L), ids(suggester.suggest("дрель", 10)));
+    }
+
+    @Test
+    void rebuildLoadsPopularityFromBookingsAndArchive() {
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@email.com')");
+        jdbcTemplate.update("insert into items (id, name, description, available, owner_id) " +
+                "values (1, 'Дрель', 'Ударная', true, 1), (2, 'Дрель простая', 'Простая', true, 1), " +
+                "(3, 'Дрель старая', 'Сломана', false, 1), (4, 'Дрель новая', 'Новая', true, 1)");
+        jdbcTemplate.update("insert into booking (start_time, end_time, status, item_id, booker_id, phase) " +
+                "values (now(), now(), 'APPROVED', 2, 1, 'PAST'), (now(), now(), 'REJECTED', 4, 1, 'PAST'), " +
+                "(now(), now(), 'WAITING', 4, 1, 'PAST'), (now(), now(), 'APPROVED', 3, 1, 'PAST')");
+        jdbcTemplate.update("insert into booking_archive (id, start_time, end_time, status, item_id, booker_id, " +
+                "owner_id) values (100, now(), now(), 'APPROVED', 2, 1, 1), (101, now(), now(), 'APPROVED', 1, 1, 1)");
+        ItemNameSuggester suggester = new ItemNameSuggester(jdbcTemplate);
+
+        suggester.index(item(9L, "Дрель", true));
+        suggester.rebuild();
+
+        assertEquals(List.of(2L, 1L, 4L), ids(suggester.suggest("дрель", 10)));
+    }
+
+    private static List<Long> ids(List<ItemSuggestionDto> suggestions) {
+        return suggestions.stream()
+                .map(ItemSuggestionDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private static BookingEvent event(Long itemId, BookingEventType type) {
+        BookingEvent event = new BookingEvent();
+        event.setItemId(itemId);
+        event.setType(type);
+        return event;
+    }
+
+    private static Item item(Long id, String name, boolean available) {
+        return Item.builder().id(id).name(name).description("Описание").available(available).ownerId(1L).build();
+    }
+}
@@ -0,0 +1,126 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.JpaItemRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение поиска по индексу с поиском сканированием таблицы {@link JpaItemRepository#some}.
+ * Запуск: mvn test -Dtest=ItemSearchBenchmarkTest -Dshareit.benchmark=true -DargLine=-Xmx3g
+ * [-Dshareit.benchmark.items=1000000]. Таблица items на 1M строк лежит в памяти H2 вместе с индексом.
+ */
+@Slf4j
+@DataJpaTest
+@EnabledIfSystemProperty(named = "shareit.benchmark", matches = "true")
+class ItemSearchBenchmarkTest {
+    private static final int VOCABULARY = 20_000;
+    private static final int NAME_WORDS = 3;
+    private static final int DESCRIPTION_WORDS = 6;
+    private static final int BATCH = 10_000;
+    private static final int ROUNDS = 5;
+    private static final int PAGE = 20;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    JpaItemRepository itemRepository;
+
+    @Test
+    void indexAgainstTableScan() {
+        int items = Integer.getInteger("shareit.benchmark.items", 1_000_000);
+        Random random = new Random(42);
+
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@email.com')");
+        for (int first = 1; first <= items; first += BATCH) {
+            List<Object[]> rows = new ArrayList<>();
+
+            for (int id = first; id < first + BATCH && id <= items; id++) {
+                rows.add(new Object[]{id, words(random, NAME_WORDS), words(random, DESCRIPTION_WORDS),
+                        random.nextInt(10) > 0});
+            }
+            jdbcTemplate.batchUpdate("insert into items (id, name, description, available, owner_id) " +
+                    "values (?, ?, ?, ?, 1)", rows);
+        }
+
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+        long rebuildStarted = System.nanoTime();
+        index.rebuild();
+        log.info("Индекс на {} вещей построен за {} мс", items, (System.nanoTime() - rebuildStarted) / 1_000_000);
+
+        List<String> queries = List.of(word(7), word(1234), word(19_999), word(42) + " " + word(4242));
+        long scanNanos = 0;
+        long indexNanos = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String query : queries) {
+                long started = System.nanoTime();
+                List<Long> scanned = itemRepository.some(query, PageRequest.of(0, PAGE, Sort.by("id")))
+                        .map(Item::getId)
+                        .getContent();
+                scanNanos += System.nanoTime() - started;
+
+                started = System.nanoTime();
+                long[] found = index.search(query, false);
+                List<Long> indexed = Arrays.stream(found, 0, Math.min(PAGE, found.length))
+                        .boxed()
+                        .collect(Collectors.toList());
+                indexNanos += System.nanoTime() - started;
+
+                assertEquals(scanned, indexed);
+            }
+        }
+
+        int searches = ROUNDS * queries.size();
+        log.info("Вещей: {}, запросов: {}, сканирование: {} мкс на запрос, индекс: {} мкс на запрос",
+                items, searches, scanNanos / searches / 1000, indexNanos / searches / 1000);
+
+        long fuzzyNanos = 0;
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String query : queries) {
+                // опечатка в первой букве каждого слова
+                String misspelled = query.replace('w', 'v');
+                long started = System.nanoTime();
+                long[] found = index.search(misspelled, true);
+                fuzzyNanos += System.nanoTime() - started;
+
+                long[] exact = index.search(query, false);
+                assertEquals(exact.length, Arrays.stream(exact)
+                        .filter(id -> Arrays.binarySearch(found, id) >= 0)
+                        .count());
+            }
+        }
+
+        log.info("Нечеткий поиск: {} мкс на запрос", fuzzyNanos / searches / 1000);
+    }
+
+    // слова одной длины, поэтому слово запроса входит подстрокой только в само себя
+    private static String words(Random random, int count) {
+        StringBuilder text = new StringBuilder();
+
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "" : " ").append(word(random.nextInt(VOCABULARY)));
+        }
+
+        return text.toString();
+    }
+
+    private static String word(int number) {
+        return String.format("w%05d", number);
+    }
+}
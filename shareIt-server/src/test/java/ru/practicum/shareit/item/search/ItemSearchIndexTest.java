@@ -0,0 +1,186 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.item.model.Item;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@JdbcTest
+class ItemSearchIndexTest {
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void searchMatchesWordPrefixesInNameAndDescription() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(3L, "Аккумуляторная дрель", "Дрель с зарядкой", true));
+        index.index(item(1L, "Отвертка", "Крестовая, для дрели не нужна", true));
+        index.index(item(2L, "Пила", "Ручная", true));
+
+        assertArrayEquals(new long[]{1L, 3L}, index.search("ДРЕЛ", false));
+        assertArrayEquals(new long[]{3L}, index.search("аккУМУляторная", false));
+        assertArrayEquals(new long[]{1L}, index.search("дрел, нужн", false));
+        assertArrayEquals(new long[]{}, index.search("рель", false));
+        assertArrayEquals(new long[]{}, index.search(" , ", false));
+    }
+
+    @Test
+    void searchSkipsUnavailableItems() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(2L, "Дрель", "Ударная", false));
+
+        assertArrayEquals(new long[]{1L}, index.search("дрель", false));
+
+        index.index(item(2L, "Дрель", "Ударная", true));
+        index.index(item(1L, "Дрель", "Ударная", false));
+
+        assertArrayEquals(new long[]{2L}, index.search("дрель", false));
+    }
+
+    @Test
+    void indexReplacesPreviousWords() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(1L, "Перфоратор", "Ударный", true));
+
+        assertArrayEquals(new long[]{}, index.search("дрель", false));
+        assertArrayEquals(new long[]{1L}, index.search("перфоратор ударн", false));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeDropsItems() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(2L, "Дрель", "Ударная", false));
+        index.remove(List.of(1L, 2L, 5L));
+
+        assertArrayEquals(new long[]{}, index.search("дрель", false));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void searchByRelevanceWeightsNameOverDescription() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Отвертка", "Подходит к дрели и шуруповерту", true));
+        index.index(item(2L, "Дрель", "Ударная", true));
+        index.index(item(3L, "Пила", "Ручная", true));
+
+        assertArrayEquals(new long[]{2L, 1L}, index.searchByRelevance("дрел", false, 10, id -> true));
+    }
+
+    @Test
+    void searchByRelevancePrefersWholeWordAndFrequency() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Пилатес", "Станок", true));
+        index.index(item(2L, "Пила", "Станок", true));
+        index.index(item(3L, "Пила", "Пила по дереву, пила по металлу", true));
+
+        assertArrayEquals(new long[]{3L, 2L, 1L}, index.searchByRelevance("пила", false, 10, id -> true));
+    }
+
+    @Test
+    void searchByRelevanceKeepsTopWithFilter() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        for (long id = 1; id <= 5; id++) {
+            index.index(item(id, "Дрель", "Ударная", id != 4L));
+        }
+
+        assertArrayEquals(new long[]{1L, 3L}, index.searchByRelevance("дрель", false, 2, id -> id != 2L));
+        assertArrayEquals(new long[]{1L, 2L, 3L, 5L}, index.searchByRelevance("дрель", false, 100, id -> true));
+        assertArrayEquals(new long[]{}, index.searchByRelevance("дрель", false, 0, id -> true));
+    }
+
+    @Test
+    void searchMatchesOtherFormsOfWords() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Дрель", "Ударная, с двумя аккумуляторами", true));
+        index.index(item(2L, "Ёлка", "Искусственная", true));
+        index.index(item(3L, "Batteries", "For cordless drills", true));
+
+        assertArrayEquals(new long[]{1L}, index.search("дрели", false));
+        assertArrayEquals(new long[]{1L}, index.search("ударную дрелью", false));
+        assertArrayEquals(new long[]{1L}, index.search("аккумулятор", false));
+        assertArrayEquals(new long[]{2L}, index.search("елки", false));
+        assertArrayEquals(new long[]{3L}, index.search("battery for the drill", false));
+        assertArrayEquals(new long[]{}, index.search("для и the", false));
+    }
+
+    @Test
+    void fuzzySearchMatchesMisspelledWords() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Drill", "Cordless", true));
+        index.index(item(2L, "Дрель", "Аккумуляторная", true));
+        index.index(item(3L, "Пила", "Ручная", true));
+
+        assertArrayEquals(new long[]{}, index.search("drull", false));
+        assertArrayEquals(new long[]{1L}, index.search("drull", true));
+        assertArrayEquals(new long[]{2L}, index.search("дрнль", true));
+        assertArrayEquals(new long[]{2L}, index.search("дрель акумуляторная", true));
+        assertArrayEquals(new long[]{}, index.search("пли", true));
+    }
+
+    @Test
+    void fuzzySearchSkipsWordsOfReplacedItems() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Дрель", "Ударная", true));
+        index.index(item(1L, "Пила", "Ручная", true));
+
+        assertArrayEquals(new long[]{}, index.search("дрнль", true));
+        assertArrayEquals(new long[]{1L}, index.search("пила", true));
+    }
+
+    @Test
+    void fuzzyRelevanceRanksExactMatchFirst() {
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(1L, "Трель", "Птичья", true));
+        index.index(item(2L, "Дрель", "Ударная", true));
+
+        assertArrayEquals(new long[]{2L, 1L}, index.searchByRelevance("дрель", true, 10, id -> true));
+    }
+
+    @Test
+    void maxDistanceGrowsWithWordLength() {
+        assertEquals(0, ItemSearchIndex.maxDistance("ab"));
+        assertEquals(1, ItemSearchIndex.maxDistance("дрель"));
+        assertEquals(2, ItemSearchIndex.maxDistance("отвертка"));
+    }
+
+    @Test
+    void rebuildLoadsItemsTable() {
+        jdbcTemplate.update("insert into users (id, name, email) values (1, 'owner', 'owner@email.com')");
+        jdbcTemplate.update("insert into items (id, name, description, available, owner_id) " +
+                "values (1, 'Дрель', 'Ударная', true, 1), (2, 'Дрель', 'Простая', false, 1), " +
+                "(3, 'Пила', 'Ручная', true, 1)");
+        ItemSearchIndex index = new ItemSearchIndex(jdbcTemplate);
+
+        index.index(item(9L, "Дрель", "Только в памяти", true));
+        index.rebuild();
+
+        assertArrayEquals(new long[]{1L}, index.search("дрель", false));
+        assertArrayEquals(new long[]{3L}, index.search("руч", false));
+        assertEquals(3, index.size());
+    }
+
+    private static Item item(Long id, String name, String description, boolean available) {
+        return Item.builder().id(id).name(name).description(description).available(available).ownerId(1L).build();
+    }
+}
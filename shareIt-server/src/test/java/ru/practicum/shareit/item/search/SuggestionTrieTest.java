@@ -0,0 +1,100 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestionTrieTest {
+    @Test
+    void topReturnsPopularFirstForPrefixEndingInsideEdge() {
+        SuggestionTrie trie = new SuggestionTrie(3);
+
+        trie.add("дрель", new SuggestionTrie.Suggestion(1L, "Дрель", 2));
+        trie.add("дрель ударная", new SuggestionTrie.Suggestion(2L, "Дрель ударная", 5));
+        trie.add("доска", new SuggestionTrie.Suggestion(3L, "Доска", 9));
+
+        assertEquals(List.of(2L, 1L), ids(trie.top("др", 10)));
+        assertEquals(List.of(3L, 2L, 1L), ids(trie.top("д", 10)));
+        assertEquals(List.of(3L), ids(trie.top("д", 1)));
+        assertEquals(List.of(2L), ids(trie.top("дрель у", 10)));
+        assertEquals(List.of(), ids(trie.top("дрола", 10)));
+    }
+
+    @Test
+    void removeAndRaiseKeepTopsConsistent() {
+        SuggestionTrie trie = new SuggestionTrie(2);
+
+        trie.add("пила", new SuggestionTrie.Suggestion(1L, "Пила", 3));
+        trie.add("пилка", new SuggestionTrie.Suggestion(2L, "Пилка", 2));
+        trie.add("пилатес", new SuggestionTrie.Suggestion(3L, "Пилатес", 1));
+
+        assertEquals(List.of(1L, 2L), ids(trie.top("пил", 10)));
+
+        trie.remove("пила", 1L);
+        assertEquals(List.of(2L, 3L), ids(trie.top("пил", 10)));
+
+        trie.raise("пилатес", new SuggestionTrie.Suggestion(3L, "Пилатес", 7));
+        assertEquals(List.of(3L, 2L), ids(trie.top("пил", 10)));
+        assertEquals(List.of(), ids(trie.top("пила ", 10)));
+    }
+
+    @Test
+    void topMatchesFullScanAfterRandomUpdates() {
+        Random random = new Random(7);
+        SuggestionTrie trie = new SuggestionTrie(5);
+        Map<Long, String> keys = new HashMap<>();
+        Map<Long, Long> popularity = new HashMap<>();
+
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(200);
+            String key = keys.get(id);
+
+            if (key != null && random.nextBoolean()) {
+                trie.remove(key, id);
+                keys.remove(id);
+            } else if (key != null) {
+                long raised = popularity.merge(id, 1L + random.nextInt(3), Long::sum);
+                trie.raise(key, new SuggestionTrie.Suggestion(id, key, raised));
+            } else {
+                String added = word(random);
+                keys.put(id, added);
+                popularity.put(id, (long) random.nextInt(5));
+                trie.add(added, new SuggestionTrie.Suggestion(id, added, popularity.get(id)));
+            }
+        }
+
+        for (String prefix : List.of("", "a", "ab", "ba", "cab", "ccc")) {
+            List<Long> expected = keys.entrySet().stream()
+                    .filter(entry -> entry.getValue().startsWith(prefix))
+                    .map(Map.Entry::getKey)
+                    .sorted(Comparator.comparingLong((Long id) -> -popularity.get(id)).thenComparingLong(id -> id))
+                    .limit(5)
+                    .collect(Collectors.toList());
+
+            assertEquals(expected, ids(trie.top(prefix, 5)), prefix);
+        }
+    }
+
+    private static String word(Random random) {
+        StringBuilder word = new StringBuilder();
+
+        for (int i = random.nextInt(4) + 1; i > 0; i--) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+
+        return word.toString();
+    }
+
+    private static List<Long> ids(List<SuggestionTrie.Suggestion> suggestions) {
+        return suggestions.stream()
+                .map(SuggestionTrie.Suggestion::id)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.shareit.item.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class TopItemsTest {
+    @Test
+    void drainReturnsBestFirstAsFullSort() {
+        Random random = new Random(7);
+        double[] scores = new double[1000];
+
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = random.nextInt(50);
+        }
+
+        TopItems top = new TopItems(25);
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+
+        long[] expected = LongStream.range(0, scores.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Long id) -> -scores[id.intValue()])
+                        .thenComparing(id -> id))
+                .limit(25)
+                .mapToLong(Long::longValue)
+                .toArray();
+
+        assertArrayEquals(expected, top.drain());
+    }
+
+    @Test
+    void drainReturnsFewerThanLimit() {
+        TopItems top = new TopItems(5);
+
+        top.offer(3L, 1.0);
+        top.offer(1L, 2.0);
+
+        assertArrayEquals(new long[]{1L, 3L}, top.drain());
+    }
+
+    @Test
+    void zeroLimitKeepsNothing() {
+        TopItems top = new TopItems(0);
+
+        top.offer(1L, 1.0);
+
+        assertArrayEquals(new long[]{}, top.drain());
+    }
+}
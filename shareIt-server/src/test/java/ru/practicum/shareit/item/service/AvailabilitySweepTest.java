@@ -0,0 +1,66 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.item.dto.ItemAvailabilityDto.FreePeriod;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AvailabilitySweepTest {
+    private final LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private final LocalDateTime to = from.plusDays(10);
+
+    @Test
+    void withoutBookingsWholeRangeIsFree() {
+        assertThat(AvailabilitySweep.freePeriods(List.of(), from, to))
+                .containsExactly(new FreePeriod(from, to));
+    }
+
+    @Test
+    void overlappingBookingsMergeIntoOneBusyPeriod() {
+        List<ShortBooking> bookings = List.of(
+                booking(1L, 1, 4),
+                booking(2L, 3, 6),
+                booking(3L, 2, 3));
+
+        assertThat(AvailabilitySweep.freePeriods(bookings, from, to))
+                .containsExactly(new FreePeriod(from, day(1)), new FreePeriod(day(6), to));
+    }
+
+    @Test
+    void adjacentBookingsLeaveNoEmptyGap() {
+        List<ShortBooking> bookings = List.of(
+                booking(1L, 4, 6),
+                booking(2L, 2, 4));
+
+        assertThat(AvailabilitySweep.freePeriods(bookings, from, to))
+                .containsExactly(new FreePeriod(from, day(2)), new FreePeriod(day(6), to));
+    }
+
+    @Test
+    void bookingsOutsideRangeAreClamped() {
+        List<ShortBooking> bookings = List.of(
+                booking(1L, -3, 1),
+                booking(2L, 8, 15));
+
+        assertThat(AvailabilitySweep.freePeriods(bookings, from, to))
+                .containsExactly(new FreePeriod(day(1), day(8)));
+    }
+
+    @Test
+    void bookingCoveringRangeLeavesNothingFree() {
+        assertThat(AvailabilitySweep.freePeriods(List.of(booking(1L, -1, 11)), from, to))
+                .isEmpty();
+    }
+
+    private ShortBooking booking(Long id, int startDay, int endDay) {
+        return new ShortBooking(id, 1L, day(startDay), day(endDay), 1L);
+    }
+
+    private LocalDateTime day(int day) {
+        return from.plusDays(day);
+    }
+}
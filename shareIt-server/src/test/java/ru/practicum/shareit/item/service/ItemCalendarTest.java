@@ -0,0 +1,145 @@
+package ru.practicum.shareit.item.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.shareit.booking.dto.BookingChange;
+import ru.practicum.shareit.booking.dto.ShortBooking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemCalendarTest {
+    private final LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+    private final Instant first = Instant.parse("2029-12-01T08:00:00Z");
+    private final Instant second = Instant.parse("2029-12-02T08:00:00Z");
+
+    @Test
+    void renderOrdersEventsByStart() {
+        ItemCalendar calendar = ItemCalendar.render(7L, "t-1", first, List.of(
+                new ShortBooking(2L, 5L, start.plusDays(3), start.plusDays(4), 7L),
+                new ShortBooking(1L, 5L, start, start.plusDays(1), 7L)));
+
+        String body = calendar.body();
+
+        assertEquals(2, calendar.size());
+        assertEquals("t-1", calendar.tag());
+        assertEquals(first, calendar.lastModified());
+        assertTrue(body.startsWith("BEGIN:VCALENDAR\r\nVERSION:2.0\r\n"));
+        assertTrue(body.contains("X-WR-CALNAME:item-7\r\n"));
+        assertTrue(body.contains("UID:booking-1@shareit\r\nDTSTAMP:20291201T080000Z\r\n"
+                + "DTSTART:20300101T100000\r\nDTEND:20300102T100000\r\n"));
+        assertTrue(body.indexOf("UID:booking-1@shareit") < body.indexOf("UID:booking-2@shareit"));
+        assertTrue(body.endsWith("END:VEVENT\r\nEND:VCALENDAR\r\n"));
+    }
+
+    @Test
+    void patchReplacesOnlyChangedEvents() {
+        ItemCalendar calendar = ItemCalendar.render(1L, "t-1", first, bookings(1L, 2));
+
+        ItemCalendar patched = calendar.patch("t-2", second, List.of(
+                new BookingChange(100L, start, start.plusHours(1), BookingStatus.REJECTED),
+                new BookingChange(102L, start.minusDays(1), start.minusDays(1).plusHours(1), BookingStatus.APPROVED),
+                BookingChange.removed(500L)));
+
+        assertEquals("t-2", patched.tag());
+        assertEquals(2, patched.size());
+        assertFalse(patched.body().contains("UID:booking-100@shareit"));
+        assertTrue(patched.body().contains("UID:booking-101@shareit\r\nDTSTAMP:20291201T080000Z\r\n"));
+        assertTrue(patched.body().contains("UID:booking-102@shareit\r\nDTSTAMP:20291202T080000Z\r\n"));
+        assertTrue(patched.body().indexOf("UID:booking-102@shareit")
+                < patched.body().indexOf("UID:booking-101@shareit"));
+        assertEquals(2, calendar.size());
+        assertTrue(calendar.body().contains("UID:booking-100@shareit"));
+    }
+
+    @Test
+    void cachePatchesCalendarFromVersionJournal() {
+        ItemBookingVersions versions = new ItemBookingVersions();
+        ItemCalendarCache cache = new ItemCalendarCache(versions, 100);
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, Collection<ShortBooking>> loader = id -> {
+            loads.incrementAndGet();
+            return bookings(id, 2);
+        };
+
+        ItemCalendar calendar = cache.get(1L, versions.tag(1L), first, loader);
+
+        assertSame(calendar, cache.get(1L, versions.tag(1L), first, loader));
+
+        versions.changed(1L, BookingChange.removed(101L));
+        ItemCalendar updated = cache.get(1L, versions.tag(1L), second, loader);
+
+        assertEquals(versions.tag(1L), updated.tag());
+        assertEquals(1, updated.size());
+        assertFalse(updated.body().contains("UID:booking-101@shareit"));
+        assertEquals(1, loads.get());
+        assertEquals(2, cache.cachedEvents());
+    }
+
+    @Test
+    void cacheRendersAgainWhenJournalNoLongerCoversVersion() {
+        ItemBookingVersions versions = new ItemBookingVersions();
+        ItemCalendarCache cache = new ItemCalendarCache(versions, 100);
+        AtomicInteger loads = new AtomicInteger();
+        Function<Long, Collection<ShortBooking>> loader = id -> {
+            loads.incrementAndGet();
+            return bookings(id, 1);
+        };
+
+        cache.get(1L, versions.tag(1L), first, loader);
+        for (int i = 0; i < 100; i++) {
+            versions.changed(1L);
+        }
+        ItemCalendar updated = cache.get(1L, versions.tag(1L), second, loader);
+
+        assertEquals(versions.tag(1L), updated.tag());
+        assertEquals(2, loads.get());
+        assertTrue(versions.changesBetween(1L, "other-epoch-0", versions.tag(1L)).isEmpty());
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedCalendarsOverLimit() {
+        ItemCalendarCache cache = new ItemCalendarCache(new ItemBookingVersions(), 6);
+
+        cache.get(1L, "t-1", first, id -> bookings(id, 2));
+        cache.get(2L, "t-1", first, id -> bookings(id, 2));
+        cache.get(1L, "t-1", first, id -> bookings(id, 2));
+        cache.get(3L, "t-1", first, id -> bookings(id, 2));
+
+        assertTrue(cache.contains(1L));
+        assertFalse(cache.contains(2L));
+        assertTrue(cache.contains(3L));
+        assertEquals(6, cache.cachedEvents());
+    }
+
+    @Test
+    void cacheSkipsCalendarLargerThanLimit() {
+        ItemCalendarCache cache = new ItemCalendarCache(new ItemBookingVersions(), 2);
+
+        ItemCalendar calendar = cache.get(1L, "t-1", first, id -> bookings(id, 3));
+
+        assertEquals(3, calendar.size());
+        assertFalse(cache.contains(1L));
+        assertEquals(0, cache.cachedEvents());
+    }
+
+    private List<ShortBooking> bookings(Long itemId, int count) {
+        List<ShortBooking> bookings = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            bookings.add(new ShortBooking(itemId * 100 + i, 5L, start.plusDays(i), start.plusDays(i).plusHours(1),
+                    itemId));
+        }
+        return bookings;
+    }
+}
@@ -9,8 +9,12 @@ import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.dto.BookingChange;
 import ru.practicum.shareit.booking.dto.ShortBooking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.occupancy.ItemBookingTimelineCache;
+import ru.practicum.shareit.booking.occupancy.ItemBookingVersions;
+import ru.practicum.shareit.booking.repository.JpaBookingArchiveRepository;
 import ru.practicum.shareit.booking.repository.JpaBookingRepository;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
@@ -19,14 +23,22 @@ import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.JpaCommentRepository;
 import ru.practicum.shareit.item.repository.JpaItemRepository;
+import ru.practicum.shareit.item.search.ItemNameSuggester;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.search.ItemSearchSort;
 import ru.practicum.shareit.itemrequest.model.ItemRequest;
 import ru.practicum.shareit.itemrequest.repository.JpaItemRequestRepository;
+import ru.practicum.shareit.user.dto.UserDeletedEvent;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.time.LocalDateTime;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongPredicate;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyLong;
@@ -40,19 +52,37 @@ class ItemServiceImplTest {
     @Mock
     JpaBookingRepository bookingRepository;
     @Mock
+    JpaBookingArchiveRepository archiveRepository;
+    @Mock
     JpaItemRepository itemRepository;
     @Mock
     JpaCommentRepository commentRepository;
     @Mock
     JpaItemRequestRepository itemRequestRepository;
+    @Mock
+    ItemSearchIndex searchIndex;
+    @Mock
+    ItemNameSuggester nameSuggester;
+
+    ItemBookingVersions itemBookingVersions;
+    ItemBookingTimelineCache timelineCache;
 
     @BeforeEach
     public void setUp() {
+        itemBookingVersions = new ItemBookingVersions();
+        timelineCache = new ItemBookingTimelineCache(itemBookingVersions, 1000);
         itemService = new ItemServiceImpl(userService,
                 bookingRepository,
                 itemRepository,
                 commentRepository,
-                itemRequestRepository);
+                itemRequestRepository,
+                itemBookingVersions,
+                archiveRepository,
+                timelineCache,
+                new CommentEligibilityCache(1000),
+                new ItemCalendarCache(itemBookingVersions, 1000),
+                searchIndex,
+                nameSuggester);
     }
 
     @Test
@@ -140,6 +170,9 @@ class ItemServiceImplTest {
                         .itemRequest(new ItemRequest(1L, "dddd", localDateTime, new User()))
                         .build());
 
+        verify(searchIndex).index(argThat(item -> item.getId() == 1L));
+        verify(nameSuggester).index(argThat(item -> item.getId() == 1L));
+
         assertEquals(1L, itemSaved.getId());
         assertEquals("some", itemSaved.getName());
         assertEquals("somesome", itemSaved.getDescription());
@@ -238,6 +271,8 @@ class ItemServiceImplTest {
                 .description("UpdateDescription")
                 .itemRequest(null)
                 .build());
+        verify(searchIndex).index(argThat(item -> "updateItem".equals(item.getName())));
+        verify(nameSuggester).index(argThat(item -> "updateItem".equals(item.getName())));
 
         assertEquals(1L, itemAnswer.getId());
         assertEquals("updateItem", itemAnswer.getName());
@@ -344,6 +379,102 @@ class ItemServiceImplTest {
         assertEquals(2, itemAnswer.getComments().size());
     }
 
+    @Test
+    void getByItemIdReusesTimelineUntilBookingsChange() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+        when(itemRepository.findById(anyLong()))
+                .thenReturn(Optional.of(Item.builder().id(1L).name("some").ownerId(2L).build()));
+        when(commentRepository.getCommentsOutDtoByItemId(anyLong()))
+                .thenReturn(Optional.empty());
+
+        ShortBooking past = new ShortBooking(1L, 5L,
+                LocalDateTime.now().minusDays(3), LocalDateTime.now().minusDays(2), 1L);
+        ShortBooking future = new ShortBooking(2L, 5L,
+                LocalDateTime.now().plusDays(2), LocalDateTime.now().plusDays(3), 1L);
+        ShortBooking archived = new ShortBooking(3L, 6L,
+                LocalDateTime.now().minusDays(200), LocalDateTime.now().minusDays(199), 1L);
+
+        when(bookingRepository.getShortBookingsByItemId(1L, BookingStatus.APPROVED))
+                .thenReturn(List.of(past, future));
+        when(archiveRepository.getLastApprovedBookings(List.of(1L)))
+                .thenReturn(List.of(archived));
+
+        itemService.getByItemId(1L, 2L);
+        ItemBookingCommentsResponseDto cached = itemService.getByItemId(1L, 2L);
+
+        assertEquals(past, cached.getLastBooking());
+        assertEquals(future, cached.getNextBooking());
+        verify(bookingRepository, times(1)).getShortBookingsByItemId(1L, BookingStatus.APPROVED);
+        assertEquals(1, timelineCache.hits());
+        assertEquals(1, timelineCache.misses());
+
+        itemBookingVersions.changed(1L);
+        itemService.getByItemId(1L, 2L);
+
+        verify(bookingRepository, times(2)).getShortBookingsByItemId(1L, BookingStatus.APPROVED);
+        assertEquals(2, timelineCache.misses());
+    }
+
+    @Test
+    void getCalendarPatchesCachedBodyWithChangedBookings() {
+        when(itemRepository.findById(1L))
+                .thenReturn(Optional.of(Item.builder().id(1L).name("item").ownerId(3L).available(true).build()));
+
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        ShortBooking first = new ShortBooking(1L, 5L, start, start.plusDays(1), 1L);
+        ShortBooking second = new ShortBooking(2L, 6L, start.plusDays(3), start.plusDays(4), 1L);
+        ShortBooking archived = new ShortBooking(3L, 6L, start.minusYears(1), start.minusYears(1).plusDays(1), 1L);
+
+        when(bookingRepository.getShortBookingsByItemId(1L, BookingStatus.APPROVED))
+                .thenReturn(List.of(second, first));
+        when(archiveRepository.getShortBookingsByItemId(1L, BookingStatus.APPROVED))
+                .thenReturn(List.of(archived));
+
+        ItemCalendarDto calendar = itemService.getCalendar(1L, 3L);
+
+        assertTrue(calendar.getBody().startsWith("BEGIN:VCALENDAR\r\n"));
+        assertTrue(calendar.getBody().contains("DTSTART:20300101T100000\r\nDTEND:20300102T100000\r\n"));
+        assertTrue(calendar.getBody().indexOf("UID:booking-3@shareit")
+                < calendar.getBody().indexOf("UID:booking-1@shareit"));
+        assertTrue(calendar.getBody().indexOf("UID:booking-1@shareit")
+                < calendar.getBody().indexOf("UID:booking-2@shareit"));
+        assertEquals(calendar, itemService.getCalendar(1L, 3L));
+
+        itemBookingVersions.changed(1L, new BookingChange(2L, start.plusDays(3), start.plusDays(4),
+                BookingStatus.REJECTED));
+        itemBookingVersions.changed(1L, new BookingChange(4L, start.plusDays(5), start.plusDays(6),
+                BookingStatus.APPROVED));
+        itemBookingVersions.changed(1L);
+        ItemCalendarDto changed = itemService.getCalendar(1L, 3L);
+
+        assertNotEquals(calendar.getTag(), changed.getTag());
+        assertFalse(changed.getBody().contains("UID:booking-2@shareit"));
+        assertTrue(changed.getBody().contains("UID:booking-1@shareit"));
+        assertTrue(changed.getBody().contains("UID:booking-3@shareit"));
+        assertTrue(changed.getBody().contains("UID:booking-4@shareit\r\nDTSTAMP:"));
+        verify(bookingRepository, times(1)).getShortBookingsByItemId(1L, BookingStatus.APPROVED);
+        verify(archiveRepository, times(1)).getShortBookingsByItemId(1L, BookingStatus.APPROVED);
+    }
+
+    @Test
+    void getCalendarVersionForMissingItem() {
+        when(itemRepository.findById(1L))
+                .thenReturn(Optional.empty());
+
+        assertThrows(ObjectNotFoundException.class, () -> itemService.getCalendarVersion(1L, 3L));
+    }
+
+    @Test
+    void getCalendarVersionForNotOwner() {
+        when(itemRepository.findById(1L))
+                .thenReturn(Optional.of(Item.builder().id(1L).name("item").ownerId(3L).available(true).build()));
+
+        assertThrows(ObjectNotFoundException.class, () -> itemService.getCalendarVersion(1L, 4L));
+        assertThrows(ObjectNotFoundException.class, () -> itemService.getCalendar(1L, 4L));
+        verifyNoInteractions(bookingRepository);
+    }
+
     @Test
     void getByUserIdCorrect() {
         when(userService.getUserById(anyLong()))
@@ -363,7 +494,7 @@ class ItemServiceImplTest {
         when(itemRepository.findItemByOwnerId(anyLong(), any(Pageable.class)))
                 .thenReturn(new PageImpl<>(forPage, pageable, forPage.size()));
 
-        when(bookingRepository.getShortBookingsByItemsOwnerId(1L, BookingStatus.APPROVED))
+        when(bookingRepository.findLastAndNextApprovedBookings(eq(List.of(1L)), any(LocalDateTime.class)))
                 .thenReturn(List.of(
                         new ShortBooking(2L, 3L,
                                 LocalDateTime.now().plusDays(1),
@@ -375,7 +506,7 @@ class ItemServiceImplTest {
 
         verify(userService).getUserById(1L);
         verify(itemRepository).findItemByOwnerId(1L, pageable);
-        verify(bookingRepository).getShortBookingsByItemsOwnerId(1L, BookingStatus.APPROVED);
+        verify(bookingRepository).findLastAndNextApprovedBookings(eq(List.of(1L)), any(LocalDateTime.class));
 
         assertEquals(1, items.size());
         assertEquals(1, items.get(0).getId());
@@ -389,23 +520,23 @@ class ItemServiceImplTest {
 
     @Test
     void searchByTextWithEmptyTextForSearch() {
-        assertEquals(List.of(), itemService.searchByText("", 0L, 1L));
+        assertEquals(List.of(), itemService.searchByText("", null, null, ItemSearchSort.ID, false, 0L, 1L));
     }
 
     @Test
     void searchByTextCorrect() {
-        Pageable pageable = PageRequest.of(0, 3, Sort.by(Sort.Direction.ASC, "id"));
         Item item1 = Item.builder().id(1L).name("some").description("description").available(true)
                 .itemRequest(new ItemRequest(3L, null, null, null))
                 .build();
-        Item item2 = new Item();
-
-        when(itemRepository.some(anyString(), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(item1, item2), pageable, 2));
+        Item item2 = Item.builder().id(4L).name("something").description("description").available(true).build();
 
-        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", 0L, 3L);
+        when(searchIndex.search("som", false))
+                .thenReturn(new long[]{1L, 4L, 7L});
+        when(itemRepository.findAllById(List.of(1L, 4L)))
+                .thenReturn(List.of(item2, item1));
 
-        verify(itemRepository).some("som", pageable);
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", null, null,
+                ItemSearchSort.ID, false, 0L, 2L);
 
         assertEquals(2, itemsAnswer.size());
         assertEquals(1L, itemsAnswer.get(0).getId());
@@ -413,7 +544,173 @@ class ItemServiceImplTest {
         assertEquals("description", itemsAnswer.get(0).getDescription());
         assertEquals(true, itemsAnswer.get(0).getAvailable());
         assertEquals(3L, itemsAnswer.get(0).getRequestId());
+        assertEquals(4L, itemsAnswer.get(1).getId());
+    }
+
+    @Test
+    void searchByTextSecondPage() {
+        when(searchIndex.search("som", false))
+                .thenReturn(new long[]{1L, 4L, 7L});
+        when(itemRepository.findAllById(List.of(7L)))
+                .thenReturn(List.of(Item.builder().id(7L).name("some").description("d").available(true).build()));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", null, null,
+                ItemSearchSort.ID, false, 3L, 2L);
+
+        assertEquals(1, itemsAnswer.size());
+        assertEquals(7L, itemsAnswer.get(0).getId());
+    }
+
+    @Test
+    void searchByTextSkipsItemsDeletedAfterSearch() {
+        Item item = Item.builder().id(4L).name("some").description("d").available(true).build();
+
+        when(searchIndex.search("som", false))
+                .thenReturn(new long[]{1L, 4L});
+        when(itemRepository.findAllById(List.of(1L, 4L)))
+                .thenReturn(List.of(item));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", null, null,
+                ItemSearchSort.ID, false, 0L, 2L);
+
+        verify(searchIndex, times(1)).search("som", false);
+        verify(searchIndex, never()).remove(anyCollection());
+        assertEquals(1, itemsAnswer.size());
+        assertEquals(4L, itemsAnswer.get(0).getId());
+    }
+
+    @Test
+    void suggestReturnsSuggesterAnswer() {
+        when(nameSuggester.suggest("дре", 5))
+                .thenReturn(List.of(new ItemSuggestionDto(2L, "Дрель")));
+
+        List<ItemSuggestionDto> suggestions = itemService.suggest("дре", 5);
+
+        assertEquals(List.of(new ItemSuggestionDto(2L, "Дрель")), suggestions);
+    }
+
+    @Test
+    void onUserDeletedRemovesOwnerItemsFromSearch() {
+        when(itemRepository.findIdsByOwnerId(1L))
+                .thenReturn(List.of(10L, 11L));
 
+        ((ItemServiceImpl) itemService).onUserDeleted(new UserDeletedEvent(1L));
+
+        verify(searchIndex).remove(List.of(10L, 11L));
+        verify(nameSuggester).remove(List.of(10L, 11L));
+    }
+
+    @Test
+    void suggestLimitOutOfRange() {
+        assertThrows(BadRequestException.class, () -> itemService.suggest("дре", 0));
+        assertThrows(BadRequestException.class, () -> itemService.suggest("дре", ItemNameSuggester.MAX_LIMIT + 1));
+        verifyNoInteractions(nameSuggester);
+    }
+
+    @Test
+    void searchByTextByRelevanceKeepsRankOrder() {
+        when(searchIndex.searchByRelevance(eq("som"), eq(false), eq(2), any(LongPredicate.class)))
+                .thenReturn(new long[]{7L, 1L});
+        when(itemRepository.findAllById(List.of(7L, 1L)))
+                .thenReturn(List.of(Item.builder().id(1L).name("some").description("d").available(true).build(),
+                        Item.builder().id(7L).name("some some").description("d").available(true).build()));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", null, null,
+                ItemSearchSort.RELEVANCE, false, 0L, 2L);
+
+        assertEquals(List.of(7L, 1L),
+                itemsAnswer.stream().map(ItemOnlyResponseDto::getId).collect(Collectors.toList()));
+        verify(searchIndex, never()).search(anyString(), anyBoolean());
+    }
+
+    @Test
+    void searchByTextByRelevanceFreeBetweenChecksOnlyTopCandidates() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        when(searchIndex.searchByRelevance(eq("som"), eq(false), eq(4), any(LongPredicate.class)))
+                .thenReturn(new long[]{7L, 1L, 4L, 9L});
+        when(bookingRepository.findBookedItemIds(List.of(7L, 1L, 4L, 9L), BookingStatus.APPROVED, start,
+                start.plusDays(1)))
+                .thenReturn(List.of(7L));
+        when(itemRepository.findAllById(List.of(1L, 4L)))
+                .thenReturn(List.of(Item.builder().id(4L).name("some").description("d").available(true).build(),
+                        Item.builder().id(1L).name("some").description("d").available(true).build()));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", start, start.plusDays(1),
+                ItemSearchSort.RELEVANCE, false, 0L, 2L);
+
+        assertEquals(List.of(1L, 4L),
+                itemsAnswer.stream().map(ItemOnlyResponseDto::getId).collect(Collectors.toList()));
+        verify(searchIndex, never()).search(anyString(), anyBoolean());
+        verify(searchIndex, times(1)).searchByRelevance(anyString(), anyBoolean(), anyInt(), any());
+        verify(bookingRepository, times(1)).findBookedItemIds(any(), any(), any(), any());
+    }
+
+    @Test
+    void searchByTextByRelevanceFreeBetweenEnlargesShortPage() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        long[] ranking = {7L, 8L, 1L, 9L, 4L, 5L};
+
+        when(searchIndex.searchByRelevance(eq("som"), eq(false), anyInt(), any(LongPredicate.class)))
+                .thenAnswer(invocation -> {
+                    int limit = invocation.getArgument(2);
+                    LongPredicate filter = invocation.getArgument(3);
+                    return LongStream.of(ranking).filter(filter).limit(limit).toArray();
+                });
+        when(bookingRepository.findBookedItemIds(List.of(7L, 8L, 1L, 9L), BookingStatus.APPROVED, start,
+                start.plusDays(1)))
+                .thenReturn(List.of(7L, 8L, 9L));
+        when(bookingRepository.findBookedItemIds(List.of(4L, 5L), BookingStatus.APPROVED, start,
+                start.plusDays(1)))
+                .thenReturn(List.of());
+        when(itemRepository.findAllById(List.of(1L, 4L)))
+                .thenReturn(List.of(Item.builder().id(4L).name("some").description("d").available(true).build(),
+                        Item.builder().id(1L).name("some").description("d").available(true).build()));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", start, start.plusDays(1),
+                ItemSearchSort.RELEVANCE, false, 0L, 2L);
+
+        assertEquals(List.of(1L, 4L),
+                itemsAnswer.stream().map(ItemOnlyResponseDto::getId).collect(Collectors.toList()));
+        verify(searchIndex, times(2)).searchByRelevance(anyString(), anyBoolean(), anyInt(), any());
+        verify(bookingRepository, times(2)).findBookedItemIds(any(), any(), any(), any());
+    }
+
+    @Test
+    void searchByTextWithOnlyStart() {
+        assertThrows(BadRequestException.class,
+                () -> itemService.searchByText("som", LocalDateTime.now(), null, ItemSearchSort.ID, false, 0L, 3L));
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void searchByTextWithEndBeforeStart() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 2, 0, 0);
+
+        assertThrows(BadRequestException.class,
+                () -> itemService.searchByText("som", start, start.minusDays(1), ItemSearchSort.ID, false, 0L, 3L));
+        verifyNoInteractions(itemRepository);
+    }
+
+    @Test
+    void searchByTextFreeBetween() {
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0);
+        Item item = Item.builder().id(4L).name("some").description("description").available(true).build();
+
+        when(searchIndex.search("som", false))
+                .thenReturn(new long[]{1L, 2L, 4L, 7L});
+        when(itemRepository.findFreeIds(List.of(1L, 2L, 4L, 7L), BookingStatus.APPROVED,
+                start, start.plusDays(1), PageRequest.ofSize(2)))
+                .thenReturn(List.of(1L, 4L));
+        when(itemRepository.findAllById(List.of(4L)))
+                .thenReturn(List.of(item));
+
+        List<ItemOnlyResponseDto> itemsAnswer = itemService.searchByText("som", start, start.plusDays(1),
+                ItemSearchSort.ID, false, 1L, 1L);
+
+        assertEquals(1, itemsAnswer.size());
+        assertEquals(4L, itemsAnswer.get(0).getId());
+        verifyNoInteractions(bookingRepository);
     }
 
     @Test
@@ -453,8 +750,8 @@ class ItemServiceImplTest {
         when(itemRepository.existsById(anyLong()))
                 .thenReturn(true);
         when(bookingRepository
-                .countApprovedBookingsForUserAndItemAnEarlyEndDate(anyLong(), anyLong(), any(LocalDateTime.class)))
-                .thenReturn(Optional.empty());
+                .existsApprovedBookingEndedBefore(anyLong(), anyLong(), any(LocalDateTime.class)))
+                .thenReturn(false);
 
         CommentRequestDto comment = new CommentRequestDto();
         comment.setText("text");
@@ -466,6 +763,32 @@ class ItemServiceImplTest {
                 exception.getMessage());
     }
 
+    @Test
+    void addCommentRemembersOnlyEligibleAuthors() {
+        when(userService.isPresent(anyLong()))
+                .thenReturn(true);
+        when(itemRepository.existsById(anyLong()))
+                .thenReturn(true);
+        when(bookingRepository.existsApprovedBookingEndedBefore(eq(1L), eq(2L), any(LocalDateTime.class)))
+                .thenReturn(false, true);
+        when(userService.getUserById(anyLong()))
+                .thenReturn(new User());
+        when(itemRepository.findById(anyLong()))
+                .thenReturn(Optional.of(Item.builder().id(2L).build()));
+        when(commentRepository.save(any(Comment.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        CommentRequestDto comment = new CommentRequestDto();
+        comment.setText("text");
+
+        assertThrows(BadRequestException.class, () -> itemService.addComment(1L, 2L, comment));
+        itemService.addComment(1L, 2L, comment);
+        itemService.addComment(1L, 2L, comment);
+
+        verify(bookingRepository, times(2))
+                .existsApprovedBookingEndedBefore(eq(1L), eq(2L), any(LocalDateTime.class));
+    }
+
     @Test
     void addCommentCorrect() {
         when(userService.isPresent(anyLong()))
@@ -473,8 +796,8 @@ class ItemServiceImplTest {
         when(itemRepository.existsById(anyLong()))
                 .thenReturn(true);
         when(bookingRepository
-                .countApprovedBookingsForUserAndItemAnEarlyEndDate(anyLong(), anyLong(), any(LocalDateTime.class)))
-                .thenReturn(Optional.of(1));
+                .existsApprovedBookingEndedBefore(anyLong(), anyLong(), any(LocalDateTime.class)))
+                .thenReturn(true);
 
         User author = new User();
         author.setName("author");
@@ -505,4 +828,50 @@ class ItemServiceImplTest {
         assertEquals(2L, commentAnswer.getItemId());
         assertEquals("author", commentAnswer.getAuthorName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getAvailabilityWithEmptyRange() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+        assertThrows(BadRequestException.class,
+                () -> itemService.getAvailability(1L, from, from, false));
+        verifyNoInteractions(itemRepository, bookingRepository);
+    }
+
+    @Test
+    void getAvailabilityItemNotFound() {
+        when(itemRepository.existsById(anyLong()))
+                .thenReturn(false);
+
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 10, 0);
+
+        assertThrows(ObjectNotFoundException.class,
+                () -> itemService.getAvailability(1L, from, from.plusDays(1), false));
+        verifyNoInteractions(bookingRepository);
+    }
+
+    @Test
+    void getAvailabilityTagItemNotFound() {
+        when(itemRepository.existsById(anyLong()))
+                .thenReturn(false);
+
+        assertThrows(ObjectNotFoundException.class, () -> itemService.getAvailabilityTag(1L));
+    }
+
+    @Test
+    void getAvailabilityCorrect() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+
+        when(itemRepository.existsById(anyLong()))
+                .thenReturn(true);
+        when(bookingRepository.getShortBookingsInRange(1L,
+                EnumSet.of(BookingStatus.APPROVED, BookingStatus.WAITING), from, to))
+                .thenReturn(List.of(new ShortBooking(1L, 2L, from.plusDays(2), from.plusDays(4), 1L)));
+
+        ItemAvailabilityDto availability = itemService.getAvailability(1L, from, to, true);
+
+        assertEquals(List.of(new ItemAvailabilityDto.FreePeriod(from, from.plusDays(2)),
+                new ItemAvailabilityDto.FreePeriod(from.plusDays(4), to)), availability.getFree());
+    }
+}
@@ -5,6 +5,9 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.item.dto.CreateItemRequestDto;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.dto.UserRequestDto;
 import ru.practicum.shareit.user.dto.UserResponseDto;
 import ru.practicum.shareit.user.repository.JpaUserRepository;
@@ -18,6 +21,12 @@ class UserServiceImplIntegrationTest {
     @Autowired
     UserService userService;
 
+    @Autowired
+    ItemService itemService;
+
+    @Autowired
+    ItemSearchIndex searchIndex;
+
     @Autowired
     JpaUserRepository userRepository;
 
@@ -47,6 +56,20 @@ class UserServiceImplIntegrationTest {
         assertThat(result.size()).isEqualTo(0);
     }
 
+    @Test
+    void delete_removesOwnerItemsFromSearchAndSuggestions() {
+        UserResponseDto owner = userService.create(new UserRequestDto("owner@mail.com", "owner"));
+        itemService.create(owner.getId(), CreateItemRequestDto.builder()
+                .name("Перфоратор").description("Перфоратор с набором буров").available(true).build());
+        assertThat(itemService.suggest("перф", 10)).hasSize(1);
+        assertThat(searchIndex.search("перфоратор", false)).hasSize(1);
+
+        userService.delete(owner.getId());
+
+        assertThat(itemService.suggest("перф", 10)).isEmpty();
+        assertThat(searchIndex.search("перфоратор", false)).isEmpty();
+    }
+
     @AfterEach
     public void clear() {
         userRepository.deleteAll();
@@ -5,10 +5,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import ru.practicum.shareit.exception.AvailabilityException;
 import ru.practicum.shareit.exception.EmailValidException;
 import ru.practicum.shareit.exception.ObjectNotFoundException;
 import ru.practicum.shareit.user.dto.UpdateUserRequestDto;
+import ru.practicum.shareit.user.dto.UserCreatedEvent;
+import ru.practicum.shareit.user.dto.UserDeletedEvent;
 import ru.practicum.shareit.user.dto.UserRequestDto;
 import ru.practicum.shareit.user.dto.UserResponseDto;
 import ru.practicum.shareit.user.model.User;
@@ -26,12 +29,14 @@ import static org.mockito.Mockito.*;
 class UserServiceImplTest {
     @Mock
     JpaUserRepository userRepository;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
 
     UserService userService;
 
     @BeforeEach
     public void setUp() {
-        userService = new UserServiceImpl(userRepository);
+        userService = new UserServiceImpl(userRepository, eventPublisher);
     }
 
     @Test
@@ -55,6 +60,7 @@ class UserServiceImplTest {
 
         verify(userRepository, times(1))
                 .save(User.builder().id(null).name("first").email("first@email.com").build());
+        verify(eventPublisher).publishEvent(new UserCreatedEvent(1L));
 
         assertEquals(user.getId(), 1L);
         assertEquals(user.getName(), "first");
@@ -153,6 +159,7 @@ class UserServiceImplTest {
 
         userService.delete(1L);
 
+        verify(eventPublisher).publishEvent(new UserDeletedEvent(1L));
         verify(userRepository, times(1)).deleteById(1L);
     }
 